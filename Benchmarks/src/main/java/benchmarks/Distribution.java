@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * The input distributions every sort is benchmarked against.
+ */
+public enum Distribution {
+	/** Uniformly random values. */
+	RANDOM,
+	/** Values already in ascending order. */
+	SORTED,
+	/** Values in descending order. */
+	REVERSE,
+	/** Repeated ascending runs of length sqrt(n). */
+	SAWTOOTH,
+	/** Random values drawn from only 16 distinct keys. */
+	FEW_UNIQUE,
+	/** A single repeated value. */
+	ALL_EQUAL,
+	/** Ascending to the middle, then descending. */
+	ORGAN_PIPE;
+
+	/**
+	 * Generates n values following this distribution.
+	 *
+	 * @param n The number of values
+	 * @param seed The seed for any random values
+	 * @return The generated values
+	 */
+	public int[] generate(int n, long seed) {
+		Random random = new Random(seed);
+		int[] values = new int[n];
+		int period = Math.max(1, (int) Math.sqrt(n));
+		for (int i = 0; i < n; i++) {
+			switch (this) {
+			case RANDOM:
+				values[i] = random.nextInt();
+				break;
+			case SORTED:
+				values[i] = i;
+				break;
+			case REVERSE:
+				values[i] = n - i;
+				break;
+			case SAWTOOTH:
+				values[i] = i % period;
+				break;
+			case FEW_UNIQUE:
+				values[i] = random.nextInt(16);
+				break;
+			case ALL_EQUAL:
+				values[i] = 42;
+				break;
+			case ORGAN_PIPE:
+				values[i] = (i < n / 2) ? i : (n - i);
+				break;
+			default:
+				throw new IllegalStateException("Unknown distribution: " + this);
+			}
+		}
+
+		return values;
+	}
+}
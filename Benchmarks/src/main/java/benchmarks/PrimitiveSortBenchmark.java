@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the O(n log n) and radix sorts over int[] inputs. Each
+ * invocation sorts a fresh copy of the input, so the O(n) copy is included
+ * in every score.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class PrimitiveSortBenchmark {
+
+	@Param({"1000", "100000", "10000000", "100000000"})
+	public int size;
+
+	@Param
+	public Distribution distribution;
+
+	private int[] input;
+	private Random random;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		input = distribution.generate(size, 42);
+	}
+
+	@Setup(Level.Iteration)
+	public void resetRandom() {
+		random = new Random(42);
+	}
+
+	@Benchmark
+	public int[] quicksort() throws Throwable {
+		int[] arr = input.clone();
+		Sorts.INT_QUICKSORT.invokeExact(arr, random);
+		return arr;
+	}
+
+	@Benchmark
+	public int[] mergesort() throws Throwable {
+		return (int[]) Sorts.INT_MERGESORT.invokeExact(input.clone());
+	}
+
+	@Benchmark
+	public int[] radixsort() throws Throwable {
+		return (int[]) Sorts.INT_RADIXSORT.invokeExact(input.clone());
+	}
+
+	@Benchmark
+	public int[] parallelRadixsort() throws Throwable {
+		return (int[]) Sorts.INT_PARALLEL_RADIXSORT.invokeExact(input.clone());
+	}
+}
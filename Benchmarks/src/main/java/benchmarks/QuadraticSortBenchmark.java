@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the O(n^2) sorts. They are kept to small sizes, where they
+ * still finish in reasonable time, over both int[] and User[] inputs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class QuadraticSortBenchmark {
+
+	@Param({"1000", "10000"})
+	public int size;
+
+	@Param
+	public Distribution distribution;
+
+	private int[] ints;
+	private Comparable<?>[] users;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ints = distribution.generate(size, 42);
+		users = Sorts.users(ints);
+	}
+
+	@Benchmark
+	public Comparable<?>[] bubblesort() throws Throwable {
+		Comparable<?>[] arr = users.clone();
+		Sorts.BUBBLESORT.invoke(arr);
+		return arr;
+	}
+
+	@Benchmark
+	public Comparable<?>[] insertionsort() throws Throwable {
+		Comparable<?>[] arr = users.clone();
+		Sorts.INSERTIONSORT.invoke(arr);
+		return arr;
+	}
+
+	@Benchmark
+	public Comparable<?>[] selectionsort() throws Throwable {
+		Comparable<?>[] arr = users.clone();
+		Sorts.SELECTIONSORT.invoke(arr);
+		return arr;
+	}
+
+	@Benchmark
+	public int[] primitiveInsertionsort() throws Throwable {
+		int[] arr = ints.clone();
+		Sorts.INT_INSERTIONSORT.invokeExact(arr);
+		return arr;
+	}
+}
@@ -0,0 +1,122 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Gives the benchmarks access to the example classes. Sorting, User and
+ * friends live in the default package, which no named package (including
+ * the one JMH generates its harness into) can import, so they are loaded
+ * by name and called through method handles. The handles are constants,
+ * so the JIT inlines them and the indirection does not show up in the
+ * measurements.
+ */
+final class Sorts {
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+	private static final Class<?> SORTING = load("Sorting");
+	private static final Class<?> PARALLEL_RADIX_SORT = load("ParallelRadixSort");
+	private static final Class<?> USER = load("User");
+	private static final Object SORTER = create(SORTING);
+	private static final Object PARALLEL_SORTER = create(PARALLEL_RADIX_SORT);
+
+	static final MethodHandle BUBBLESORT = find(SORTING, SORTER, "bubblesort", void.class, Comparable[].class);
+	static final MethodHandle INSERTIONSORT = find(SORTING, SORTER, "insertionsort", void.class, Comparable[].class);
+	static final MethodHandle SELECTIONSORT = find(SORTING, SORTER, "selectionsort", void.class, Comparable[].class);
+	static final MethodHandle QUICKSORT = find(SORTING, SORTER, "quicksort", void.class, Comparable[].class, Random.class);
+	static final MethodHandle MERGESORT = find(SORTING, SORTER, "mergesort", Comparable[].class, Comparable[].class);
+	static final MethodHandle ADAPTIVESORT = find(SORTING, SORTER, "adaptivesort", Comparable[].class, Comparable[].class);
+	static final MethodHandle PARALLEL_MERGESORT = find(SORTING, SORTER, "parallelMergesort", Comparable[].class, Comparable[].class);
+	static final MethodHandle PARALLEL_SAMPLESORT = find(SORTING, SORTER, "parallelSamplesort", Comparable[].class, Comparable[].class);
+	static final MethodHandle PARALLEL_STABLE_SAMPLESORT = find(SORTING, SORTER, "parallelStableSamplesort", Comparable[].class, Comparable[].class);
+	static final MethodHandle MSD_RADIXSORT_BY_KEY = find(SORTING, SORTER, "msdRadixsort", Object[].class, Object[].class, Function.class);
+	static final MethodHandle MULTIKEY_QUICKSORT_BY_KEY = find(SORTING, SORTER, "multikeyQuicksort", Object[].class, Object[].class, Function.class, Random.class);
+	static final MethodHandle LCP_MERGESORT_BY_KEY = find(SORTING, SORTER, "lcpMergesort", Object[].class, Object[].class, Function.class);
+
+	static final MethodHandle INT_INSERTIONSORT = find(SORTING, SORTER, "insertionsort", void.class, int[].class);
+	static final MethodHandle INT_QUICKSORT = find(SORTING, SORTER, "quicksort", void.class, int[].class, Random.class);
+	static final MethodHandle INT_MERGESORT = find(SORTING, SORTER, "mergesort", int[].class, int[].class);
+	static final MethodHandle INT_RADIXSORT = find(SORTING, SORTER, "radixsort", int[].class, int[].class);
+	static final MethodHandle INT_PARALLEL_RADIXSORT = find(PARALLEL_RADIX_SORT, PARALLEL_SORTER, "sort", int[].class, int[].class);
+
+	private static final MethodHandle NEW_USER;
+	private static final MethodHandle GET_USERNAME;
+	static {
+		try {
+			NEW_USER = LOOKUP.findConstructor(USER, MethodType.methodType(void.class, String.class, String.class));
+			GET_USERNAME = LOOKUP.findVirtual(USER, "getUsername", MethodType.methodType(String.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Extracts the case-folded username of a User, the key User.compareTo
+	 * orders by.
+	 */
+	static final Function<Object, String> FOLDED_USERNAME = user -> {
+		try {
+			return ((String) GET_USERNAME.invoke(user)).toLowerCase();
+		} catch (Throwable e) {
+			throw new IllegalStateException("Could not read username", e);
+		}
+	};
+
+	private Sorts() {
+	}
+
+	/**
+	 * Builds a User[] whose usernames follow the order of the given keys.
+	 * Keys are offset and zero-padded so that string order matches numeric
+	 * order, and every other username is upper-cased so User.compareTo has
+	 * real case folding to do.
+	 *
+	 * @param keys The keys to derive usernames from
+	 * @return A new User[] (typed as Comparable[])
+	 */
+	static Comparable<?>[] users(int[] keys) {
+		Comparable<?>[] users = (Comparable<?>[]) Array.newInstance(USER, keys.length);
+		try {
+			for (int i = 0; i < keys.length; i++) {
+				String username = String.format("user%010d", ((keys[i] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL));
+				if ((i & 1) == 1) {
+					username = username.toUpperCase();
+				}
+				users[i] = (Comparable<?>) NEW_USER.invoke(username, "Name " + i);
+			}
+		} catch (Throwable e) {
+			throw new IllegalStateException("Could not create users", e);
+		}
+
+		return users;
+	}
+
+	private static Class<?> load(String name) {
+		try {
+			return Class.forName(name);
+		} catch (ClassNotFoundException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static Object create(Class<?> type) {
+		try {
+			return type.getConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static MethodHandle find(Class<?> type, Object receiver, String name, Class<?> returnType,
+			Class<?>... parameterTypes) {
+		try {
+			return LOOKUP.findVirtual(type, name, MethodType.methodType(returnType, parameterTypes))
+					.bindTo(receiver);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the O(n log n) Comparable sorts over User[] inputs, whose
+ * compareTo case-folds both usernames on every call, alongside the String
+ * sorts keyed on the case-folded username, which fold each one only once.
+ * Each invocation sorts a fresh copy of the input array (the User objects
+ * themselves are shared).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Thread)
+public class UserSortBenchmark {
+
+	@Param({"1000", "100000", "10000000"})
+	public int size;
+
+	@Param
+	public Distribution distribution;
+
+	private Comparable<?>[] input;
+	private Random random;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		input = Sorts.users(distribution.generate(size, 42));
+	}
+
+	@Setup(Level.Iteration)
+	public void resetRandom() {
+		random = new Random(42);
+	}
+
+	@Benchmark
+	public Comparable<?>[] quicksort() throws Throwable {
+		Comparable<?>[] arr = input.clone();
+		Sorts.QUICKSORT.invoke(arr, random);
+		return arr;
+	}
+
+	@Benchmark
+	public Object mergesort() throws Throwable {
+		return Sorts.MERGESORT.invoke(input.clone());
+	}
+
+	@Benchmark
+	public Object adaptivesort() throws Throwable {
+		return Sorts.ADAPTIVESORT.invoke(input.clone());
+	}
+
+	@Benchmark
+	public Object parallelMergesort() throws Throwable {
+		return Sorts.PARALLEL_MERGESORT.invoke(input.clone());
+	}
+
+	@Benchmark
+	public Object parallelSamplesort() throws Throwable {
+		return Sorts.PARALLEL_SAMPLESORT.invoke(input.clone());
+	}
+
+	@Benchmark
+	public Object parallelStableSamplesort() throws Throwable {
+		return Sorts.PARALLEL_STABLE_SAMPLESORT.invoke(input.clone());
+	}
+
+	@Benchmark
+	public Object msdRadixsort() throws Throwable {
+		return Sorts.MSD_RADIXSORT_BY_KEY.invoke((Object[]) input.clone(), Sorts.FOLDED_USERNAME);
+	}
+
+	@Benchmark
+	public Object multikeyQuicksort() throws Throwable {
+		return Sorts.MULTIKEY_QUICKSORT_BY_KEY.invoke((Object[]) input.clone(), Sorts.FOLDED_USERNAME, random);
+	}
+
+	@Benchmark
+	public Object lcpMergesort() throws Throwable {
+		return Sorts.LCP_MERGESORT_BY_KEY.invoke((Object[]) input.clone(), Sorts.FOLDED_USERNAME);
+	}
+}
@@ -0,0 +1,517 @@
+import java.util.Arrays;
+
+/**
+ * The AdaptiveSort class implements a stable natural merge sort in the
+ * style of Timsort. The array is scanned for runs which are already in
+ * order (strictly descending runs are reversed in place), short runs are
+ * extended to a minimum length with binary insertion sort, and runs are
+ * merged pairwise with galloping so that long stretches taken from one
+ * side cost only O(log n) comparisons. An array which is already sorted,
+ * or made of a few sorted blocks, is sorted in close to n comparisons.
+ *
+ * An instance holds the merge state for a single array and is not
+ * reusable.
+ *
+ * @param <T> The type of element being sorted
+ */
+public class AdaptiveSort<T extends Comparable<T>> {
+
+	/**
+	 * Arrays shorter than this are sorted with binary insertion sort alone.
+	 */
+	public static final int MIN_MERGE = 32;
+
+	/**
+	 * The number of consecutive wins by one run before a merge switches to
+	 * galloping.
+	 */
+	private static final int MIN_GALLOP = 7;
+
+	/**
+	 * Enough pending runs for any int-sized array, given that the run
+	 * lengths on the stack grow at least as fast as the Fibonacci numbers.
+	 */
+	private static final int MAX_RUNS = 49;
+
+	private final T[] arr;
+	private T[] tmp;
+	private int minGallop = MIN_GALLOP;
+	private final int[] runBase = new int[MAX_RUNS];
+	private final int[] runLength = new int[MAX_RUNS];
+	private int stackSize = 0;
+
+	/**
+	 * Constructs a new AdaptiveSort over an array.
+	 *
+	 * @param arr The array to sort
+	 */
+	public AdaptiveSort(T[] arr) {
+		this.arr = arr;
+	}
+
+	/**
+	 * Sorts the array in place.
+	 *
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public T[] sort() {
+		int remaining = arr.length;
+		if (remaining < 2) {
+			return arr;
+		}
+
+		if (remaining < MIN_MERGE) {
+			binaryInsertionSort(0, remaining, countRunAndMakeAscending(0, remaining));
+			return arr;
+		}
+
+		int low = 0;
+		int minRun = minRunLength(remaining);
+		while (remaining > 0) {
+			int length = countRunAndMakeAscending(low, arr.length);
+			if (length < minRun) {
+				int forced = Math.min(remaining, minRun);
+				binaryInsertionSort(low, (low + forced), (low + length));
+				length = forced;
+			}
+
+			runBase[stackSize] = low;
+			runLength[stackSize] = length;
+			stackSize++;
+			mergeCollapse();
+
+			low += length;
+			remaining -= length;
+		}
+
+		while (stackSize > 1) {
+			int n = stackSize - 2;
+			if (n > 0 && runLength[n - 1] < runLength[n + 1]) {
+				n--;
+			}
+			mergeAt(n);
+		}
+
+		return arr;
+	}
+
+	/**
+	 * Returns the minimum run length for an array of the given size: a
+	 * number between MIN_MERGE / 2 and MIN_MERGE such that size / minRun is
+	 * a power of two or slightly less, which keeps the final merges balanced.
+	 *
+	 * @param size The length of the array
+	 * @return The minimum run length
+	 */
+	private int minRunLength(int size) {
+		int lowBit = 0;
+		while (size >= MIN_MERGE) {
+			lowBit |= (size & 1);
+			size >>= 1;
+		}
+
+		return size + lowBit;
+	}
+
+	/**
+	 * Finds the length of the run starting at low and, if it is strictly
+	 * descending, reverses it so it becomes ascending. Only strictly
+	 * descending runs are reversed, which keeps the sort stable.
+	 *
+	 * @param low The index the run starts at
+	 * @param high The end of the array (exclusive)
+	 * @return The length of the run
+	 */
+	private int countRunAndMakeAscending(int low, int high) {
+		int end = low + 1;
+		if (end == high) {
+			return 1;
+		}
+
+		if (arr[end++].compareTo(arr[low]) < 0) {
+			while (end < high && arr[end].compareTo(arr[end - 1]) < 0) {
+				end++;
+			}
+			reverse(low, end);
+		} else {
+			while (end < high && arr[end].compareTo(arr[end - 1]) >= 0) {
+				end++;
+			}
+		}
+
+		return end - low;
+	}
+
+	/**
+	 * Reverses the range [low, high) of the array.
+	 *
+	 * @param low The start of the range (inclusive)
+	 * @param high The end of the range (exclusive)
+	 */
+	private void reverse(int low, int high) {
+		high--;
+		while (low < high) {
+			T temp = arr[low];
+			arr[low++] = arr[high];
+			arr[high--] = temp;
+		}
+	}
+
+	/**
+	 * Sorts the range [low, high) by binary insertion, given that
+	 * [low, start) is already sorted.
+	 *
+	 * @param low The start of the range (inclusive)
+	 * @param high The end of the range (exclusive)
+	 * @param start The first index which is not yet known to be in order
+	 */
+	private void binaryInsertionSort(int low, int high, int start) {
+		for (int i = start; i < high; i++) {
+			T pivot = arr[i];
+			int left = low;
+			int right = i;
+			while (left < right) {
+				int mid = (left + right) >>> 1;
+				if (pivot.compareTo(arr[mid]) < 0) {
+					right = mid;
+				} else {
+					left = mid + 1;
+				}
+			}
+
+			System.arraycopy(arr, left, arr, (left + 1), (i - left));
+			arr[left] = pivot;
+		}
+	}
+
+	/**
+	 * Merges pending runs until the run lengths on the stack satisfy
+	 * runLength[i - 2] > runLength[i - 1] + runLength[i] and
+	 * runLength[i - 1] > runLength[i] for every i, checking the top four
+	 * runs so the invariant holds for the whole stack.
+	 */
+	private void mergeCollapse() {
+		while (stackSize > 1) {
+			int n = stackSize - 2;
+			if ((n > 0 && runLength[n - 1] <= runLength[n] + runLength[n + 1])
+					|| (n > 1 && runLength[n - 2] <= runLength[n] + runLength[n - 1])) {
+				if (runLength[n - 1] < runLength[n + 1]) {
+					n--;
+				}
+			} else if (runLength[n] > runLength[n + 1]) {
+				break;
+			}
+			mergeAt(n);
+		}
+	}
+
+	/**
+	 * Merges the runs at stack positions i and i + 1. Elements of the first
+	 * run which already precede the whole second run, and elements of the
+	 * second run which already follow the whole first run, are found by
+	 * galloping and left where they are.
+	 *
+	 * @param i The stack index of the first run
+	 */
+	private void mergeAt(int i) {
+		int base1 = runBase[i];
+		int length1 = runLength[i];
+		int base2 = runBase[i + 1];
+		int length2 = runLength[i + 1];
+
+		runLength[i] = length1 + length2;
+		if (i == stackSize - 3) {
+			runBase[i + 1] = runBase[i + 2];
+			runLength[i + 1] = runLength[i + 2];
+		}
+		stackSize--;
+
+		int skipped = gallopFromStart(arr[base2], arr, base1, length1, true);
+		base1 += skipped;
+		length1 -= skipped;
+		if (length1 == 0) {
+			return;
+		}
+
+		length2 = gallopFromEnd(arr[base1 + length1 - 1], arr, base2, length2, false);
+		if (length2 == 0) {
+			return;
+		}
+
+		if (length1 <= length2) {
+			mergeLow(base1, length1, base2, length2);
+		} else {
+			mergeHigh(base1, length1, base2, length2);
+		}
+	}
+
+	/**
+	 * Counts the leading elements of the sorted range a[base, base + length)
+	 * which come before key, searching outward from the start of the range.
+	 *
+	 * @param key The element to place
+	 * @param a The array holding the range
+	 * @param base The start of the range
+	 * @param length The length of the range
+	 * @param inclusive true if elements equal to key count as coming before it
+	 * @return The number of elements which come before key
+	 */
+	private int gallopFromStart(T key, T[] a, int base, int length, boolean inclusive) {
+		int last = 0;
+		int offset = 1;
+		while (offset < length && before(a[base + offset - 1], key, inclusive)) {
+			last = offset;
+			offset = (offset << 1) + 1;
+			if (offset <= 0) {
+				offset = length;
+			}
+		}
+
+		int low = last;
+		int high = (offset < length) ? (offset - 1) : length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (before(a[base + mid], key, inclusive)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Counts the leading elements of the sorted range a[base, base + length)
+	 * which come before key, searching outward from the end of the range.
+	 *
+	 * @param key The element to place
+	 * @param a The array holding the range
+	 * @param base The start of the range
+	 * @param length The length of the range
+	 * @param inclusive true if elements equal to key count as coming before it
+	 * @return The number of elements which come before key
+	 */
+	private int gallopFromEnd(T key, T[] a, int base, int length, boolean inclusive) {
+		int last = 0;
+		int offset = 1;
+		int end = base + length - 1;
+		while (offset < length && !before(a[end - offset + 1], key, inclusive)) {
+			last = offset;
+			offset = (offset << 1) + 1;
+			if (offset <= 0) {
+				offset = length;
+			}
+		}
+
+		// Count the trailing elements which come after key
+		int low = last;
+		int high = (offset < length) ? (offset - 1) : length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (!before(a[end - mid], key, inclusive)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return length - low;
+	}
+
+	/**
+	 * Returns whether an element comes before a key.
+	 *
+	 * @param element The element to test
+	 * @param key The key to test against
+	 * @param inclusive true if an element equal to key comes before it
+	 * @return true if element sorts before key
+	 */
+	private boolean before(T element, T key, boolean inclusive) {
+		int compare = element.compareTo(key);
+		return inclusive ? (compare <= 0) : (compare < 0);
+	}
+
+	/**
+	 * Merges two adjacent runs front to back, copying the (shorter) first
+	 * run out to the scratch buffer. Requires that the first element of the
+	 * second run precedes the first element of the first run, and that the
+	 * last element of the first run follows the whole second run.
+	 *
+	 * @param base1 The start of the first run
+	 * @param length1 The length of the first run
+	 * @param base2 The start of the second run
+	 * @param length2 The length of the second run
+	 */
+	private void mergeLow(int base1, int length1, int base2, int length2) {
+		T[] scratch = ensureCapacity(length1);
+		System.arraycopy(arr, base1, scratch, 0, length1);
+		int cursor1 = 0;
+		int cursor2 = base2;
+		int dest = base1;
+
+		outer:
+		while (true) {
+			int wins1 = 0;
+			int wins2 = 0;
+
+			// Plain merging until one run starts winning consistently
+			do {
+				if (arr[cursor2].compareTo(scratch[cursor1]) < 0) {
+					arr[dest++] = arr[cursor2++];
+					wins2++;
+					wins1 = 0;
+					if (--length2 == 0) {
+						break outer;
+					}
+				} else {
+					arr[dest++] = scratch[cursor1++];
+					wins1++;
+					wins2 = 0;
+					if (--length1 == 0) {
+						break outer;
+					}
+				}
+			} while ((wins1 | wins2) < minGallop);
+
+			// Galloping until neither run wins by a large margin
+			do {
+				wins1 = gallopFromStart(arr[cursor2], scratch, cursor1, length1, true);
+				if (wins1 != 0) {
+					System.arraycopy(scratch, cursor1, arr, dest, wins1);
+					dest += wins1;
+					cursor1 += wins1;
+					length1 -= wins1;
+					if (length1 == 0) {
+						break outer;
+					}
+				}
+				arr[dest++] = arr[cursor2++];
+				if (--length2 == 0) {
+					break outer;
+				}
+
+				wins2 = gallopFromStart(scratch[cursor1], arr, cursor2, length2, false);
+				if (wins2 != 0) {
+					System.arraycopy(arr, cursor2, arr, dest, wins2);
+					dest += wins2;
+					cursor2 += wins2;
+					length2 -= wins2;
+					if (length2 == 0) {
+						break outer;
+					}
+				}
+				arr[dest++] = scratch[cursor1++];
+				if (--length1 == 0) {
+					break outer;
+				}
+
+				minGallop--;
+			} while (wins1 >= MIN_GALLOP || wins2 >= MIN_GALLOP);
+
+			// Penalize leaving gallop mode
+			minGallop = Math.max(minGallop, 0) + 2;
+		}
+
+		if (length1 > 0) {
+			System.arraycopy(scratch, cursor1, arr, dest, length1);
+		}
+	}
+
+	/**
+	 * Merges two adjacent runs back to front, copying the (shorter) second
+	 * run out to the scratch buffer. Has the same requirements as mergeLow.
+	 *
+	 * @param base1 The start of the first run
+	 * @param length1 The length of the first run
+	 * @param base2 The start of the second run
+	 * @param length2 The length of the second run
+	 */
+	private void mergeHigh(int base1, int length1, int base2, int length2) {
+		T[] scratch = ensureCapacity(length2);
+		System.arraycopy(arr, base2, scratch, 0, length2);
+		int cursor1 = base1 + length1 - 1;
+		int cursor2 = length2 - 1;
+		int dest = base2 + length2 - 1;
+
+		outer:
+		while (true) {
+			int wins1 = 0;
+			int wins2 = 0;
+
+			do {
+				if (scratch[cursor2].compareTo(arr[cursor1]) < 0) {
+					arr[dest--] = arr[cursor1--];
+					wins1++;
+					wins2 = 0;
+					if (--length1 == 0) {
+						break outer;
+					}
+				} else {
+					arr[dest--] = scratch[cursor2--];
+					wins2++;
+					wins1 = 0;
+					if (--length2 == 0) {
+						break outer;
+					}
+				}
+			} while ((wins1 | wins2) < minGallop);
+
+			do {
+				wins1 = length1 - gallopFromEnd(scratch[cursor2], arr, base1, length1, true);
+				if (wins1 != 0) {
+					dest -= wins1;
+					cursor1 -= wins1;
+					length1 -= wins1;
+					System.arraycopy(arr, (cursor1 + 1), arr, (dest + 1), wins1);
+					if (length1 == 0) {
+						break outer;
+					}
+				}
+				arr[dest--] = scratch[cursor2--];
+				if (--length2 == 0) {
+					break outer;
+				}
+
+				wins2 = length2 - gallopFromEnd(arr[cursor1], scratch, 0, length2, false);
+				if (wins2 != 0) {
+					dest -= wins2;
+					cursor2 -= wins2;
+					length2 -= wins2;
+					System.arraycopy(scratch, (cursor2 + 1), arr, (dest + 1), wins2);
+					if (length2 == 0) {
+						break outer;
+					}
+				}
+				arr[dest--] = arr[cursor1--];
+				if (--length1 == 0) {
+					break outer;
+				}
+
+				minGallop--;
+			} while (wins1 >= MIN_GALLOP || wins2 >= MIN_GALLOP);
+
+			minGallop = Math.max(minGallop, 0) + 2;
+		}
+
+		if (length2 > 0) {
+			System.arraycopy(scratch, 0, arr, (dest - length2 + 1), length2);
+		}
+	}
+
+	/**
+	 * Returns a scratch buffer of at least the given length, growing the
+	 * current one if needed.
+	 *
+	 * @param length The number of elements needed
+	 * @return The scratch buffer
+	 */
+	private T[] ensureCapacity(int length) {
+		if (tmp == null || tmp.length < length) {
+			int size = Math.max(length, Math.min(arr.length, (tmp == null) ? 256 : (tmp.length << 1)));
+			tmp = Arrays.copyOf(arr, size);
+		}
+
+		return tmp;
+	}
+}
@@ -0,0 +1,560 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ExternalSort class sorts streams of fixed-width binary records which
+ * are too large to hold in memory at once.
+ *
+ * The input is read in chunks that fit the memory budget, each chunk is
+ * sorted in memory with Sorting and spilled to a temporary run file through
+ * a MappedByteBuffer. The runs are then merged with a LoserTree, at most
+ * fanIn at a time, reading each run through a sliding memory-mapped window.
+ * If there are more runs than fanIn, intermediate merge passes are made
+ * until one final pass can write straight to the output channel. Input
+ * which fits in a single chunk never touches the disk.
+ *
+ * Primitive records are stored big-endian, as ByteBuffer does by default.
+ */
+public class ExternalSort {
+
+	/**
+	 * The default maximum number of runs merged in one pass.
+	 */
+	public static final int DEFAULT_FAN_IN = 64;
+
+	/**
+	 * The size of the buffer merged records are staged in before being
+	 * written to an output channel.
+	 */
+	private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The smallest chunk sorted in memory, and the smallest window of a run
+	 * file mapped at a time. Mapped windows live in the page cache rather
+	 * than the heap, and mapping tiny windows costs far more in system calls
+	 * than it saves.
+	 */
+	private static final long MIN_WINDOW_SIZE = 1 << 16;
+
+	private final Sorting sorting = new Sorting();
+	private final long memoryLimit;
+	private final int fanIn;
+	private final Path tempDirectory;
+
+	/**
+	 * Constructs a new ExternalSort which spills runs to the default
+	 * temporary directory and merges at most DEFAULT_FAN_IN runs at a time.
+	 *
+	 * @param memoryLimit The approximate number of heap bytes to use
+	 */
+	public ExternalSort(long memoryLimit) {
+		this(memoryLimit, DEFAULT_FAN_IN, Paths.get(System.getProperty("java.io.tmpdir")));
+	}
+
+	/**
+	 * Constructs a new ExternalSort.
+	 *
+	 * The memory limit covers the chunk being sorted: its encoded bytes, the
+	 * decoded array and the sort's scratch space. Records decoded by a
+	 * RecordCodec may take more heap than their encoded width, so budgets
+	 * for object records should leave room for that.
+	 *
+	 * @param memoryLimit The approximate number of heap bytes to use
+	 * @param fanIn The maximum number of runs merged in one pass
+	 * @param tempDirectory The directory run files are created in
+	 */
+	public ExternalSort(long memoryLimit, int fanIn, Path tempDirectory) {
+		if (memoryLimit <= 0) {
+			throw new IllegalArgumentException("Memory limit must be positive!");
+		} else if (fanIn < 2) {
+			throw new IllegalArgumentException("Fan-in must be at least 2!");
+		} else if (tempDirectory == null) {
+			throw new IllegalArgumentException("Temporary directory cannot be null!");
+		}
+
+		this.memoryLimit = memoryLimit;
+		this.fanIn = fanIn;
+		this.tempDirectory = tempDirectory;
+	}
+
+	/**
+	 * Sorts a stream of 4-byte int records.
+	 *
+	 * @param in The channel to read records from
+	 * @param out The channel to write the sorted records to
+	 * @return The number of records sorted
+	 * @throws IOException if reading, writing or spilling fails, or the
+	 *         input ends with a partial record
+	 */
+	public long sortInts(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		int width = Integer.BYTES;
+		ByteBuffer chunk = allocateChunk(width);
+		int[] values = new int[chunk.capacity() / width];
+		int[] scratch = new int[values.length];
+		List<Path> runs = new ArrayList<Path>();
+		long total = 0;
+
+		try {
+			int count;
+			while ((count = readChunk(in, chunk, width)) > 0) {
+				total += count;
+				chunk.asIntBuffer().get(values, 0, count);
+				sorting.radixsort(values, scratch, 0, count);
+				if (runs.isEmpty() && isExhausted(chunk)) {
+					ByteBuffer sorted = ByteBuffer.allocate(count * width);
+					sorted.asIntBuffer().put(values, 0, count);
+					writeFully(out, sorted);
+					return total;
+				}
+
+				MappedByteBuffer run = createRun(runs, (long) count * width);
+				run.asIntBuffer().put(values, 0, count);
+			}
+
+			mergeRuns(runs, width, out, new SourcesFactory() {
+				@Override
+				public MergeSources create(RunReader[] readers) {
+					return new MergeSources(readers) {
+						@Override
+						public int compareHeads(int first, int second) {
+							return Integer.compare(readers[first].window.getInt(readers[first].window.position()),
+									readers[second].window.getInt(readers[second].window.position()));
+						}
+					};
+				}
+			});
+		} finally {
+			deleteRuns(runs);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Sorts a stream of 8-byte long records.
+	 *
+	 * @param in The channel to read records from
+	 * @param out The channel to write the sorted records to
+	 * @return The number of records sorted
+	 * @throws IOException if reading, writing or spilling fails, or the
+	 *         input ends with a partial record
+	 */
+	public long sortLongs(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		int width = Long.BYTES;
+		ByteBuffer chunk = allocateChunk(width);
+		long[] values = new long[chunk.capacity() / width];
+		long[] scratch = new long[values.length];
+		List<Path> runs = new ArrayList<Path>();
+		long total = 0;
+
+		try {
+			int count;
+			while ((count = readChunk(in, chunk, width)) > 0) {
+				total += count;
+				chunk.asLongBuffer().get(values, 0, count);
+				sorting.radixsort(values, scratch, 0, count);
+				if (runs.isEmpty() && isExhausted(chunk)) {
+					ByteBuffer sorted = ByteBuffer.allocate(count * width);
+					sorted.asLongBuffer().put(values, 0, count);
+					writeFully(out, sorted);
+					return total;
+				}
+
+				MappedByteBuffer run = createRun(runs, (long) count * width);
+				run.asLongBuffer().put(values, 0, count);
+			}
+
+			mergeRuns(runs, width, out, new SourcesFactory() {
+				@Override
+				public MergeSources create(RunReader[] readers) {
+					return new MergeSources(readers) {
+						@Override
+						public int compareHeads(int first, int second) {
+							return Long.compare(readers[first].window.getLong(readers[first].window.position()),
+									readers[second].window.getLong(readers[second].window.position()));
+						}
+					};
+				}
+			});
+		} finally {
+			deleteRuns(runs);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Stable sorts a stream of records encoded with a RecordCodec. Records
+	 * which compare equal keep their input order.
+	 *
+	 * @param in The channel to read records from
+	 * @param out The channel to write the sorted records to
+	 * @param codec Converts records to and from their binary form
+	 * @return The number of records sorted
+	 * @throws IOException if reading, writing or spilling fails, or the
+	 *         input ends with a partial record
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Comparable<T>> long sort(ReadableByteChannel in, WritableByteChannel out,
+			final RecordCodec<T> codec) throws IOException {
+		final int width = codec.width();
+		if (width <= 0) {
+			throw new IllegalArgumentException("Record width must be positive!");
+		}
+
+		ByteBuffer chunk = allocateChunk(width);
+		List<Path> runs = new ArrayList<Path>();
+		long total = 0;
+
+		try {
+			int count;
+			while ((count = readChunk(in, chunk, width)) > 0) {
+				total += count;
+				T[] records = (T[]) new Comparable<?>[count];
+				for (int i = 0; i < count; i++) {
+					records[i] = codec.decode(chunk);
+				}
+				sorting.mergesort(records);
+
+				if (runs.isEmpty() && isExhausted(chunk)) {
+					ByteBuffer sorted = ByteBuffer.allocate(count * width);
+					for (T record : records) {
+						codec.encode(record, sorted);
+					}
+					sorted.flip();
+					writeFully(out, sorted);
+					return total;
+				}
+
+				MappedByteBuffer run = createRun(runs, (long) count * width);
+				for (T record : records) {
+					codec.encode(record, run);
+				}
+			}
+
+			mergeRuns(runs, width, out, new SourcesFactory() {
+				@Override
+				public MergeSources create(RunReader[] readers) {
+					final T[] heads = (T[]) new Comparable<?>[readers.length];
+					return new MergeSources(readers) {
+						@Override
+						public int compareHeads(int first, int second) {
+							return head(first).compareTo(head(second));
+						}
+
+						/**
+						 * Returns the decoded head of a source, decoding it
+						 * only on first use.
+						 */
+						private T head(int source) {
+							if (heads[source] == null) {
+								ByteBuffer window = readers[source].window;
+								int position = window.position();
+								heads[source] = codec.decode(window);
+								window.position(position);
+							}
+
+							return heads[source];
+						}
+
+						@Override
+						void advanced(int source) {
+							heads[source] = null;
+						}
+					};
+				}
+			});
+		} finally {
+			deleteRuns(runs);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Allocates the buffer input chunks are read into. Roughly a third of
+	 * the memory budget goes to the encoded chunk, leaving the rest for the
+	 * decoded records and the in-memory sort's scratch space. Chunks are
+	 * never smaller than MIN_WINDOW_SIZE, so a tiny budget cannot produce an
+	 * unbounded number of run files and mappings.
+	 *
+	 * @param width The width of a record
+	 * @return A buffer holding a whole number of records
+	 */
+	private ByteBuffer allocateChunk(int width) {
+		long records = Math.max(1, Math.max(MIN_WINDOW_SIZE, memoryLimit / 3) / width);
+		records = Math.min(records, Integer.MAX_VALUE / width);
+		return ByteBuffer.allocate((int) records * width);
+	}
+
+	/**
+	 * Fills the chunk buffer from a channel, stopping early only at the end
+	 * of the stream.
+	 *
+	 * @param in The channel to read from
+	 * @param chunk The buffer to fill; it is left flipped for reading
+	 * @param width The width of a record
+	 * @return The number of whole records read
+	 * @throws IOException if reading fails or the stream ends mid-record
+	 */
+	private int readChunk(ReadableByteChannel in, ByteBuffer chunk, int width) throws IOException {
+		chunk.clear();
+		while (chunk.hasRemaining() && in.read(chunk) >= 0) {
+			// Keep reading until the chunk is full or the stream ends
+		}
+
+		chunk.flip();
+		if (chunk.remaining() % width != 0) {
+			throw new IOException("Input ends with a partial record!");
+		}
+
+		return chunk.remaining() / width;
+	}
+
+	/**
+	 * Returns whether the stream ended inside the chunk just read, which
+	 * happens exactly when the chunk was not filled.
+	 *
+	 * @param chunk The buffer the chunk was read into
+	 * @return true if there is no more input
+	 */
+	private boolean isExhausted(ByteBuffer chunk) {
+		return chunk.limit() < chunk.capacity();
+	}
+
+	/**
+	 * Creates a new run file of the given size and maps it for writing.
+	 *
+	 * @param runs The list of runs to record the new file in
+	 * @param size The size of the run in bytes
+	 * @return A writable mapping of the whole run
+	 * @throws IOException if the file cannot be created or mapped
+	 */
+	private MappedByteBuffer createRun(List<Path> runs, long size) throws IOException {
+		Path path = Files.createTempFile(tempDirectory, "run", ".tmp");
+		runs.add(path);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+	/**
+	 * Merges runs until a single pass can write to the output channel.
+	 *
+	 * @param runs The run files, in input order; replaced as passes complete
+	 * @param width The width of a record
+	 * @param out The channel to write the final merge to
+	 * @param factory Creates the heads comparison for each merge
+	 * @throws IOException if reading, writing or spilling fails
+	 */
+	private void mergeRuns(List<Path> runs, int width, WritableByteChannel out,
+			SourcesFactory factory) throws IOException {
+		if (runs.isEmpty()) {
+			return;
+		}
+
+		long windowBytes = Math.max(MIN_WINDOW_SIZE, memoryLimit / (fanIn + 1));
+		int windowSize = Math.max(width, (int) Math.min(Integer.MAX_VALUE, windowBytes) / width * width);
+
+		while (runs.size() > fanIn) {
+			List<Path> merged = new ArrayList<Path>();
+			for (int i = 0; i < runs.size(); i += fanIn) {
+				List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+				if (group.size() == 1) {
+					merged.add(group.get(0));
+					continue;
+				}
+
+				Path path = Files.createTempFile(tempDirectory, "run", ".tmp");
+				merged.add(path);
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+					mergeGroup(group, width, windowSize, channel, factory);
+				}
+				for (Path run : group) {
+					Files.deleteIfExists(run);
+				}
+			}
+
+			runs.clear();
+			runs.addAll(merged);
+		}
+
+		mergeGroup(runs, width, windowSize, out, factory);
+	}
+
+	/**
+	 * Merges a group of runs into a channel with a LoserTree.
+	 *
+	 * @param group The runs to merge, in input order
+	 * @param width The width of a record
+	 * @param windowSize The number of bytes of each run to map at a time
+	 * @param out The channel to write to
+	 * @param factory Creates the heads comparison for the merge
+	 * @throws IOException if reading or writing fails
+	 */
+	private void mergeGroup(List<Path> group, int width, int windowSize, WritableByteChannel out,
+			SourcesFactory factory) throws IOException {
+		RunReader[] readers = new RunReader[group.size()];
+		try {
+			for (int i = 0; i < readers.length; i++) {
+				readers[i] = new RunReader(group.get(i), width, windowSize);
+			}
+
+			MergeSources sources = factory.create(readers);
+			LoserTree tree = new LoserTree(readers.length, sources);
+			ByteBuffer staging = ByteBuffer.allocate(Math.max(width, OUTPUT_BUFFER_SIZE / width * width));
+			int winner;
+			while ((winner = tree.winner()) >= 0) {
+				if (staging.remaining() < width) {
+					staging.flip();
+					writeFully(out, staging);
+					staging.clear();
+				}
+
+				readers[winner].transferTo(staging);
+				sources.advanced(winner);
+				tree.update();
+			}
+
+			staging.flip();
+			writeFully(out, staging);
+		} finally {
+			for (RunReader reader : readers) {
+				if (reader != null) {
+					reader.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the remaining bytes of a buffer to a channel.
+	 *
+	 * @param out The channel to write to
+	 * @param buffer The bytes to write
+	 * @throws IOException if writing fails
+	 */
+	private void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+	}
+
+	/**
+	 * Deletes any run files which are left over.
+	 *
+	 * @param runs The run files to delete
+	 * @throws IOException if a file cannot be deleted
+	 */
+	private void deleteRuns(List<Path> runs) throws IOException {
+		for (Path run : runs) {
+			Files.deleteIfExists(run);
+		}
+		runs.clear();
+	}
+
+	/**
+	 * Creates the heads comparison for the readers of a single merge.
+	 */
+	private interface SourcesFactory {
+		public MergeSources create(RunReader[] readers);
+	}
+
+	/**
+	 * Exposes the current record of each run to a LoserTree. Subclasses
+	 * decide how two records compare.
+	 */
+	private abstract static class MergeSources implements LoserTree.Heads {
+		protected final RunReader[] readers;
+
+		MergeSources(RunReader[] readers) {
+			this.readers = readers;
+		}
+
+		@Override
+		public boolean hasHead(int source) {
+			return readers[source].window != null;
+		}
+
+		/**
+		 * Called after a source has moved on to its next record.
+		 *
+		 * @param source The index of the source
+		 */
+		void advanced(int source) {
+			// Primitive heads are read straight from the mapped window
+		}
+	}
+
+	/**
+	 * Reads the records of a run file through a sliding read-only mapping.
+	 * The window's position is always at the current record, and window is
+	 * null once the run is exhausted.
+	 */
+	private static class RunReader implements Closeable {
+		private final FileChannel channel;
+		private final long size;
+		private final int width;
+		private final int windowSize;
+		private long windowStart = 0;
+		MappedByteBuffer window;
+
+		RunReader(Path path, int width, int windowSize) throws IOException {
+			this.channel = FileChannel.open(path, StandardOpenOption.READ);
+			this.size = channel.size();
+			this.width = width;
+			this.windowSize = windowSize;
+			mapWindow();
+		}
+
+		/**
+		 * Copies the current record to a buffer and advances to the next.
+		 *
+		 * @param out The buffer to copy the record to
+		 * @throws IOException if the next window cannot be mapped
+		 */
+		void transferTo(ByteBuffer out) throws IOException {
+			int position = window.position();
+			window.limit(position + width);
+			out.put(window);
+			window.limit(window.capacity());
+			if (!window.hasRemaining()) {
+				windowStart += window.capacity();
+				mapWindow();
+			}
+		}
+
+		/**
+		 * Maps the window starting at windowStart, or clears it at the end of
+		 * the run.
+		 *
+		 * @throws IOException if the window cannot be mapped
+		 */
+		private void mapWindow() throws IOException {
+			if (windowStart >= size) {
+				window = null;
+			} else {
+				window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+						Math.min(windowSize, size - windowStart));
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			window = null;
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,455 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The KWayMerge class lazily merges k sorted sources into one sorted
+ * sequence. The current element of every source sits in a LoserTree, so
+ * each element costs about log k comparisons, and nothing is read from a
+ * source until the merge needs it. The merge can be consumed as an
+ * Iterator or turned into a Stream which is never materialized:
+ *
+ *		KWayMerge.of(shards).stream().filter(...).forEach(...)
+ *
+ * Elements which compare equal come out in source order, so merging the
+ * sorted pieces of a stable sort keeps it stable. A distinct merge returns
+ * only the first of each run of equal elements, which is the one from the
+ * lowest source index.
+ *
+ * Each source must already be sorted by the merge's order; a source which
+ * is not is merged in whatever order it yields.
+ *
+ * @param <T> The type of element being merged
+ */
+public class KWayMerge<T> implements Iterator<T> {
+	private final List<Iterator<? extends T>> sources;
+	private final Comparator<? super T> order;
+	private final boolean distinct;
+	private final Object[] heads;
+	private final boolean[] hasHeads;
+	private final LoserTree tree;
+	private int source = -1;
+
+	/**
+	 * Constructs a new KWayMerge of sources sorted by their natural order.
+	 *
+	 * @param sources The sorted sources
+	 * @return The merge
+	 */
+	public static <T extends Comparable<? super T>> KWayMerge<T> of(
+			List<? extends Iterator<? extends T>> sources) {
+		return new KWayMerge<T>(sources, null, false);
+	}
+
+	/**
+	 * Constructs a new KWayMerge of sorted arrays, in their natural order.
+	 *
+	 * @param arrays The sorted arrays
+	 * @return The merge
+	 */
+	@SafeVarargs
+	public static <T extends Comparable<? super T>> KWayMerge<T> of(T[]... arrays) {
+		List<Iterator<T>> sources = new ArrayList<Iterator<T>>(arrays.length);
+		for (T[] arr : arrays) {
+			sources.add(Arrays.asList(arr).iterator());
+		}
+
+		return new KWayMerge<T>(sources, null, false);
+	}
+
+	/**
+	 * Constructs a new KWayMerge.
+	 *
+	 * @param sources The sorted sources
+	 * @param order The order the sources are sorted by, or null for their natural order
+	 * @param distinct true to drop elements which compare equal to the one before
+	 */
+	public KWayMerge(List<? extends Iterator<? extends T>> sources, Comparator<? super T> order,
+			boolean distinct) {
+		if (sources == null) {
+			throw new IllegalArgumentException("Sources cannot be null!");
+		}
+
+		this.sources = new ArrayList<Iterator<? extends T>>(sources);
+		this.order = order;
+		this.distinct = distinct;
+		this.heads = new Object[sources.size()];
+		this.hasHeads = new boolean[sources.size()];
+		for (int i = 0; i < heads.length; i++) {
+			if (this.sources.get(i) == null) {
+				throw new IllegalArgumentException("Source cannot be null!");
+			}
+			advance(i);
+		}
+
+		this.tree = heads.length == 0 ? null : new LoserTree(heads.length, new LoserTree.Heads() {
+			@Override
+			public boolean hasHead(int source) {
+				return hasHeads[source];
+			}
+
+			@Override
+			public int compareHeads(int first, int second) {
+				return compare(head(first), head(second));
+			}
+		});
+	}
+
+	@Override
+	public boolean hasNext() {
+		return tree != null && tree.winner() >= 0;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		source = tree.winner();
+		T element = head(source);
+		advance(source);
+		tree.update();
+
+		if (distinct) {
+			// Equal elements are next in line, so skip them before anyone asks
+			int winner;
+			while ((winner = tree.winner()) >= 0 && compare(head(winner), element) == 0) {
+				advance(winner);
+				tree.update();
+			}
+		}
+
+		return element;
+	}
+
+	/**
+	 * Returns which source the element last returned by next came from.
+	 *
+	 * @return The index of the source, or -1 if next has not been called
+	 */
+	public int source() {
+		return source;
+	}
+
+	/**
+	 * Returns the rest of the merge as a sorted, ordered Spliterator.
+	 *
+	 * @return A Spliterator which draws from this merge
+	 */
+	public Spliterator<T> spliterator() {
+		int characteristics = Spliterator.ORDERED | Spliterator.SORTED
+				| (distinct ? Spliterator.DISTINCT : 0);
+		return new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, characteristics) {
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
+				if (!hasNext()) {
+					return false;
+				}
+				action.accept(next());
+				return true;
+			}
+
+			@Override
+			public Comparator<? super T> getComparator() {
+				return order;
+			}
+		};
+	}
+
+	/**
+	 * Returns the rest of the merge as a sequential Stream.
+	 *
+	 * @return A Stream which draws from this merge
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Moves a source on to its next element.
+	 *
+	 * @param source The index of the source
+	 */
+	private void advance(int source) {
+		Iterator<? extends T> iterator = sources.get(source);
+		hasHeads[source] = iterator.hasNext();
+		heads[source] = hasHeads[source] ? iterator.next() : null;
+	}
+
+	/**
+	 * Returns the current element of a source.
+	 *
+	 * @param source The index of a source which is not exhausted
+	 * @return Its current element
+	 */
+	@SuppressWarnings("unchecked")
+	private T head(int source) {
+		return (T) heads[source];
+	}
+
+	/**
+	 * Compares two elements by the merge's order.
+	 *
+	 * @param a The first element
+	 * @param b The second element
+	 * @return The result of the comparison
+	 */
+	@SuppressWarnings("unchecked")
+	private int compare(T a, T b) {
+		return (order != null) ? order.compare(a, b) : ((Comparable<? super T>) a).compareTo(b);
+	}
+
+	/**
+	 * Lazily merges sorted int sources without boxing.
+	 */
+	public static class OfInt implements PrimitiveIterator.OfInt {
+		private final List<PrimitiveIterator.OfInt> sources;
+		private final boolean distinct;
+		private final int[] heads;
+		private final boolean[] hasHeads;
+		private final LoserTree tree;
+		private int source = -1;
+
+		/**
+		 * Constructs a new merge of sorted int arrays.
+		 *
+		 * @param arrays The sorted arrays
+		 * @return The merge
+		 */
+		public static KWayMerge.OfInt of(int[]... arrays) {
+			List<PrimitiveIterator.OfInt> sources = new ArrayList<PrimitiveIterator.OfInt>(arrays.length);
+			for (int[] arr : arrays) {
+				sources.add(Arrays.stream(arr).iterator());
+			}
+
+			return new KWayMerge.OfInt(sources, false);
+		}
+
+		/**
+		 * Constructs a new merge of ascending int sources.
+		 *
+		 * @param sources The sorted sources
+		 * @param distinct true to drop values equal to the one before
+		 */
+		public OfInt(List<? extends PrimitiveIterator.OfInt> sources, boolean distinct) {
+			if (sources == null) {
+				throw new IllegalArgumentException("Sources cannot be null!");
+			}
+
+			this.sources = new ArrayList<PrimitiveIterator.OfInt>(sources);
+			this.distinct = distinct;
+			this.heads = new int[sources.size()];
+			this.hasHeads = new boolean[sources.size()];
+			for (int i = 0; i < heads.length; i++) {
+				if (this.sources.get(i) == null) {
+					throw new IllegalArgumentException("Source cannot be null!");
+				}
+				advance(i);
+			}
+
+			this.tree = heads.length == 0 ? null : new LoserTree(heads.length, new LoserTree.Heads() {
+				@Override
+				public boolean hasHead(int source) {
+					return hasHeads[source];
+				}
+
+				@Override
+				public int compareHeads(int first, int second) {
+					return Integer.compare(heads[first], heads[second]);
+				}
+			});
+		}
+
+		@Override
+		public boolean hasNext() {
+			return tree != null && tree.winner() >= 0;
+		}
+
+		@Override
+		public int nextInt() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			source = tree.winner();
+			int value = heads[source];
+			advance(source);
+			tree.update();
+
+			if (distinct) {
+				int winner;
+				while ((winner = tree.winner()) >= 0 && heads[winner] == value) {
+					advance(winner);
+					tree.update();
+				}
+			}
+
+			return value;
+		}
+
+		/**
+		 * @see KWayMerge#source()
+		 * @return The index of the source, or -1 if nothing has been returned
+		 */
+		public int source() {
+			return source;
+		}
+
+		/**
+		 * Returns the rest of the merge as a sequential IntStream.
+		 *
+		 * @return An IntStream which draws from this merge
+		 */
+		public IntStream stream() {
+			int characteristics = Spliterator.ORDERED | Spliterator.SORTED
+					| (distinct ? Spliterator.DISTINCT : 0);
+			return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(this, characteristics), false);
+		}
+
+		/**
+		 * Moves a source on to its next value.
+		 *
+		 * @param source The index of the source
+		 */
+		private void advance(int source) {
+			PrimitiveIterator.OfInt iterator = sources.get(source);
+			hasHeads[source] = iterator.hasNext();
+			if (hasHeads[source]) {
+				heads[source] = iterator.nextInt();
+			}
+		}
+	}
+
+	/**
+	 * Lazily merges sorted long sources without boxing.
+	 */
+	public static class OfLong implements PrimitiveIterator.OfLong {
+		private final List<PrimitiveIterator.OfLong> sources;
+		private final boolean distinct;
+		private final long[] heads;
+		private final boolean[] hasHeads;
+		private final LoserTree tree;
+		private int source = -1;
+
+		/**
+		 * Constructs a new merge of sorted long arrays.
+		 *
+		 * @param arrays The sorted arrays
+		 * @return The merge
+		 */
+		public static KWayMerge.OfLong of(long[]... arrays) {
+			List<PrimitiveIterator.OfLong> sources = new ArrayList<PrimitiveIterator.OfLong>(arrays.length);
+			for (long[] arr : arrays) {
+				sources.add(Arrays.stream(arr).iterator());
+			}
+
+			return new KWayMerge.OfLong(sources, false);
+		}
+
+		/**
+		 * Constructs a new merge of ascending long sources.
+		 *
+		 * @param sources The sorted sources
+		 * @param distinct true to drop values equal to the one before
+		 */
+		public OfLong(List<? extends PrimitiveIterator.OfLong> sources, boolean distinct) {
+			if (sources == null) {
+				throw new IllegalArgumentException("Sources cannot be null!");
+			}
+
+			this.sources = new ArrayList<PrimitiveIterator.OfLong>(sources);
+			this.distinct = distinct;
+			this.heads = new long[sources.size()];
+			this.hasHeads = new boolean[sources.size()];
+			for (int i = 0; i < heads.length; i++) {
+				if (this.sources.get(i) == null) {
+					throw new IllegalArgumentException("Source cannot be null!");
+				}
+				advance(i);
+			}
+
+			this.tree = heads.length == 0 ? null : new LoserTree(heads.length, new LoserTree.Heads() {
+				@Override
+				public boolean hasHead(int source) {
+					return hasHeads[source];
+				}
+
+				@Override
+				public int compareHeads(int first, int second) {
+					return Long.compare(heads[first], heads[second]);
+				}
+			});
+		}
+
+		@Override
+		public boolean hasNext() {
+			return tree != null && tree.winner() >= 0;
+		}
+
+		@Override
+		public long nextLong() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			source = tree.winner();
+			long value = heads[source];
+			advance(source);
+			tree.update();
+
+			if (distinct) {
+				int winner;
+				while ((winner = tree.winner()) >= 0 && heads[winner] == value) {
+					advance(winner);
+					tree.update();
+				}
+			}
+
+			return value;
+		}
+
+		/**
+		 * @see KWayMerge#source()
+		 * @return The index of the source, or -1 if nothing has been returned
+		 */
+		public int source() {
+			return source;
+		}
+
+		/**
+		 * Returns the rest of the merge as a sequential LongStream.
+		 *
+		 * @return A LongStream which draws from this merge
+		 */
+		public LongStream stream() {
+			int characteristics = Spliterator.ORDERED | Spliterator.SORTED
+					| (distinct ? Spliterator.DISTINCT : 0);
+			return StreamSupport.longStream(Spliterators.spliteratorUnknownSize(this, characteristics), false);
+		}
+
+		/**
+		 * Moves a source on to its next value.
+		 *
+		 * @param source The index of the source
+		 */
+		private void advance(int source) {
+			PrimitiveIterator.OfLong iterator = sources.get(source);
+			hasHeads[source] = iterator.hasNext();
+			if (hasHeads[source]) {
+				heads[source] = iterator.nextLong();
+			}
+		}
+	}
+}
@@ -0,0 +1,541 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The ParallelRadixSort class implements a multi-threaded byte-wise radix
+ * sort for int[] and long[].
+ *
+ * Large ranges are split on their most significant unsorted byte (MSD) in
+ * three parallel steps: every worker builds a histogram of a disjoint
+ * slice, a prefix sum over all the histograms gives each worker its own
+ * scatter offsets per bucket, and the workers then scatter their slices
+ * through small per-bucket write-combining buffers, so stores to the
+ * destination are made in cache-line sized blocks. The resulting buckets
+ * are independent and are sorted concurrently, recursing on the next byte
+ * while they are still large. Ranges below SEQUENTIAL_THRESHOLD finish
+ * with a sequential LSD radix sort on their remaining bytes. Any byte on
+ * which every key in a range agrees is skipped.
+ *
+ * Values are ordered as signed numbers. Apart from the histograms and
+ * write-combining buffers, a single scratch array the size of the input
+ * is allocated.
+ */
+public class ParallelRadixSort {
+
+	/**
+	 * Ranges smaller than this are sorted by a single thread.
+	 */
+	public static final int SEQUENTIAL_THRESHOLD = 1 << 16;
+
+	/**
+	 * The number of buckets per pass (one byte per digit).
+	 */
+	private static final int RADIX = Sorting.RADIX;
+
+	/**
+	 * Masks a single digit out of a shifted key.
+	 */
+	private static final int RADIX_MASK = RADIX - 1;
+
+	/**
+	 * The smallest slice of a range given to one histogram/scatter worker.
+	 */
+	private static final int MIN_SLICE = 1 << 14;
+
+	/**
+	 * The number of elements buffered per bucket before a scatter worker
+	 * flushes them to the destination: 64 bytes of ints or 128 of longs.
+	 */
+	private static final int COMBINE_SIZE = 16;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructs a new ParallelRadixSort which runs on the common
+	 * ForkJoinPool.
+	 */
+	public ParallelRadixSort() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructs a new ParallelRadixSort which runs on the given pool.
+	 *
+	 * @param pool The pool to sort on
+	 */
+	public ParallelRadixSort(ForkJoinPool pool) {
+		if (pool == null) {
+			throw new IllegalArgumentException("Pool cannot be null!");
+		}
+
+		this.pool = pool;
+	}
+
+	/**
+	 * Returns how many slices a range should be split into for its parallel
+	 * histogram and scatter steps.
+	 *
+	 * @param size The size of the range
+	 * @return The number of slices
+	 */
+	private int sliceCount(int size) {
+		return Math.max(1, Math.min(pool.getParallelism(), size / MIN_SLICE));
+	}
+
+	/**
+	 * Turns per-slice histograms into per-slice scatter offsets, in place.
+	 * Bucket b of slice t starts after every element of a smaller bucket and
+	 * after bucket b of every earlier slice, which keeps the pass stable.
+	 *
+	 * @param counts The histogram of each slice
+	 * @param from The first index of the range being scattered
+	 * @return The start of each bucket, with one extra entry for the end
+	 */
+	private int[] prefixSum(int[][] counts, int from) {
+		int[] bucketStarts = new int[RADIX + 1];
+		int total = from;
+		for (int bucket = 0; bucket < RADIX; bucket++) {
+			bucketStarts[bucket] = total;
+			for (int slice = 0; slice < counts.length; slice++) {
+				int count = counts[slice][bucket];
+				counts[slice][bucket] = total;
+				total += count;
+			}
+		}
+
+		bucketStarts[RADIX] = total;
+		return bucketStarts;
+	}
+
+	/**
+	 * Returns the start of a slice of a range.
+	 *
+	 * @param from The first index of the range
+	 * @param size The size of the range
+	 * @param slices The number of slices
+	 * @param slice The index of the slice
+	 * @return The first index of the slice
+	 */
+	private int sliceStart(int from, int size, int slices, int slice) {
+		return from + (int) ((long) size * slice / slices);
+	}
+
+	/**
+	 * Sorts a int[] in place.
+	 *
+	 * @param arr The array to sort
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public int[] sort(int[] arr) {
+		if (arr.length > 1) {
+			pool.invoke(new IntSortTask(arr, arr, new int[arr.length], 0, arr.length, 24));
+		}
+
+		return arr;
+	}
+
+	/**
+	 * Sorts a range on the bytes at and below shift. The range is in src on
+	 * entry and must end up in target, which is src or dest.
+	 */
+	@SuppressWarnings("serial")
+	private class IntSortTask extends RecursiveAction {
+		private final int[] target;
+		private final int[] src;
+		private final int[] dest;
+		private final int from;
+		private final int to;
+		private final int shift;
+
+		IntSortTask(int[] target, int[] src, int[] dest, int from, int to, int shift) {
+			this.target = target;
+			this.src = src;
+			this.dest = dest;
+			this.from = from;
+			this.to = to;
+			this.shift = shift;
+		}
+
+		@Override
+		protected void compute() {
+			int size = to - from;
+			if (size < SEQUENTIAL_THRESHOLD) {
+				lsd(target, src, dest, from, to, shift);
+				return;
+			}
+
+			final int slices = sliceCount(size);
+			final int[][] counts = new int[slices][RADIX];
+			List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(slices);
+			for (int slice = 0; slice < slices; slice++) {
+				final int sliceFrom = sliceStart(from, size, slices, slice);
+				final int sliceTo = sliceStart(from, size, slices, slice + 1);
+				final int[] count = counts[slice];
+				tasks.add(ForkJoinTask.adapt(new Runnable() {
+					@Override
+					public void run() {
+						for (int i = sliceFrom; i < sliceTo; i++) {
+							count[digit(src[i], shift)]++;
+						}
+					}
+				}));
+			}
+			invokeAll(tasks);
+
+			int first = digit(src[from], shift);
+			int firstTotal = 0;
+			for (int slice = 0; slice < slices; slice++) {
+				firstTotal += counts[slice][first];
+			}
+			if (firstTotal == size) {
+				// Every key has the same digit here, move on to the next byte
+				if (shift > 0) {
+					new IntSortTask(target, src, dest, from, to, shift - 8).compute();
+				} else if (src != target) {
+					System.arraycopy(src, from, target, from, size);
+				}
+				return;
+			}
+
+			int[] bucketStarts = prefixSum(counts, from);
+			tasks.clear();
+			for (int slice = 0; slice < slices; slice++) {
+				final int sliceFrom = sliceStart(from, size, slices, slice);
+				final int sliceTo = sliceStart(from, size, slices, slice + 1);
+				final int[] offsets = counts[slice];
+				tasks.add(ForkJoinTask.adapt(new Runnable() {
+					@Override
+					public void run() {
+						scatter(src, dest, sliceFrom, sliceTo, shift, offsets);
+					}
+				}));
+			}
+			invokeAll(tasks);
+
+			tasks.clear();
+			for (int bucket = 0; bucket < RADIX; bucket++) {
+				int bucketFrom = bucketStarts[bucket];
+				int bucketTo = bucketStarts[bucket + 1];
+				if (bucketTo - bucketFrom < 1) {
+					continue;
+				} else if (shift == 0 || bucketTo - bucketFrom == 1) {
+					// The bucket is fully sorted already
+					if (dest != target) {
+						System.arraycopy(dest, bucketFrom, target, bucketFrom, (bucketTo - bucketFrom));
+					}
+				} else {
+					tasks.add(new IntSortTask(target, dest, src, bucketFrom, bucketTo, shift - 8));
+				}
+			}
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Scatters one slice of a range into dest by the digit at shift,
+	 * staging up to COMBINE_SIZE elements per bucket so that each write to
+	 * dest is a block copy.
+	 *
+	 * @param src The array holding the slice
+	 * @param dest The array to scatter into
+	 * @param from The first index of the slice (inclusive)
+	 * @param to The last index of the slice (exclusive)
+	 * @param shift The position of the digit to scatter by
+	 * @param offsets The next free index of dest for each bucket; updated
+	 */
+	private void scatter(int[] src, int[] dest, int from, int to, int shift, int[] offsets) {
+		int[] buffer = new int[RADIX * COMBINE_SIZE];
+		int[] filled = new int[RADIX];
+		for (int i = from; i < to; i++) {
+			int value = src[i];
+			int bucket = digit(value, shift);
+			int fill = filled[bucket];
+			buffer[(bucket * COMBINE_SIZE) + fill] = value;
+			if (++fill == COMBINE_SIZE) {
+				System.arraycopy(buffer, (bucket * COMBINE_SIZE), dest, offsets[bucket], COMBINE_SIZE);
+				offsets[bucket] += COMBINE_SIZE;
+				fill = 0;
+			}
+			filled[bucket] = fill;
+		}
+
+		for (int bucket = 0; bucket < RADIX; bucket++) {
+			if (filled[bucket] > 0) {
+				System.arraycopy(buffer, (bucket * COMBINE_SIZE), dest, offsets[bucket], filled[bucket]);
+				offsets[bucket] += filled[bucket];
+			}
+		}
+	}
+
+	/**
+	 * Sequentially LSD radix sorts a range on the bytes at and below
+	 * shift, ping-ponging between src and dest and leaving the result in
+	 * target.
+	 *
+	 * @param target The array the sorted range must end up in
+	 * @param src The array holding the range
+	 * @param dest The other buffer
+	 * @param from The first index of the range (inclusive)
+	 * @param to The last index of the range (exclusive)
+	 * @param shift The position of the most significant byte left to sort
+	 */
+	private void lsd(int[] target, int[] src, int[] dest, int from, int to, int shift) {
+		int passes = (shift / 8) + 1;
+		int[] counts = new int[passes * RADIX];
+		for (int i = from; i < to; i++) {
+			int value = src[i];
+			for (int pass = 0; pass < passes; pass++) {
+				counts[(pass * RADIX) + digit(value, pass * 8)]++;
+			}
+		}
+
+		for (int pass = 0; pass < passes; pass++) {
+			int offset = pass * RADIX;
+			if (counts[offset + digit(src[from], pass * 8)] == (to - from)) {
+				continue;
+			}
+
+			int total = from;
+			for (int i = offset; i < (offset + RADIX); i++) {
+				int count = counts[i];
+				counts[i] = total;
+				total += count;
+			}
+
+			for (int i = from; i < to; i++) {
+				dest[counts[offset + digit(src[i], pass * 8)]++] = src[i];
+			}
+
+			int[] temp = src;
+			src = dest;
+			dest = temp;
+		}
+
+		if (src != target) {
+			System.arraycopy(src, from, target, from, (to - from));
+		}
+	}
+
+	/**
+	 * Returns the digit of a value at a bit position, with the sign bit
+	 * flipped so negative values sort first.
+	 *
+	 * @param value The value
+	 * @param shift The position of the digit's lowest bit
+	 * @return The digit, between 0 and RADIX - 1
+	 */
+	private int digit(int value, int shift) {
+		return ((value ^ Integer.MIN_VALUE) >>> shift) & RADIX_MASK;
+	}
+
+	/**
+	 * Sorts a long[] in place.
+	 *
+	 * @param arr The array to sort
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public long[] sort(long[] arr) {
+		if (arr.length > 1) {
+			pool.invoke(new LongSortTask(arr, arr, new long[arr.length], 0, arr.length, 56));
+		}
+
+		return arr;
+	}
+
+	/**
+	 * Sorts a range on the bytes at and below shift. The range is in src on
+	 * entry and must end up in target, which is src or dest.
+	 */
+	@SuppressWarnings("serial")
+	private class LongSortTask extends RecursiveAction {
+		private final long[] target;
+		private final long[] src;
+		private final long[] dest;
+		private final int from;
+		private final int to;
+		private final int shift;
+
+		LongSortTask(long[] target, long[] src, long[] dest, int from, int to, int shift) {
+			this.target = target;
+			this.src = src;
+			this.dest = dest;
+			this.from = from;
+			this.to = to;
+			this.shift = shift;
+		}
+
+		@Override
+		protected void compute() {
+			int size = to - from;
+			if (size < SEQUENTIAL_THRESHOLD) {
+				lsd(target, src, dest, from, to, shift);
+				return;
+			}
+
+			final int slices = sliceCount(size);
+			final int[][] counts = new int[slices][RADIX];
+			List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(slices);
+			for (int slice = 0; slice < slices; slice++) {
+				final int sliceFrom = sliceStart(from, size, slices, slice);
+				final int sliceTo = sliceStart(from, size, slices, slice + 1);
+				final int[] count = counts[slice];
+				tasks.add(ForkJoinTask.adapt(new Runnable() {
+					@Override
+					public void run() {
+						for (int i = sliceFrom; i < sliceTo; i++) {
+							count[digit(src[i], shift)]++;
+						}
+					}
+				}));
+			}
+			invokeAll(tasks);
+
+			int first = digit(src[from], shift);
+			int firstTotal = 0;
+			for (int slice = 0; slice < slices; slice++) {
+				firstTotal += counts[slice][first];
+			}
+			if (firstTotal == size) {
+				// Every key has the same digit here, move on to the next byte
+				if (shift > 0) {
+					new LongSortTask(target, src, dest, from, to, shift - 8).compute();
+				} else if (src != target) {
+					System.arraycopy(src, from, target, from, size);
+				}
+				return;
+			}
+
+			int[] bucketStarts = prefixSum(counts, from);
+			tasks.clear();
+			for (int slice = 0; slice < slices; slice++) {
+				final int sliceFrom = sliceStart(from, size, slices, slice);
+				final int sliceTo = sliceStart(from, size, slices, slice + 1);
+				final int[] offsets = counts[slice];
+				tasks.add(ForkJoinTask.adapt(new Runnable() {
+					@Override
+					public void run() {
+						scatter(src, dest, sliceFrom, sliceTo, shift, offsets);
+					}
+				}));
+			}
+			invokeAll(tasks);
+
+			tasks.clear();
+			for (int bucket = 0; bucket < RADIX; bucket++) {
+				int bucketFrom = bucketStarts[bucket];
+				int bucketTo = bucketStarts[bucket + 1];
+				if (bucketTo - bucketFrom < 1) {
+					continue;
+				} else if (shift == 0 || bucketTo - bucketFrom == 1) {
+					// The bucket is fully sorted already
+					if (dest != target) {
+						System.arraycopy(dest, bucketFrom, target, bucketFrom, (bucketTo - bucketFrom));
+					}
+				} else {
+					tasks.add(new LongSortTask(target, dest, src, bucketFrom, bucketTo, shift - 8));
+				}
+			}
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Scatters one slice of a range into dest by the digit at shift,
+	 * staging up to COMBINE_SIZE elements per bucket so that each write to
+	 * dest is a block copy.
+	 *
+	 * @param src The array holding the slice
+	 * @param dest The array to scatter into
+	 * @param from The first index of the slice (inclusive)
+	 * @param to The last index of the slice (exclusive)
+	 * @param shift The position of the digit to scatter by
+	 * @param offsets The next free index of dest for each bucket; updated
+	 */
+	private void scatter(long[] src, long[] dest, int from, int to, int shift, int[] offsets) {
+		long[] buffer = new long[RADIX * COMBINE_SIZE];
+		int[] filled = new int[RADIX];
+		for (int i = from; i < to; i++) {
+			long value = src[i];
+			int bucket = digit(value, shift);
+			int fill = filled[bucket];
+			buffer[(bucket * COMBINE_SIZE) + fill] = value;
+			if (++fill == COMBINE_SIZE) {
+				System.arraycopy(buffer, (bucket * COMBINE_SIZE), dest, offsets[bucket], COMBINE_SIZE);
+				offsets[bucket] += COMBINE_SIZE;
+				fill = 0;
+			}
+			filled[bucket] = fill;
+		}
+
+		for (int bucket = 0; bucket < RADIX; bucket++) {
+			if (filled[bucket] > 0) {
+				System.arraycopy(buffer, (bucket * COMBINE_SIZE), dest, offsets[bucket], filled[bucket]);
+				offsets[bucket] += filled[bucket];
+			}
+		}
+	}
+
+	/**
+	 * Sequentially LSD radix sorts a range on the bytes at and below
+	 * shift, ping-ponging between src and dest and leaving the result in
+	 * target.
+	 *
+	 * @param target The array the sorted range must end up in
+	 * @param src The array holding the range
+	 * @param dest The other buffer
+	 * @param from The first index of the range (inclusive)
+	 * @param to The last index of the range (exclusive)
+	 * @param shift The position of the most significant byte left to sort
+	 */
+	private void lsd(long[] target, long[] src, long[] dest, int from, int to, int shift) {
+		int passes = (shift / 8) + 1;
+		int[] counts = new int[passes * RADIX];
+		for (int i = from; i < to; i++) {
+			long value = src[i];
+			for (int pass = 0; pass < passes; pass++) {
+				counts[(pass * RADIX) + digit(value, pass * 8)]++;
+			}
+		}
+
+		for (int pass = 0; pass < passes; pass++) {
+			int offset = pass * RADIX;
+			if (counts[offset + digit(src[from], pass * 8)] == (to - from)) {
+				continue;
+			}
+
+			int total = from;
+			for (int i = offset; i < (offset + RADIX); i++) {
+				int count = counts[i];
+				counts[i] = total;
+				total += count;
+			}
+
+			for (int i = from; i < to; i++) {
+				dest[counts[offset + digit(src[i], pass * 8)]++] = src[i];
+			}
+
+			long[] temp = src;
+			src = dest;
+			dest = temp;
+		}
+
+		if (src != target) {
+			System.arraycopy(src, from, target, from, (to - from));
+		}
+	}
+
+	/**
+	 * Returns the digit of a value at a bit position, with the sign bit
+	 * flipped so negative values sort first.
+	 *
+	 * @param value The value
+	 * @param shift The position of the digit's lowest bit
+	 * @return The digit, between 0 and RADIX - 1
+	 */
+	private int digit(long value, int shift) {
+		return (int) (((value ^ Long.MIN_VALUE) >>> shift) & RADIX_MASK);
+	}
+}
@@ -0,0 +1,35 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Converts records to and from a fixed-width binary form, so they can be
+ * spilled to and merged from files by ExternalSort.
+ *
+ * @param <T> The type of record
+ */
+public interface RecordCodec<T> {
+
+	/**
+	 * Returns the number of bytes every encoded record occupies.
+	 *
+	 * @return The width of an encoded record
+	 */
+	public int width();
+
+	/**
+	 * Writes a record at the buffer's position, advancing it by exactly
+	 * width() bytes.
+	 *
+	 * @param record The record to encode
+	 * @param buffer The buffer to write to
+	 */
+	public void encode(T record, ByteBuffer buffer);
+
+	/**
+	 * Reads a record at the buffer's position, advancing it by exactly
+	 * width() bytes.
+	 *
+	 * @param buffer The buffer to read from
+	 * @return The decoded record
+	 */
+	public T decode(ByteBuffer buffer);
+}
@@ -0,0 +1,434 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * The RecordSort class sorts tables of fixed-width binary records which
+ * live in a ByteBuffer, such as a direct buffer or a MappedByteBuffer,
+ * without decoding them into objects.
+ *
+ * Every record is recordWidth bytes long and is ordered by the keyLength
+ * bytes starting keyOffset bytes into it, compared as unsigned bytes from
+ * first to last (the order of memcmp). Big-endian unsigned integers
+ * therefore sort numerically; signed keys should be stored with their sign
+ * bit flipped.
+ *
+ * Both modes are most-significant-byte-first radix sorts, so a key byte is
+ * only ever examined while it can still tell records apart and buckets
+ * shrink towards insertion sort quickly:
+ *
+ *		sort          permutes the records in place, American flag style,
+ *		              using two records of scratch. It is not stable.
+ *		sortOffsets   leaves the records alone and returns their byte
+ *		              offsets in key order. It is stable.
+ *
+ * A ByteBuffer holds at most 2 GB, so a larger table is mapped as several
+ * buffers. Each is sorted on its own, and merge then writes the sorted
+ * pieces out to a channel as one sorted table.
+ */
+public class RecordSort {
+
+	/**
+	 * The size of the buffer merged records are staged in before being
+	 * written to the output channel.
+	 */
+	private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+	private final int recordWidth;
+	private final int keyOffset;
+	private final int keyLength;
+
+	/**
+	 * Constructs a new RecordSort for a record layout.
+	 *
+	 * @param recordWidth The number of bytes in every record
+	 * @param keyOffset The offset of the key within a record
+	 * @param keyLength The number of bytes in the key
+	 */
+	public RecordSort(int recordWidth, int keyOffset, int keyLength) {
+		if (recordWidth <= 0) {
+			throw new IllegalArgumentException("Record width must be positive!");
+		} else if (keyOffset < 0 || keyLength <= 0 || keyLength > (recordWidth - keyOffset)) {
+			throw new IllegalArgumentException("Key does not fit inside the record!");
+		}
+
+		this.recordWidth = recordWidth;
+		this.keyOffset = keyOffset;
+		this.keyLength = keyLength;
+	}
+
+	/**
+	 * Sorts the records between a buffer's position and limit in place.
+	 * The buffer's position and limit are left unchanged.
+	 *
+	 * @param records The buffer holding the records
+	 * @return The buffer that was passed in
+	 */
+	public ByteBuffer sort(ByteBuffer records) {
+		int count = count(records);
+		if (count > 1) {
+			new InPlace(records).sort(records.position(), count, 0);
+		}
+
+		return records;
+	}
+
+	/**
+	 * Returns the byte offsets of the records between a buffer's position
+	 * and limit in key order, leaving the buffer untouched. Records with
+	 * equal keys keep their original order.
+	 *
+	 * @param records The buffer holding the records
+	 * @return The absolute offset of every record, ordered by key
+	 */
+	public int[] sortOffsets(ByteBuffer records) {
+		int count = count(records);
+		int[] offsets = new int[count];
+		for (int i = 0; i < count; i++) {
+			offsets[i] = records.position() + (i * recordWidth);
+		}
+
+		if (count > 1) {
+			sortOffsets(records, offsets, new int[count], 0, count, 0);
+		}
+
+		return offsets;
+	}
+
+	/**
+	 * Merges tables which are each already in key order, such as the pieces
+	 * of a large table after sort, and writes the records to a channel in
+	 * key order. Records with equal keys are written in the order of their
+	 * pieces. The pieces' positions and limits are left unchanged.
+	 *
+	 * @param pieces The buffers holding the sorted tables, each between its
+	 *        position and limit
+	 * @param out The channel to write the merged records to
+	 * @return The number of records written
+	 * @throws IOException if writing fails
+	 */
+	public long merge(List<ByteBuffer> pieces, WritableByteChannel out) throws IOException {
+		if (pieces == null || pieces.isEmpty()) {
+			throw new IllegalArgumentException("There must be at least one piece!");
+		} else if (out == null) {
+			throw new IllegalArgumentException("Output channel cannot be null!");
+		}
+
+		int k = pieces.size();
+		ByteBuffer[] tables = pieces.toArray(new ByteBuffer[0]);
+		// Records are copied out through views, so the pieces themselves
+		// are never disturbed
+		ByteBuffer[] views = new ByteBuffer[k];
+		int[] cursors = new int[k];
+		int[] ends = new int[k];
+		for (int i = 0; i < k; i++) {
+			ByteBuffer piece = tables[i];
+			count(piece);
+			views[i] = piece.duplicate();
+			cursors[i] = piece.position();
+			ends[i] = piece.limit();
+		}
+
+		LoserTree tree = new LoserTree(k, new LoserTree.Heads() {
+			@Override
+			public boolean hasHead(int source) {
+				return cursors[source] < ends[source];
+			}
+
+			@Override
+			public int compareHeads(int first, int second) {
+				for (int i = 0; i < keyLength; i++) {
+					int compare = keyByte(tables[first], cursors[first], i)
+							- keyByte(tables[second], cursors[second], i);
+					if (compare != 0) {
+						return compare;
+					}
+				}
+
+				return 0;
+			}
+		});
+
+		ByteBuffer staging = ByteBuffer.allocate(Math.max(recordWidth, OUTPUT_BUFFER_SIZE / recordWidth * recordWidth));
+		long written = 0;
+		int winner;
+		while ((winner = tree.winner()) >= 0) {
+			if (staging.remaining() < recordWidth) {
+				writeFully(out, staging);
+			}
+
+			ByteBuffer view = views[winner];
+			view.limit(cursors[winner] + recordWidth).position(cursors[winner]);
+			staging.put(view);
+			cursors[winner] += recordWidth;
+			written++;
+			tree.update();
+		}
+		writeFully(out, staging);
+
+		return written;
+	}
+
+	/**
+	 * Writes out and empties a staging buffer.
+	 *
+	 * @param out The channel to write to
+	 * @param staging The buffer of records to write
+	 * @throws IOException if writing fails
+	 */
+	private static void writeFully(WritableByteChannel out, ByteBuffer staging) throws IOException {
+		staging.flip();
+		while (staging.hasRemaining()) {
+			out.write(staging);
+		}
+		staging.clear();
+	}
+
+	/**
+	 * Returns the number of records between a buffer's position and limit.
+	 *
+	 * @param records The buffer holding the records
+	 * @return The number of records
+	 */
+	private int count(ByteBuffer records) {
+		if (records == null) {
+			throw new IllegalArgumentException("Records cannot be null!");
+		} else if ((records.remaining() % recordWidth) != 0) {
+			throw new IllegalArgumentException("Buffer does not hold a whole number of records!");
+		}
+
+		return records.remaining() / recordWidth;
+	}
+
+	/**
+	 * Returns one byte of a record's key.
+	 *
+	 * @param records The buffer holding the record
+	 * @param record The absolute offset of the record
+	 * @param depth The index of the byte within the key
+	 * @return The byte, as an unsigned value
+	 */
+	private int keyByte(ByteBuffer records, int record, int depth) {
+		return records.get(record + keyOffset + depth) & 0xFF;
+	}
+
+	/**
+	 * Compares the keys of two records, starting at a byte both are known
+	 * to share every earlier byte up to.
+	 *
+	 * @param records The buffer holding the records
+	 * @param first The absolute offset of the first record
+	 * @param second The absolute offset of the second record
+	 * @param depth The index of the first key byte to compare
+	 * @return a negative number, zero, or a positive number as the first key
+	 *         is less than, equal to, or greater than the second
+	 */
+	private int compareKeys(ByteBuffer records, int first, int second, int depth) {
+		for (int i = depth; i < keyLength; i++) {
+			int compare = keyByte(records, first, i) - keyByte(records, second, i);
+			if (compare != 0) {
+				return compare;
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Stable sorts offsets[low, high) by key, given that every key in the
+	 * range agrees on the bytes before depth.
+	 *
+	 * @param records The buffer holding the records
+	 * @param offsets The record offsets being sorted
+	 * @param scratch A buffer as long as offsets
+	 * @param low The first index of the range (inclusive)
+	 * @param high The last index of the range (exclusive)
+	 * @param depth The index of the key byte to distribute on
+	 */
+	private void sortOffsets(ByteBuffer records, int[] offsets, int[] scratch,
+			int low, int high, int depth) {
+		while ((high - low) > 1 && depth < keyLength) {
+			if ((high - low) <= Sorting.INSERTION_THRESHOLD) {
+				for (int x = (low + 1); x < high; x++) {
+					int current = offsets[x];
+					int i = (x - 1);
+					while (i >= low && compareKeys(records, current, offsets[i], depth) < 0) {
+						offsets[i + 1] = offsets[i];
+						i--;
+					}
+
+					offsets[i + 1] = current;
+				}
+				return;
+			}
+
+			int[] starts = new int[Sorting.RADIX + 1];
+			for (int i = low; i < high; i++) {
+				starts[keyByte(records, offsets[i], depth) + 1]++;
+			}
+
+			if (starts[keyByte(records, offsets[low], depth) + 1] == (high - low)) {
+				// Every key has the same byte here, so move straight on to the next
+				depth++;
+				continue;
+			}
+
+			for (int i = 1; i <= Sorting.RADIX; i++) {
+				starts[i] += starts[i - 1];
+			}
+
+			int[] next = starts.clone();
+			for (int i = low; i < high; i++) {
+				scratch[low + next[keyByte(records, offsets[i], depth)]++] = offsets[i];
+			}
+			System.arraycopy(scratch, low, offsets, low, (high - low));
+
+			for (int digit = 0; digit < Sorting.RADIX; digit++) {
+				sortOffsets(records, offsets, scratch, (low + starts[digit]),
+						(low + starts[digit + 1]), (depth + 1));
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Sorts records in place by permuting them between buckets, carrying one
+	 * displaced record at a time.
+	 */
+	private class InPlace {
+		private final ByteBuffer records;
+		/**
+		 * A view of the records used for bulk reads and writes, so the
+		 * caller's position and limit are never disturbed.
+		 */
+		private final ByteBuffer view;
+		private byte[] carry = new byte[recordWidth];
+		private byte[] displaced = new byte[recordWidth];
+
+		InPlace(ByteBuffer records) {
+			this.records = records;
+			this.view = records.duplicate();
+			view.clear();
+		}
+
+		/**
+		 * Sorts a range of records, given that every key in the range agrees
+		 * on the bytes before depth.
+		 *
+		 * @param first The absolute offset of the first record
+		 * @param count The number of records in the range
+		 * @param depth The index of the key byte to distribute on
+		 */
+		void sort(int first, int count, int depth) {
+			while (count > 1 && depth < keyLength) {
+				if (count <= Sorting.INSERTION_THRESHOLD) {
+					insertionsort(first, count, depth);
+					return;
+				}
+
+				int[] counts = new int[Sorting.RADIX];
+				for (int i = 0; i < count; i++) {
+					counts[keyByte(records, first + (i * recordWidth), depth)]++;
+				}
+
+				if (counts[keyByte(records, first, depth)] == count) {
+					depth++;
+					continue;
+				}
+
+				// heads[d] is the next unplaced slot of bucket d, tails[d] its end
+				int[] heads = new int[Sorting.RADIX];
+				int[] tails = new int[Sorting.RADIX];
+				int total = 0;
+				for (int digit = 0; digit < Sorting.RADIX; digit++) {
+					heads[digit] = total;
+					total += counts[digit];
+					tails[digit] = total;
+				}
+
+				for (int digit = 0; digit < Sorting.RADIX; digit++) {
+					while (heads[digit] < tails[digit]) {
+						int slot = first + (heads[digit] * recordWidth);
+						int target = keyByte(records, slot, depth);
+						if (target == digit) {
+							heads[digit]++;
+							continue;
+						}
+
+						// Follow the cycle until a record belonging here turns up
+						read(slot, carry);
+						while (target != digit) {
+							int destination = first + (heads[target]++ * recordWidth);
+							int next = keyByte(records, destination, depth);
+							read(destination, displaced);
+							write(destination, carry);
+							byte[] temp = carry;
+							carry = displaced;
+							displaced = temp;
+							target = next;
+						}
+						write(slot, carry);
+						heads[digit]++;
+					}
+				}
+
+				int start = 0;
+				for (int digit = 0; digit < Sorting.RADIX; digit++) {
+					sort(first + (start * recordWidth), counts[digit], (depth + 1));
+					start += counts[digit];
+				}
+				return;
+			}
+		}
+
+		/**
+		 * Insertion sorts a small range of records.
+		 *
+		 * @param first The absolute offset of the first record
+		 * @param count The number of records in the range
+		 * @param depth The index of the first key byte which may differ
+		 */
+		private void insertionsort(int first, int count, int depth) {
+			for (int x = 1; x < count; x++) {
+				int current = first + (x * recordWidth);
+				int i = (x - 1);
+				while (i >= 0 && compareKeys(records, current, first + (i * recordWidth), depth) < 0) {
+					i--;
+				}
+
+				if (i != (x - 1)) {
+					// Shift the larger records up one slot and drop the current one in
+					read(current, carry);
+					for (int j = (x - 1); j > i; j--) {
+						read(first + (j * recordWidth), displaced);
+						write(first + ((j + 1) * recordWidth), displaced);
+					}
+					write(first + ((i + 1) * recordWidth), carry);
+				}
+			}
+		}
+
+		/**
+		 * Copies a record out of the buffer.
+		 *
+		 * @param offset The absolute offset of the record
+		 * @param record The array to copy it into
+		 */
+		private void read(int offset, byte[] record) {
+			view.position(offset);
+			view.get(record);
+		}
+
+		/**
+		 * Copies a record into the buffer.
+		 *
+		 * @param offset The absolute offset of the record
+		 * @param record The array holding it
+		 */
+		private void write(int offset, byte[] record) {
+			view.position(offset);
+			view.put(record);
+		}
+	}
+}
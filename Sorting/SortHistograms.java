@@ -0,0 +1,137 @@
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The SortHistograms class is a SortListener which rolls the SortStats of
+ * every call up into one histogram per algorithm and metric. Histograms
+ * use power-of-two buckets: bucket 0 counts calls which recorded 0, and
+ * bucket b counts calls which recorded a value in [2^(b-1), 2^b). That keeps
+ * each histogram at a fixed 64 counters however many calls are recorded.
+ * A metric which a call did not measure is left out of its histogram, so
+ * it is not mistaken for a 0.
+ *
+ *		SortHistograms histograms = new SortHistograms();
+ *		Sorting sorting = new Sorting(histograms);
+ *		...
+ *		System.out.println(histograms);
+ *
+ * It is safe to share one SortHistograms between many threads.
+ */
+public class SortHistograms implements SortListener {
+
+	/**
+	 * The number of buckets in every histogram.
+	 */
+	public static final int BUCKETS = Long.SIZE;
+
+	private static final int METRICS = SortStats.Metric.values().length;
+
+	/**
+	 * Each algorithm's histograms, METRICS rows of BUCKETS counters each.
+	 */
+	private final Map<String, AtomicLongArray> histograms = new ConcurrentHashMap<String, AtomicLongArray>();
+
+	@Override
+	public void sorted(SortStats stats) {
+		AtomicLongArray counts = histograms.computeIfAbsent(stats.getAlgorithm(),
+				algorithm -> new AtomicLongArray(METRICS * BUCKETS));
+		for (SortStats.Metric metric : SortStats.Metric.values()) {
+			if (stats.isRecorded(metric)) {
+				counts.incrementAndGet((metric.ordinal() * BUCKETS) + bucket(stats.get(metric)));
+			}
+		}
+	}
+
+	/**
+	 * Returns the bucket a value is counted in.
+	 *
+	 * @param value The recorded value
+	 * @return The index of its bucket
+	 */
+	public static int bucket(long value) {
+		return (value <= 0) ? 0 : Math.min(Long.SIZE - Long.numberOfLeadingZeros(value), BUCKETS - 1);
+	}
+
+	/**
+	 * Returns the smallest value counted in a bucket.
+	 *
+	 * @param bucket The index of the bucket
+	 * @return The bucket's lower bound
+	 */
+	public static long lowerBound(int bucket) {
+		return (bucket == 0) ? 0 : (1L << (bucket - 1));
+	}
+
+	/**
+	 * Returns the algorithms which have been recorded so far.
+	 *
+	 * @return The names of the algorithms, in alphabetical order
+	 */
+	public Set<String> algorithms() {
+		return new TreeSet<String>(histograms.keySet());
+	}
+
+	/**
+	 * Returns a snapshot of the histogram of one metric for one algorithm.
+	 *
+	 * @param algorithm The name of the algorithm
+	 * @param metric The metric
+	 * @return The count of every bucket, all zero if the algorithm was never recorded
+	 */
+	public long[] histogram(String algorithm, SortStats.Metric metric) {
+		long[] result = new long[BUCKETS];
+		AtomicLongArray counts = histograms.get(algorithm);
+		if (counts != null) {
+			for (int i = 0; i < BUCKETS; i++) {
+				result[i] = counts.get((metric.ordinal() * BUCKETS) + i);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the number of calls recorded for an algorithm.
+	 *
+	 * @param algorithm The name of the algorithm
+	 * @return The number of calls
+	 */
+	public long calls(String algorithm) {
+		long calls = 0;
+		for (long count : histogram(algorithm, SortStats.Metric.NANOS)) {
+			calls += count;
+		}
+
+		return calls;
+	}
+
+	/**
+	 * Forgets everything recorded so far.
+	 */
+	public void clear() {
+		histograms.clear();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (String algorithm : algorithms()) {
+			builder.append(algorithm).append(" (").append(calls(algorithm)).append(" calls)\n");
+			for (SortStats.Metric metric : SortStats.Metric.values()) {
+				long[] histogram = histogram(algorithm, metric);
+				builder.append("\t").append(metric).append(":");
+				for (int i = 0; i < BUCKETS; i++) {
+					if (histogram[i] != 0) {
+						builder.append(" ").append(lowerBound(i)).append("+=").append(histogram[i]);
+					}
+				}
+				builder.append("\n");
+			}
+		}
+
+		return builder.toString();
+	}
+}
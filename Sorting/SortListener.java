@@ -0,0 +1,14 @@
+/**
+ * Receives the SortStats of every call made to an instrumented Sorting.
+ *
+ * @see Sorting#Sorting(SortListener)
+ */
+public interface SortListener {
+
+	/**
+	 * Called once a sort has returned.
+	 *
+	 * @param stats What the call did
+	 */
+	public void sorted(SortStats stats);
+}
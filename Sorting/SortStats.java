@@ -0,0 +1,229 @@
+import java.util.Set;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The SortStats class records how much work a single call to an
+ * instrumented Sorting did. It is filled in while the sort runs and handed
+ * to the Sorting's SortListener once the call returns.
+ *
+ * What is counted depends on the kind of sort:
+ *
+ *		Comparisons  every compareTo made by the sorts of Comparable objects
+ *		Moves        every element written by those sorts (a swap is two),
+ *		             plus one per element for each radix pass executed
+ *		Depth        the deepest level of recursion reached, the top call being 0
+ *		Radix passes the byte passes executed and skipped by the radix sorts
+ *		Scratch      the bytes of scratch arrays allocated by the call
+ *		Time         the wall time of the call
+ *
+ * The primitive comparison sorts leave their inner loops untouched and do
+ * not count comparisons or moves, and adaptivesort records only radix
+ * passes and time. A metric which was not measured reads as NOT_RECORDED
+ * rather than 0, so it can be told apart from a call which did no such
+ * work. Counters may be updated from several threads at once by the
+ * parallel sorts.
+ *
+ * @see Sorting#Sorting(SortListener)
+ */
+public class SortStats {
+
+	/**
+	 * The quantities recorded for every call.
+	 */
+	public enum Metric {
+		COMPARISONS, MOVES, DEPTH, RADIX_PASSES, SKIPPED_RADIX_PASSES, SCRATCH_BYTES, NANOS
+	}
+
+	/**
+	 * The value read back for a metric which the call did not measure.
+	 */
+	public static final long NOT_RECORDED = -1;
+
+	private final String algorithm;
+	private final int length;
+	private final long start;
+	private final Set<Metric> unrecorded;
+	private final LongAdder comparisons = new LongAdder();
+	private final LongAdder moves = new LongAdder();
+	private final LongAccumulator depth = new LongAccumulator(Math::max, 0);
+	private final LongAdder radixPasses = new LongAdder();
+	private final LongAdder skippedRadixPasses = new LongAdder();
+	private final LongAdder scratchBytes = new LongAdder();
+	private long nanos;
+
+	/**
+	 * Starts recording a call.
+	 *
+	 * @param algorithm The name of the sort being called
+	 * @param length The number of elements being sorted
+	 * @param unrecorded The metrics the sort does not measure
+	 */
+	SortStats(String algorithm, int length, Set<Metric> unrecorded) {
+		this.algorithm = algorithm;
+		this.length = length;
+		this.unrecorded = unrecorded;
+		this.start = System.nanoTime();
+	}
+
+	/**
+	 * Records a single comparison.
+	 */
+	void compared() {
+		comparisons.increment();
+	}
+
+	/**
+	 * Records elements being written.
+	 *
+	 * @param count The number of elements written
+	 */
+	void moved(long count) {
+		moves.add(count);
+	}
+
+	/**
+	 * Records that a level of recursion was reached.
+	 *
+	 * @param level The level, the top call being 0
+	 */
+	void reached(int level) {
+		depth.accumulate(level);
+	}
+
+	/**
+	 * Records a radix pass.
+	 *
+	 * @param skipped true if every key had the same digit and the pass was skipped
+	 */
+	void radixPass(boolean skipped) {
+		if (skipped) {
+			skippedRadixPasses.increment();
+		} else {
+			radixPasses.increment();
+		}
+	}
+
+	/**
+	 * Records a scratch allocation.
+	 *
+	 * @param bytes The size of the allocation
+	 */
+	void allocated(long bytes) {
+		scratchBytes.add(bytes);
+	}
+
+	/**
+	 * Stops the clock once the call has returned.
+	 */
+	void finish() {
+		nanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * @return The name of the sort which was called
+	 */
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * @return The number of elements which were sorted
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return The number of comparisons made, or NOT_RECORDED
+	 */
+	public long getComparisons() {
+		return isRecorded(Metric.COMPARISONS) ? comparisons.sum() : NOT_RECORDED;
+	}
+
+	/**
+	 * @return The number of elements written, or NOT_RECORDED
+	 */
+	public long getMoves() {
+		return isRecorded(Metric.MOVES) ? moves.sum() : NOT_RECORDED;
+	}
+
+	/**
+	 * @return The deepest level of recursion reached, or NOT_RECORDED
+	 */
+	public long getDepth() {
+		return isRecorded(Metric.DEPTH) ? depth.get() : NOT_RECORDED;
+	}
+
+	/**
+	 * @return The number of radix passes executed
+	 */
+	public long getRadixPasses() {
+		return radixPasses.sum();
+	}
+
+	/**
+	 * @return The number of radix passes skipped
+	 */
+	public long getSkippedRadixPasses() {
+		return skippedRadixPasses.sum();
+	}
+
+	/**
+	 * @return The number of bytes of scratch space allocated, or
+	 *         NOT_RECORDED
+	 */
+	public long getScratchBytes() {
+		return isRecorded(Metric.SCRATCH_BYTES) ? scratchBytes.sum() : NOT_RECORDED;
+	}
+
+	/**
+	 * @return The wall time of the call in nanoseconds
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * Returns whether the call measured a metric.
+	 *
+	 * @param metric The metric
+	 * @return false if the metric reads as NOT_RECORDED
+	 */
+	public boolean isRecorded(Metric metric) {
+		return !unrecorded.contains(metric);
+	}
+
+	/**
+	 * Returns the value recorded for a metric.
+	 *
+	 * @param metric The metric to look up
+	 * @return The recorded value, or NOT_RECORDED
+	 */
+	public long get(Metric metric) {
+		switch (metric) {
+			case COMPARISONS:
+				return getComparisons();
+			case MOVES:
+				return getMoves();
+			case DEPTH:
+				return getDepth();
+			case RADIX_PASSES:
+				return getRadixPasses();
+			case SKIPPED_RADIX_PASSES:
+				return getSkippedRadixPasses();
+			case SCRATCH_BYTES:
+				return getScratchBytes();
+			default:
+				return getNanos();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return algorithm + "[length=" + length + ", comparisons=" + getComparisons()
+				+ ", moves=" + getMoves() + ", depth=" + getDepth()
+				+ ", radixPasses=" + getRadixPasses() + ", skippedRadixPasses=" + getSkippedRadixPasses()
+				+ ", scratchBytes=" + getScratchBytes() + ", nanos=" + getNanos() + "]";
+	}
+}
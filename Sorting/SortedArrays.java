@@ -0,0 +1,649 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The SortedArrays class implements set operations over sorted arrays, such
+ * as ID lists which have just been sorted. Arrays are treated as sets:
+ * inputs must be in ascending order but may repeat values, and results
+ * never do. Nothing is boxed, and no input is modified except by unique.
+ *
+ *		unique        removes repeated values in place
+ *		union         merges two arrays in one linear pass
+ *		intersection  intersects any number of arrays
+ *		difference    removes the values of one array from another
+ *
+ * When one array is much shorter than the other, intersection and
+ * difference gallop through the longer one instead of scanning it, so
+ * they take O(m log(n / m)) comparisons rather than O(m + n). Intersecting
+ * a thousand IDs with a hundred million costs a few tens of thousands of
+ * comparisons.
+ *
+ * Objects are ordered by compareTo, which must be consistent with the
+ * order the arrays are sorted in.
+ */
+public class SortedArrays {
+
+	/**
+	 * Galloping is used once one array is this many times longer than the
+	 * other.
+	 */
+	public static final int GALLOP_RATIO = 8;
+
+	private SortedArrays() {
+	}
+
+	/**
+	 * Removes repeated values from a sorted int[] in place. The distinct
+	 * values are moved to the front of the array in order, and whatever is
+	 * left after them is unspecified.
+	 *
+	 * @param arr The sorted array
+	 * @return The number of distinct values
+	 */
+	public static int unique(int[] arr) {
+		checkNotNull(arr);
+		if (arr.length == 0) {
+			return 0;
+		}
+
+		int count = 1;
+		for (int i = 1; i < arr.length; i++) {
+			if (arr[i] != arr[count - 1]) {
+				arr[count++] = arr[i];
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the values found in either of two sorted int[]s.
+	 *
+	 * @param a The first sorted array
+	 * @param b The second sorted array
+	 * @return The distinct values of both arrays, in order
+	 */
+	public static int[] union(int[] a, int[] b) {
+		checkNotNull(a);
+		checkNotNull(b);
+		int[] result = new int[a.length + b.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			int next;
+			if (j == b.length || (i < a.length && a[i] <= b[j])) {
+				next = a[i++];
+			} else {
+				next = b[j++];
+			}
+
+			if (count == 0 || result[count - 1] != next) {
+				result[count++] = next;
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Returns the values found in every one of a number of sorted int[]s.
+	 * The sets are intersected smallest first, so the running result only
+	 * ever shrinks and is soon small enough to gallop through the rest.
+	 *
+	 * @param sets The sorted arrays, at least one
+	 * @return The distinct values common to every array, in order
+	 */
+	public static int[] intersection(int[]... sets) {
+		checkSets(sets);
+		int[][] bySize = sets.clone();
+		Arrays.sort(bySize, Comparator.comparingInt(set -> set.length));
+
+		int[] result = bySize[0].clone();
+		result = Arrays.copyOf(result, unique(result));
+		for (int i = 1; i < bySize.length && result.length > 0; i++) {
+			result = intersect(result, bySize[i]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the values of a sorted int[] which are not in another.
+	 *
+	 * @param a The sorted array to take values from
+	 * @param b The sorted array of values to leave out
+	 * @return The distinct values of a which are not in b, in order
+	 */
+	public static int[] difference(int[] a, int[] b) {
+		checkNotNull(a);
+		checkNotNull(b);
+		boolean gallop = ((long) a.length * GALLOP_RATIO) < b.length;
+		int[] result = new int[a.length];
+		int count = 0;
+		int j = 0;
+		for (int i = 0; i < a.length; i++) {
+			if (i > 0 && a[i] == a[i - 1]) {
+				continue;
+			}
+
+			if (gallop) {
+				j = gallop(b, j, a[i]);
+			} else {
+				while (j < b.length && b[j] < a[i]) {
+					j++;
+				}
+			}
+
+			if (j == b.length || b[j] != a[i]) {
+				result[count++] = a[i];
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Intersects two sorted int[]s, the first without repeated values.
+	 * When one is much shorter than the other, each of its values is
+	 * galloped to in the longer one; otherwise the two are merged.
+	 *
+	 * @param a The first sorted array, without repeated values
+	 * @param b The second sorted array
+	 * @return The values common to both arrays, in order
+	 */
+	private static int[] intersect(int[] a, int[] b) {
+		int[] result = new int[a.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		if (((long) a.length * GALLOP_RATIO) < b.length) {
+			for (; i < a.length && j < b.length; i++) {
+				j = gallop(b, j, a[i]);
+				if (j < b.length && b[j] == a[i]) {
+					result[count++] = a[i];
+				}
+			}
+		} else if (((long) b.length * GALLOP_RATIO) < a.length) {
+			for (; j < b.length && i < a.length; j++) {
+				if (j > 0 && b[j] == b[j - 1]) {
+					continue;
+				}
+
+				i = gallop(a, i, b[j]);
+				if (i < a.length && a[i] == b[j]) {
+					result[count++] = a[i++];
+				}
+			}
+		} else {
+			while (i < a.length && j < b.length) {
+				if (a[i] < b[j]) {
+					i++;
+				} else if (b[j] < a[i]) {
+					j++;
+				} else {
+					result[count++] = a[i++];
+					j++;
+				}
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Finds the first index at or after from whose value is not less than
+	 * key in a sorted int[]. The search steps 1, 2, 4, ... elements ahead
+	 * until it passes key and then binary searches the last step, so it
+	 * costs O(log d) comparisons, d being the distance to the result.
+	 *
+	 * @param arr The sorted array to search
+	 * @param from The index to start searching at
+	 * @param key The value to search for
+	 * @return The insertion point of key, no less than from
+	 */
+	private static int gallop(int[] arr, int from, int key) {
+		int low = from;
+		int high = from;
+		int step = 1;
+		while (high < arr.length && arr[high] < key) {
+			low = (high + 1);
+			high = (int) Math.min(((long) high + step), arr.length);
+			step <<= 1;
+		}
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (arr[mid] < key) {
+				low = (mid + 1);
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Removes repeated values from a sorted long[] in place. The distinct
+	 * values are moved to the front of the array in order, and whatever is
+	 * left after them is unspecified.
+	 *
+	 * @param arr The sorted array
+	 * @return The number of distinct values
+	 */
+	public static int unique(long[] arr) {
+		checkNotNull(arr);
+		if (arr.length == 0) {
+			return 0;
+		}
+
+		int count = 1;
+		for (int i = 1; i < arr.length; i++) {
+			if (arr[i] != arr[count - 1]) {
+				arr[count++] = arr[i];
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the values found in either of two sorted long[]s.
+	 *
+	 * @param a The first sorted array
+	 * @param b The second sorted array
+	 * @return The distinct values of both arrays, in order
+	 */
+	public static long[] union(long[] a, long[] b) {
+		checkNotNull(a);
+		checkNotNull(b);
+		long[] result = new long[a.length + b.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			long next;
+			if (j == b.length || (i < a.length && a[i] <= b[j])) {
+				next = a[i++];
+			} else {
+				next = b[j++];
+			}
+
+			if (count == 0 || result[count - 1] != next) {
+				result[count++] = next;
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Returns the values found in every one of a number of sorted long[]s.
+	 * The sets are intersected smallest first, so the running result only
+	 * ever shrinks and is soon small enough to gallop through the rest.
+	 *
+	 * @param sets The sorted arrays, at least one
+	 * @return The distinct values common to every array, in order
+	 */
+	public static long[] intersection(long[]... sets) {
+		checkSets(sets);
+		long[][] bySize = sets.clone();
+		Arrays.sort(bySize, Comparator.comparingInt(set -> set.length));
+
+		long[] result = bySize[0].clone();
+		result = Arrays.copyOf(result, unique(result));
+		for (int i = 1; i < bySize.length && result.length > 0; i++) {
+			result = intersect(result, bySize[i]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the values of a sorted long[] which are not in another.
+	 *
+	 * @param a The sorted array to take values from
+	 * @param b The sorted array of values to leave out
+	 * @return The distinct values of a which are not in b, in order
+	 */
+	public static long[] difference(long[] a, long[] b) {
+		checkNotNull(a);
+		checkNotNull(b);
+		boolean gallop = ((long) a.length * GALLOP_RATIO) < b.length;
+		long[] result = new long[a.length];
+		int count = 0;
+		int j = 0;
+		for (int i = 0; i < a.length; i++) {
+			if (i > 0 && a[i] == a[i - 1]) {
+				continue;
+			}
+
+			if (gallop) {
+				j = gallop(b, j, a[i]);
+			} else {
+				while (j < b.length && b[j] < a[i]) {
+					j++;
+				}
+			}
+
+			if (j == b.length || b[j] != a[i]) {
+				result[count++] = a[i];
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Intersects two sorted long[]s, the first without repeated values.
+	 * When one is much shorter than the other, each of its values is
+	 * galloped to in the longer one; otherwise the two are merged.
+	 *
+	 * @param a The first sorted array, without repeated values
+	 * @param b The second sorted array
+	 * @return The values common to both arrays, in order
+	 */
+	private static long[] intersect(long[] a, long[] b) {
+		long[] result = new long[a.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		if (((long) a.length * GALLOP_RATIO) < b.length) {
+			for (; i < a.length && j < b.length; i++) {
+				j = gallop(b, j, a[i]);
+				if (j < b.length && b[j] == a[i]) {
+					result[count++] = a[i];
+				}
+			}
+		} else if (((long) b.length * GALLOP_RATIO) < a.length) {
+			for (; j < b.length && i < a.length; j++) {
+				if (j > 0 && b[j] == b[j - 1]) {
+					continue;
+				}
+
+				i = gallop(a, i, b[j]);
+				if (i < a.length && a[i] == b[j]) {
+					result[count++] = a[i++];
+				}
+			}
+		} else {
+			while (i < a.length && j < b.length) {
+				if (a[i] < b[j]) {
+					i++;
+				} else if (b[j] < a[i]) {
+					j++;
+				} else {
+					result[count++] = a[i++];
+					j++;
+				}
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Finds the first index at or after from whose value is not less than
+	 * key in a sorted long[]. The search steps 1, 2, 4, ... elements ahead
+	 * until it passes key and then binary searches the last step, so it
+	 * costs O(log d) comparisons, d being the distance to the result.
+	 *
+	 * @param arr The sorted array to search
+	 * @param from The index to start searching at
+	 * @param key The value to search for
+	 * @return The insertion point of key, no less than from
+	 */
+	private static int gallop(long[] arr, int from, long key) {
+		int low = from;
+		int high = from;
+		int step = 1;
+		while (high < arr.length && arr[high] < key) {
+			low = (high + 1);
+			high = (int) Math.min(((long) high + step), arr.length);
+			step <<= 1;
+		}
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (arr[mid] < key) {
+				low = (mid + 1);
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Removes repeated values from a sorted array in place. The distinct
+	 * values are moved to the front of the array in order, and whatever is
+	 * left after them is unspecified.
+	 *
+	 * @param arr The sorted array
+	 * @return The number of distinct values
+	 */
+	public static <T extends Comparable<? super T>> int unique(T[] arr) {
+		checkNotNull(arr);
+		if (arr.length == 0) {
+			return 0;
+		}
+
+		int count = 1;
+		for (int i = 1; i < arr.length; i++) {
+			if (arr[i].compareTo(arr[count - 1]) != 0) {
+				arr[count++] = arr[i];
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the values found in either of two sorted arrays.
+	 *
+	 * @param a The first sorted array
+	 * @param b The second sorted array
+	 * @return The distinct values of both arrays, in order
+	 */
+	public static <T extends Comparable<? super T>> T[] union(T[] a, T[] b) {
+		checkNotNull(a);
+		checkNotNull(b);
+		T[] result = Arrays.copyOf(a, (a.length + b.length));
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			T next;
+			if (j == b.length || (i < a.length && a[i].compareTo(b[j]) <= 0)) {
+				next = a[i++];
+			} else {
+				next = b[j++];
+			}
+
+			if (count == 0 || result[count - 1].compareTo(next) != 0) {
+				result[count++] = next;
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Returns the values found in every one of a number of sorted arrays.
+	 * The sets are intersected smallest first, so the running result only
+	 * ever shrinks and is soon small enough to gallop through the rest.
+	 *
+	 * @param sets The sorted arrays, at least one
+	 * @return The distinct values common to every array, in order
+	 */
+	@SafeVarargs
+	public static <T extends Comparable<? super T>> T[] intersection(T[]... sets) {
+		if (sets == null || sets.length == 0) {
+			throw new IllegalArgumentException("There must be at least one set!");
+		}
+
+		// Copied out element by element, so the varargs array itself is
+		// never passed on
+		List<T[]> bySize = new ArrayList<T[]>(sets.length);
+		for (int i = 0; i < sets.length; i++) {
+			checkNotNull(sets[i]);
+			bySize.add(sets[i]);
+		}
+		bySize.sort(Comparator.comparingInt(set -> set.length));
+
+		T[] result = bySize.get(0).clone();
+		result = Arrays.copyOf(result, unique(result));
+		for (int i = 1; i < bySize.size() && result.length > 0; i++) {
+			result = intersect(result, bySize.get(i));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the values of a sorted array which are not in another.
+	 *
+	 * @param a The sorted array to take values from
+	 * @param b The sorted array of values to leave out
+	 * @return The distinct values of a which are not in b, in order
+	 */
+	public static <T extends Comparable<? super T>> T[] difference(T[] a, T[] b) {
+		checkNotNull(a);
+		checkNotNull(b);
+		boolean gallop = ((long) a.length * GALLOP_RATIO) < b.length;
+		T[] result = Arrays.copyOf(a, a.length);
+		int count = 0;
+		int j = 0;
+		for (int i = 0; i < a.length; i++) {
+			if (i > 0 && a[i].compareTo(a[i - 1]) == 0) {
+				continue;
+			}
+
+			if (gallop) {
+				j = gallop(b, j, a[i]);
+			} else {
+				while (j < b.length && b[j].compareTo(a[i]) < 0) {
+					j++;
+				}
+			}
+
+			if (j == b.length || b[j].compareTo(a[i]) != 0) {
+				result[count++] = a[i];
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Intersects two sorted arrays, the first without repeated values.
+	 * When one is much shorter than the other, each of its values is
+	 * galloped to in the longer one; otherwise the two are merged.
+	 *
+	 * @param a The first sorted array, without repeated values
+	 * @param b The second sorted array
+	 * @return The values common to both arrays, in order
+	 */
+	private static <T extends Comparable<? super T>> T[] intersect(T[] a, T[] b) {
+		T[] result = Arrays.copyOf(a, a.length);
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		if (((long) a.length * GALLOP_RATIO) < b.length) {
+			for (; i < a.length && j < b.length; i++) {
+				j = gallop(b, j, a[i]);
+				if (j < b.length && b[j].compareTo(a[i]) == 0) {
+					result[count++] = a[i];
+				}
+			}
+		} else if (((long) b.length * GALLOP_RATIO) < a.length) {
+			for (; j < b.length && i < a.length; j++) {
+				if (j > 0 && b[j].compareTo(b[j - 1]) == 0) {
+					continue;
+				}
+
+				i = gallop(a, i, b[j]);
+				if (i < a.length && a[i].compareTo(b[j]) == 0) {
+					result[count++] = a[i++];
+				}
+			}
+		} else {
+			while (i < a.length && j < b.length) {
+				int order = a[i].compareTo(b[j]);
+				if (order < 0) {
+					i++;
+				} else if (order > 0) {
+					j++;
+				} else {
+					result[count++] = a[i++];
+					j++;
+				}
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Finds the first index at or after from whose value is not less than
+	 * key in a sorted array. The search steps 1, 2, 4, ... elements ahead
+	 * until it passes key and then binary searches the last step, so it
+	 * costs O(log d) comparisons, d being the distance to the result.
+	 *
+	 * @param arr The sorted array to search
+	 * @param from The index to start searching at
+	 * @param key The value to search for
+	 * @return The insertion point of key, no less than from
+	 */
+	private static <T extends Comparable<? super T>> int gallop(T[] arr, int from, T key) {
+		int low = from;
+		int high = from;
+		int step = 1;
+		while (high < arr.length && arr[high].compareTo(key) < 0) {
+			low = (high + 1);
+			high = (int) Math.min(((long) high + step), arr.length);
+			step <<= 1;
+		}
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (arr[mid].compareTo(key) < 0) {
+				low = (mid + 1);
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Checks that an array is not null.
+	 *
+	 * @param arr The array to check
+	 */
+	private static void checkNotNull(Object arr) {
+		if (arr == null) {
+			throw new IllegalArgumentException("Array cannot be null!");
+		}
+	}
+
+	/**
+	 * Checks that there is at least one set and that none of them is null.
+	 *
+	 * @param sets The sets to check
+	 */
+	private static void checkSets(Object[] sets) {
+		if (sets == null || sets.length == 0) {
+			throw new IllegalArgumentException("There must be at least one set!");
+		}
+
+		for (Object set : sets) {
+			checkNotNull(set);
+		}
+	}
+}
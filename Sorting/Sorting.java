@@ -1,6 +1,16 @@
-import java.util.LinkedList;
-import java.util.Queue;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * The Sorting class implements various sorting methods.
@@ -8,293 +18,4539 @@ import java.util.Random;
  * @author Sean Collins
  */
 public class Sorting implements SortingInterface {
+	
+	/**
+	 * Ranges at or below this size are finished with insertion sort, or with
+	 * a sorting network by the primitive sorts.
+	 */
+	public static final int INSERTION_THRESHOLD = 16;
+	
+	/**
+	 * Ranges at or below this size are not split any further by the
+	 * parallel sorts.
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 13;
+	
+	/**
+	 * The most buckets a parallel sample sort divides an array into. Bucket
+	 * numbers are recorded in a byte per element.
+	 */
+	private static final int MAX_SAMPLESORT_BUCKETS = 256;
+	
+	/**
+	 * The number of samples taken per bucket when choosing the splitters of
+	 * a parallel sample sort.
+	 */
+	private static final int OVERSAMPLING = 16;
+	
+	/**
+	 * The number of buckets used by each radix sort pass (one byte per digit).
+	 */
+	public static final int RADIX = 256;
+	
+	/**
+	 * Masks a single radix digit out of a shifted key.
+	 */
+	private static final int RADIX_MASK = RADIX - 1;
+	
+	/**
+	 * The number of leading characters of a String key packed into the
+	 * long prefix used by stringKeysort.
+	 */
+	public static final int KEY_PREFIX_CHARS = Long.SIZE / Character.SIZE;
 
+	/**
+	 * The size of an object reference, used to estimate the scratch space
+	 * taken by arrays of objects (this assumes compressed references).
+	 */
+	private static final int REFERENCE_BYTES = Integer.BYTES;
+	
+	/**
+	 * The metrics left unmeasured by the primitive comparison sorts, whose
+	 * inner loops are not instrumented.
+	 */
+	private static final Set<SortStats.Metric> UNCOUNTED = Collections.unmodifiableSet(
+			EnumSet.of(SortStats.Metric.COMPARISONS, SortStats.Metric.MOVES));
+	
+	/**
+	 * The metrics left unmeasured by adaptivesort, which runs outside this
+	 * class.
+	 */
+	private static final Set<SortStats.Metric> TIMED_ONLY = Collections.unmodifiableSet(
+			EnumSet.of(SortStats.Metric.COMPARISONS, SortStats.Metric.MOVES, 
+					SortStats.Metric.DEPTH, SortStats.Metric.SCRATCH_BYTES));
+	
+	/**
+	 * A sorting network for every range size up to INSERTION_THRESHOLD.
+	 * NETWORKS[n] holds the comparators for n elements as consecutive pairs
+	 * of offsets, the lower offset first.
+	 */
+	private static final int[][] NETWORKS = new int[INSERTION_THRESHOLD + 1][];
+	
+	static {
+		for (int n = 0; n <= INSERTION_THRESHOLD; n++) {
+			NETWORKS[n] = sortingNetwork(n);
+		}
+	}
+	
+	/**
+	 * Receives the stats of every call, or null if this Sorting is not
+	 * instrumented.
+	 */
+	private final SortListener listener;
+	
+	/**
+	 * The stats of the call being recorded, or null. Every counting site
+	 * checks this field first, so an uninstrumented Sorting does no work
+	 * beyond that check.
+	 */
+	private SortStats stats;
+	
+	/**
+	 * Constructs a new Sorting which records nothing.
+	 */
+	public Sorting() {
+		this(null);
+	}
+	
+	/**
+	 * Constructs a new Sorting which records a SortStats for every call and
+	 * passes it to a listener once the call returns. An instrumented Sorting
+	 * records one call at a time, so it must not be shared between threads
+	 * which sort concurrently; its own parallel sorts are recorded correctly.
+	 * 
+	 * @param listener Receives the stats of every call, or null to record nothing
+	 */
+	public Sorting(SortListener listener) {
+		this.listener = listener;
+	}
+	
+	/**
+	 * Starts recording a call if this Sorting is instrumented.
+	 * 
+	 * @param algorithm The name of the sort being called
+	 * @param length The number of elements being sorted
+	 * @return The stats of the call, or null if nothing is recorded
+	 */
+	private SortStats begin(String algorithm, int length) {
+		return begin(algorithm, length, Collections.<SortStats.Metric>emptySet());
+	}
+	
+	/**
+	 * Starts recording a call which does not measure some metrics, so they
+	 * read as SortStats.NOT_RECORDED rather than 0.
+	 * 
+	 * @param algorithm The name of the sort being called
+	 * @param length The number of elements being sorted
+	 * @param unrecorded The metrics the sort does not measure
+	 * @return The stats of the call, or null if nothing is recorded
+	 */
+	private SortStats begin(String algorithm, int length, Set<SortStats.Metric> unrecorded) {
+		if (listener == null) {
+			return null;
+		}
+		
+		stats = new SortStats(algorithm, length, unrecorded);
+		return stats;
+	}
+	
+	/**
+	 * Finishes recording a call and passes its stats to the listener.
+	 * 
+	 * @param call The stats returned by begin, or null
+	 */
+	private void end(SortStats call) {
+		if (call != null) {
+			call.finish();
+			stats = null;
+			listener.sorted(call);
+		}
+	}
+	
+	/**
+	 * Compares two elements, counting the comparison if a call is being
+	 * recorded.
+	 * 
+	 * @param a The first element
+	 * @param b The second element
+	 * @return The result of a.compareTo(b)
+	 */
+	private <T extends Comparable<? super T>> int compare(T a, T b) {
+		if (stats != null) {
+			stats.compared();
+		}
+		
+		return a.compareTo(b);
+	}
+	
+	/**
+	 * Counts elements being written if a call is being recorded.
+	 * 
+	 * @param count The number of elements written
+	 */
+	private void moved(long count) {
+		if (stats != null) {
+			stats.moved(count);
+		}
+	}
+	
+	/**
+	 * Counts a level of recursion if a call is being recorded.
+	 * 
+	 * @param level The level reached, the top call being 0
+	 */
+	private void reached(int level) {
+		if (stats != null) {
+			stats.reached(level);
+		}
+	}
+	
+	/**
+	 * Counts a scratch allocation if a call is being recorded.
+	 * 
+	 * @param elements The length of the allocated array
+	 * @param elementBytes The size of each element
+	 */
+	private void allocated(int elements, int elementBytes) {
+		if (stats != null) {
+			stats.allocated((long) elements * elementBytes);
+		}
+	}
+	
 	@Override
 	public <T extends Comparable<T>> void bubblesort(T[] arr) {
+		SortStats call = begin("bubblesort", arr.length);
 		T temp;
-		for (int x = 0; x < (arr.length - 1) && !sorted(arr); x++) {
-			for (int i = 0; i < (arr.length - 1); i++) {
-				if (arr[i].compareTo(arr[i + 1]) > 0) {
+		boolean swapped = true;
+		// Everything past the last swap of a pass is already in place
+		for (int end = (arr.length - 1); end > 0 && swapped; end--) {
+			swapped = false;
+			for (int i = 0; i < end; i++) {
+				if (compare(arr[i], arr[i + 1]) > 0) {
 					// Current is greater than next, swap them
 					temp = arr[i];
 					arr[i] = arr[i + 1];
 					arr[i + 1] = temp;
+					moved(2);
+					swapped = true;
 				}
 			}
 		}
+		end(call);
 	}
 
 	@Override
 	public <T extends Comparable<T>> void insertionsort(T[] arr) {
-		for (int x = 1; x < arr.length && !sorted(arr); x++) {
-			if (arr[x].compareTo(arr[x - 1]) < 0) {
-				int i = (x - 1);
-				while (i != 0 && arr[i].compareTo(arr[x]) > 0) {
-					i--;
-				}
-				
-				if (arr[x].compareTo(arr[i]) < 0) {
-					// Insert arr[x] at index i and shift array up
-					insertAndShift(arr, arr[x], i, x);
-				} else {
-					// Insert arr[x] at index (i + 1) and shift array up
-					insertAndShift(arr, arr[x], (i + 1), x);
-				}
-			}	
-		}
-	}
-	
-	/**
-	 * A private helper method which inserts an element at a given index and shifts
-	 * all the elements in front of the index in the array up by one.
-	 * 
-	 * @param arr The array to insert into
-	 * @param insert The element to insert
-	 * @param position The position of the array to insert the element at
-	 * @param max The max index to stop shifting at
-	 */
-	private <T extends Comparable<T>> void insertAndShift(T[] arr, T insert, int position, int max) {
-		if (position <= max) {
-			T temp;
-			temp = arr[position];
-			arr[position] = insert;
-			insertAndShift(arr, temp, (position + 1), max);
-		}
+		SortStats call = begin("insertionsort", arr.length);
+		insertionsort(arr, 0, (arr.length - 1));
+		end(call);
 	}
 
 	@Override
 	public <T extends Comparable<T>> void selectionsort(T[] arr) {
-		T temp, currentSmallest = null;
-		int index = -1;
+		SortStats call = begin("selectionsort", arr.length);
+		T temp;
 		
-		for (int x = 0; x < (arr.length - 1) && !sorted(arr); x++) {
+		for (int x = 0; x < (arr.length - 1); x++) {
+			int index = x;
 			// Choose one element 
 			for (int i = (x + 1); i < arr.length; i++) {
 				// ...and compare to all other elements in array
-				if (currentSmallest == null 
-						|| arr[i].compareTo(currentSmallest) < 0) {
-					currentSmallest = arr[i];
+				if (compare(arr[i], arr[index]) < 0) {
 					index = i;
 				}
 			}
 			
-			if (arr[x].compareTo(currentSmallest) > 0) {
+			if (index != x) {
 				// Current smallest is smaller than current element, swap them
 				temp = arr[x];
-				arr[x] = currentSmallest;
+				arr[x] = arr[index];
 				arr[index] = temp;
+				moved(2);
 			}
-			
-			currentSmallest = null;
 		}
+		end(call);
+	}
+	
+	/**
+	 * Stable sorts an array, taking advantage of any order already present
+	 * in it. Ascending and strictly descending runs are detected and merged
+	 * with galloping, so nearly sorted input is sorted in close to O(n)
+	 * comparisons. Worst case running time is O(n log n).
+	 * 
+	 * @see AdaptiveSort
+	 * @param arr The array to sort
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T extends Comparable<T>> T[] adaptivesort(T[] arr) {
+		SortStats call = begin("adaptivesort", arr.length, TIMED_ONLY);
+		new AdaptiveSort<T>(arr).sort();
+		end(call);
+		return arr;
 	}
 
-	@Override
-	public <T extends Comparable<T>> void quicksort(T[] arr, Random r) {
-		int pivotIndex;
-		T temp;
+	/**
+	 * Stable sorts an array by a key which is computed exactly once per
+	 * element (decorate-sort-undecorate). Use this when computing or
+	 * comparing the natural ordering is expensive, for example when
+	 * compareTo allocates.
+	 * 
+	 * @param arr The array to sort
+	 * @param key Extracts the sort key of an element
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T, K extends Comparable<? super K>> T[] keysort(T[] arr, 
+			Function<? super T, ? extends K> key) {
+		SortStats call = begin("keysort", arr.length);
+		@SuppressWarnings("unchecked")
+		K[] keys = (K[]) new Comparable<?>[arr.length];
+		allocated(arr.length, REFERENCE_BYTES);
+		for (int i = 0; i < arr.length; i++) {
+			keys[i] = key.apply(arr[i]);
+		}
 		
-		if (!sorted(arr)) {
-			 pivotIndex = r.nextInt(arr.length - 1);
-			 int leftIndex = 0;
-			 int rightIndex = (arr.length - 1);
-			 
-			 while (leftIndex < rightIndex) {
-				 while (arr[leftIndex].compareTo(arr[pivotIndex]) < 0) {
-					 leftIndex++;
-				 }
-				 
-				 while (arr[rightIndex].compareTo(arr[pivotIndex]) > 0) {
-					 rightIndex--;
-				 }
-				 
-				 if (leftIndex < rightIndex) {
-					 // Swap values
-					 temp = arr[leftIndex];
-					 arr[leftIndex] = arr[rightIndex];
-					 arr[rightIndex] = temp;
-					 leftIndex++;
-					 rightIndex--;
-				 }
-			 }
-			 
-			 quicksort(arr, r);
-		 }
+		undecorate(arr, sortIndexes(null, keys));
+		end(call);
+		return arr;
 	}
 	
-
-	@SuppressWarnings("unchecked")
-	@Override
-	public <T extends Comparable<T>> T[] mergesort(T[] arr) {
-		T[][] splits = (T[][]) new Comparable[arr.length][1];
-		T[] temp;
-		
-		// Split original array into individual arrays
+	/**
+	 * Stable sorts an array by a String key which is computed exactly once
+	 * per element. The first KEY_PREFIX_CHARS characters of each key are
+	 * packed into a long stored next to it, so most comparisons are a
+	 * single primitive compare and the full strings are only consulted when
+	 * the prefixes tie.
+	 * 
+	 * Any normalization belongs in the extractor. For example, Users can be
+	 * ordered as by User.compareTo without allocating during the sort with:
+	 * 
+	 *		stringKeysort(users, u -> u.getUsername().toLowerCase())
+	 * 
+	 * @param arr The array to sort
+	 * @param key Extracts the sort key of an element
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T> T[] stringKeysort(T[] arr, Function<? super T, String> key) {
+		SortStats call = begin("stringKeysort", arr.length);
+		String[] keys = new String[arr.length];
+		long[] prefixes = new long[arr.length];
+		allocated(arr.length, REFERENCE_BYTES + Long.BYTES);
 		for (int i = 0; i < arr.length; i++) {
-			T[] currentIndex = (T[]) new Comparable[1];
-			currentIndex[0] = arr[i];
-			splits[i] = currentIndex;
-		}
-		
-		// Compare each individual array to each other
-		for (int x = 0; x < (splits.length - 1); x++) {
-			for (int y = 0; y < (splits.length - 1) && splits[y + 1] != null; y++) {
-				if (splits[y][(splits[y].length - 1)].compareTo(splits[y + 1][0]) > 0) {
-					// Next array is less than current array, switch them before combining
-					temp = splits[y];
-					splits[y] = splits[y + 1];
-					splits[y + 1] = temp;
-				}
-
-				T[] newArray = (T[]) new Comparable[splits[y].length + splits[y + 1].length];
-				int newArrayIndex = 0;
-				int firstIndex = 0;
-				int secondIndex = 0;
-				
-				while (firstIndex < splits[y].length && secondIndex < splits[y + 1].length) {
-					if (splits[y][firstIndex].compareTo(splits[y + 1][secondIndex]) < 0) {
-						newArray[newArrayIndex] = splits[y][firstIndex];
-						firstIndex++;
-					} else {
-						newArray[newArrayIndex] = splits[y + 1][secondIndex];
-						secondIndex++;
-					}
-					
-					newArrayIndex++;
-				}
-				
-				if (firstIndex < splits[y].length) {
-					while (newArrayIndex < newArray.length) {
-						newArray[newArrayIndex] = splits[y][firstIndex];
-						firstIndex++;
-						newArrayIndex++;
-					}
-				} else if (secondIndex < splits[y + 1].length) {
-					while (newArrayIndex < newArray.length) {
-						newArray[newArrayIndex] = splits[y + 1][secondIndex];
-						secondIndex++;
-						newArrayIndex++;
-					}
-				}
-				
-				splits[y] = newArray;
-				for (int j = (y + 1); j < (splits.length - 1); j++) {
-					splits[j] = splits[j + 1];
-				}
-				
-				for (int j = 0; j < (splits.length - 1) && splits[j + 1] != null; j++) {
-					if (arrayEquals(splits[j], splits[j + 1])) {
-						splits[j + 1] = null;
-					} 
+			keys[i] = key.apply(arr[i]);
+			prefixes[i] = keyPrefix(keys[i]);
+		}
+		
+		undecorate(arr, sortIndexes(prefixes, keys));
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * Packs the first KEY_PREFIX_CHARS characters of a String into a long,
+	 * padding short strings with zeros. Comparing two prefixes as unsigned
+	 * longs gives the same order as String.compareTo on those characters.
+	 * 
+	 * @param key The String to pack
+	 * @return The packed prefix
+	 */
+	private long keyPrefix(String key) {
+		long prefix = 0;
+		for (int i = 0; i < KEY_PREFIX_CHARS; i++) {
+			prefix = (prefix << Character.SIZE) | ((i < key.length()) ? key.charAt(i) : 0);
+		}
+		
+		return prefix;
+	}
+	
+	/**
+	 * Returns the stable sorted order of a set of decorated keys.
+	 * 
+	 * @param prefixes The packed key prefixes, or null to compare keys only
+	 * @param keys The full keys
+	 * @return The indexes of the keys in sorted order
+	 */
+	private <K extends Comparable<? super K>> int[] sortIndexes(long[] prefixes, K[] keys) {
+		int[] order = new int[keys.length];
+		allocated(order.length, Integer.BYTES);
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		
+		if (order.length > 1) {
+			allocated(order.length, Integer.BYTES);
+			sortIndexes(order.clone(), order, 0, order.length, prefixes, keys, 0);
+		}
+		
+		return order;
+	}
+	
+	/**
+	 * Merge sorts dest[low, high) of an index array by the keys the indexes
+	 * refer to, ping-ponging with src as in mergesort.
+	 * 
+	 * @param src The scratch buffer for this level
+	 * @param dest The buffer which receives the sorted range
+	 * @param low The first index of the range (inclusive)
+	 * @param high The last index of the range (exclusive)
+	 * @param prefixes The packed key prefixes, or null to compare keys only
+	 * @param keys The full keys
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private <K extends Comparable<? super K>> void sortIndexes(int[] src, int[] dest, 
+			int low, int high, long[] prefixes, K[] keys, int level) {
+		reached(level);
+		if ((high - low) <= INSERTION_THRESHOLD) {
+			int moves = 0;
+			for (int x = (low + 1); x < high; x++) {
+				int current = dest[x];
+				int i = (x - 1);
+				while (i >= low && compareKeys(current, dest[i], prefixes, keys) < 0) {
+					dest[i + 1] = dest[i];
+					i--;
 				}
 				
-				
+				dest[i + 1] = current;
+				moves += (x - i);
+			}
+			moved(moves);
+			return;
+		}
+		
+		int mid = (low + high) >>> 1;
+		sortIndexes(dest, src, low, mid, prefixes, keys, (level + 1));
+		sortIndexes(dest, src, mid, high, prefixes, keys, (level + 1));
+		
+		moved(high - low);
+		if (compareKeys(src[mid], src[mid - 1], prefixes, keys) >= 0) {
+			System.arraycopy(src, low, dest, low, (high - low));
+			return;
+		}
+		
+		int firstIndex = low;
+		int secondIndex = mid;
+		for (int i = low; i < high; i++) {
+			if (secondIndex >= high || (firstIndex < mid 
+					&& compareKeys(src[secondIndex], src[firstIndex], prefixes, keys) >= 0)) {
+				dest[i] = src[firstIndex++];
+			} else {
+				dest[i] = src[secondIndex++];
+			}
+		}
+	}
+	
+	/**
+	 * Compares two decorated keys, looking at the full keys only when the
+	 * prefixes tie.
+	 * 
+	 * @param first The index of the first key
+	 * @param second The index of the second key
+	 * @param prefixes The packed key prefixes, or null to compare keys only
+	 * @param keys The full keys
+	 * @return The result of the key comparison
+	 */
+	private <K extends Comparable<? super K>> int compareKeys(int first, int second, 
+			long[] prefixes, K[] keys) {
+		if (stats != null) {
+			stats.compared();
+		}
+		
+		if (prefixes != null) {
+			int result = Long.compareUnsigned(prefixes[first], prefixes[second]);
+			if (result != 0) {
+				return result;
 			}
 		}
 		
-		arr = splits[0];
+		return keys[first].compareTo(keys[second]);
+	}
+	
+	/**
+	 * Rearranges an array into a given order.
+	 * 
+	 * @param arr The array to rearrange
+	 * @param order The original index of the element for each position
+	 * @return the rearranged array (the same instance that was passed in)
+	 */
+	private <T> T[] undecorate(T[] arr, int[] order) {
+		T[] original = arr.clone();
+		allocated(arr.length, REFERENCE_BYTES);
+		moved(arr.length);
+		for (int i = 0; i < order.length; i++) {
+			arr[i] = original[order[i]];
+		}
+		
 		return arr;
 	}
-
-	@SuppressWarnings("unchecked")
-	@Override
-	public int[] radixsort(int[] arr) {
-		if (!sorted(intToInteger(arr))) {
-			int currentPosition = 1;
-			boolean notAtEnd = true;
-
-			Queue<Integer>[] buckets = new LinkedList[10];
-			for (int i = 0; i < buckets.length; i++) {
-				buckets[i] = new LinkedList<Integer>();
+	
+	/**
+	 * Returns the order which would stable sort an array, leaving the array
+	 * itself untouched. Element i of the result is the index in arr of the
+	 * element which belongs at position i, so one argsort can be applied to
+	 * several parallel arrays with permute.
+	 * 
+	 * @see #permute(int[], Object...)
+	 * @param arr The array to sort
+	 * @return The indexes of the elements in sorted order
+	 */
+	public <T extends Comparable<T>> int[] argsort(T[] arr) {
+		SortStats call = begin("argsort", arr.length);
+		int[] order = sortIndexes(null, arr);
+		end(call);
+		
+		return order;
+	}
+	
+	/**
+	 * Returns the order which would sort an array, leaving the array itself
+	 * untouched. The indexes are quicksorted by the elements they refer to,
+	 * which needs no scratch array but does not keep equal elements in their
+	 * original order.
+	 * 
+	 * @see #argsort(Comparable[])
+	 * @param arr The array to sort
+	 * @param r The random object used to select pivots
+	 * @return The indexes of the elements in sorted order
+	 */
+	public <T extends Comparable<T>> int[] argsort(T[] arr, Random r) {
+		SortStats call = begin("argsort(Random)", arr.length);
+		int[] order = new int[arr.length];
+		allocated(order.length, Integer.BYTES);
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		if (order.length > 1) {
+			argQuicksort(arr, order, 0, (order.length - 1), (2 * log2(order.length)), r, 0);
+		}
+		end(call);
+		
+		return order;
+	}
+	
+	/**
+	 * Quicksorts the range [left, right] of an index array by the elements
+	 * the indexes refer to, using a random pivot and a three-way partition.
+	 * Once depthLimit partitions have been spent on a range it is heapsorted
+	 * instead, so bad pivots cannot make the sort quadratic.
+	 * 
+	 * @param arr The elements being ordered
+	 * @param order The indexes to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @param depthLimit The number of partitions left before heapsorting
+	 * @param r The random object used to select pivots
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private <T extends Comparable<T>> void argQuicksort(T[] arr, int[] order, int left, int right,
+			int depthLimit, Random r, int level) {
+		reached(level);
+		while ((right - left) >= INSERTION_THRESHOLD) {
+			if (depthLimit == 0) {
+				argHeapsort(arr, order, left, right);
+				return;
 			}
+			depthLimit--;
 			
-			while (notAtEnd) {
-				notAtEnd = false;
-				
-				for (int i = 0; i < arr.length; i++) {
-					buckets[getValAtPosition(arr[i], currentPosition)]
-							.add(new Integer(arr[i]));
-					if (getValAtPosition(arr[i], currentPosition) > 0) {
-						// Value at currentPosition's place is non-zero, continue
-						notAtEnd = true;
-					}
-				}
-				
-				int index = 0;
-				for (int j = 0; j < buckets.length; j++) {
-					while (!buckets[j].isEmpty()) {
-						arr[index] = buckets[j].remove().intValue();
-						index++;
-					}
+			T pivot = arr[order[r.nextInt(right - left + 1) + left]];
+			int lessIndex = left;
+			int greaterIndex = right;
+			int i = left;
+			while (i <= greaterIndex) {
+				int current = order[i];
+				int result = compare(arr[current], pivot);
+				if (result < 0) {
+					order[i++] = order[lessIndex];
+					order[lessIndex++] = current;
+				} else if (result > 0) {
+					order[i] = order[greaterIndex];
+					order[greaterIndex--] = current;
+				} else {
+					i++;
 				}
-				
-				currentPosition *= 10;
+			}
+			
+			if ((lessIndex - left) < (right - greaterIndex)) {
+				argQuicksort(arr, order, left, (lessIndex - 1), depthLimit, r, (level + 1));
+				left = (greaterIndex + 1);
+			} else {
+				argQuicksort(arr, order, (greaterIndex + 1), right, depthLimit, r, (level + 1));
+				right = (lessIndex - 1);
 			}
 		}
 		
-		return arr;
+		for (int x = (left + 1); x <= right; x++) {
+			int current = order[x];
+			int i = (x - 1);
+			while (i >= left && compare(arr[current], arr[order[i]]) < 0) {
+				order[i + 1] = order[i];
+				i--;
+			}
+			
+			order[i + 1] = current;
+		}
 	}
 	
 	/**
-	 * Returns the value at position's place of some base-10 number.
+	 * Heapsorts the range [left, right] of an index array by the elements
+	 * the indexes refer to, using a max-heap rooted at left.
 	 * 
-	 * @param number The given base-10 number
-	 * @param position The position to return the value from
-	 * @return The value of a digit in number at position
+	 * @param arr The elements being ordered
+	 * @param order The indexes to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
 	 */
-	private int getValAtPosition(int number, int position) {
-		return (number / position) % 10;
+	private <T extends Comparable<T>> void argHeapsort(T[] arr, int[] order, int left, int right) {
+		int size = (right - left + 1);
+		for (int i = (size / 2) - 1; i >= 0; i--) {
+			argSiftDown(arr, order, left, i, size);
+		}
+		
+		for (int end = (size - 1); end > 0; end--) {
+			int temp = order[left];
+			order[left] = order[left + end];
+			order[left + end] = temp;
+			moved(2);
+			argSiftDown(arr, order, left, 0, end);
+		}
 	}
 	
 	/**
-	 * Returns if the array is sorted or not.
+	 * Restores the max-heap property below a node of a heap of indexes
+	 * stored at an offset inside an index array.
 	 * 
-	 * @return true if the array is sorted (ascending); false otherwise
+	 * @param arr The elements being ordered
+	 * @param order The array holding the heap
+	 * @param offset The index of the heap's root
+	 * @param node The heap-relative index of the node to sift down
+	 * @param size The number of indexes in the heap
 	 */
-	private <T extends Comparable<T>> boolean sorted(T[] arr) {
-		boolean result = true;
-		for (int i = 0; i < (arr.length - 1) && result; i++) {
-			if (arr[i].compareTo(arr[i + 1]) > 0) {
-				result = false;
+	private <T extends Comparable<T>> void argSiftDown(T[] arr, int[] order, int offset, int node, int size) {
+		int current = order[offset + node];
+		int moves = 1;
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size 
+					&& compare(arr[order[offset + child + 1]], arr[order[offset + child]]) > 0) {
+				child++;
 			}
+			
+			if (compare(arr[order[offset + child]], arr[current]) <= 0) {
+				break;
+			}
+			
+			order[offset + node] = order[offset + child];
+			node = child;
+			moves++;
 		}
-		return result;
+		
+		order[offset + node] = current;
+		moved(moves);
 	}
 	
 	/**
-	 * Compares the contents of two arrays to check if they are equal.
+	 * Returns the order which would sort an int[], leaving the array itself
+	 * untouched. The keys are radix sorted together with their indexes, so
+	 * the order is stable at no extra cost.
 	 * 
-	 * @param arr1 The first given array to check
-	 * @param arr2 The second given array to check
-	 * @return true of the arrays are equal; false otherwise
+	 * @see #argsort(Comparable[])
+	 * @param arr The array to sort
+	 * @return The indexes of the elements in sorted order
 	 */
-	private <T extends Comparable<T>> boolean arrayEquals(T[] arr1, T[] arr2) {
-		boolean result = true;
-		if (arr1.length != arr2.length) {
-			result = false;
-		}
+	public int[] argsort(int[] arr) {
+		SortStats call = begin("argsort(int[])", arr.length);
+		allocated(arr.length, Integer.BYTES);
+		int[] order = argRadixsort(arr.clone());
+		end(call);
 		
-		for (int i = 0; i < arr1.length && result; i++) {
-			if (!arr1[i].equals(arr2[i])) {
-				result = false;
-			}
+		return order;
+	}
+	
+	/**
+	 * Returns the stable order which would sort a long[], leaving the array
+	 * itself untouched.
+	 * 
+	 * @see #argsort(int[])
+	 * @param arr The array to sort
+	 * @return The indexes of the elements in sorted order
+	 */
+	public int[] argsort(long[] arr) {
+		SortStats call = begin("argsort(long[])", arr.length);
+		allocated(arr.length, Long.BYTES);
+		int[] order = argRadixsort(arr.clone());
+		end(call);
+		
+		return order;
+	}
+	
+	/**
+	 * Returns the stable order which would sort a float[], leaving the array
+	 * itself untouched. Values are ordered as by Float.compare, so -0.0
+	 * comes before 0.0 and NaNs come last.
+	 * 
+	 * @see #argsort(int[])
+	 * @param arr The array to sort
+	 * @return The indexes of the elements in sorted order
+	 */
+	public int[] argsort(float[] arr) {
+		SortStats call = begin("argsort(float[])", arr.length);
+		int[] keys = new int[arr.length];
+		allocated(keys.length, Integer.BYTES);
+		for (int i = 0; i < keys.length; i++) {
+			// Flipping every bit but the sign of a negative float makes its
+			// bits compare as ints the way the floats compare
+			int bits = Float.floatToIntBits(arr[i]);
+			keys[i] = bits ^ ((bits >> 31) & Integer.MAX_VALUE);
 		}
+		int[] order = argRadixsort(keys);
+		end(call);
 		
-		return result;
+		return order;
 	}
-
+	
 	/**
-	 * Converts an int[] to an Integer[] of same length.
+	 * Returns the stable order which would sort a double[], leaving the
+	 * array itself untouched. Values are ordered as by Double.compare.
 	 * 
-	 * @param input The input int[]
-	 * @return The output Integer[]
+	 * @see #argsort(float[])
+	 * @param arr The array to sort
+	 * @return The indexes of the elements in sorted order
 	 */
-	private Integer[] intToInteger(int[] input) {
-		Integer[] output = new Integer[input.length];
-		for (int i = 0; i < input.length; i++) {
-			output[i] = input[i];
+	public int[] argsort(double[] arr) {
+		SortStats call = begin("argsort(double[])", arr.length);
+		long[] keys = new long[arr.length];
+		allocated(keys.length, Long.BYTES);
+		for (int i = 0; i < keys.length; i++) {
+			long bits = Double.doubleToLongBits(arr[i]);
+			keys[i] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
 		}
+		int[] order = argRadixsort(keys);
+		end(call);
 		
-		return output;
+		return order;
 	}
-}
+	
+	/**
+	 * Radix sorts the indexes of a set of keys by key, least significant
+	 * byte first, moving each key along with its index. The keys are left in
+	 * an unspecified order.
+	 * 
+	 * @param keys The keys to sort by
+	 * @return The indexes of the keys in sorted order
+	 */
+	private int[] argRadixsort(int[] keys) {
+		int n = keys.length;
+		int[] counts = new int[Integer.BYTES * RADIX];
+		int[] order = new int[n];
+		allocated(counts.length, Integer.BYTES);
+		allocated(n, Integer.BYTES);
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+			int key = keys[i] ^ Integer.MIN_VALUE;
+			for (int pass = 0; pass < Integer.BYTES; pass++) {
+				counts[(pass * RADIX) + ((key >>> (pass * 8)) & RADIX_MASK)]++;
+			}
+		}
+		
+		int[] srcKeys = keys;
+		int[] srcOrder = order;
+		int[] destKeys = null;
+		int[] destOrder = null;
+		for (int pass = 0; pass < Integer.BYTES; pass++) {
+			int offset = pass * RADIX;
+			int shift = pass * 8;
+			if (n == 0 || skipPass(counts, offset,
+					((srcKeys[0] ^ Integer.MIN_VALUE) >>> shift) & RADIX_MASK, n)) {
+				continue;
+			}
+			
+			if (destKeys == null) {
+				destKeys = new int[n];
+				destOrder = new int[n];
+				allocated(n, (2 * Integer.BYTES));
+			}
+			
+			for (int i = 0; i < n; i++) {
+				int digit = ((srcKeys[i] ^ Integer.MIN_VALUE) >>> shift) & RADIX_MASK;
+				int slot = counts[offset + digit]++;
+				destKeys[slot] = srcKeys[i];
+				destOrder[slot] = srcOrder[i];
+			}
+			
+			int[] temp = srcKeys;
+			srcKeys = destKeys;
+			destKeys = temp;
+			temp = srcOrder;
+			srcOrder = destOrder;
+			destOrder = temp;
+		}
+		
+		return srcOrder;
+	}
+	
+	/**
+	 * Radix sorts the indexes of a set of long keys by key.
+	 * 
+	 * @see #argRadixsort(int[])
+	 * @param keys The keys to sort by
+	 * @return The indexes of the keys in sorted order
+	 */
+	private int[] argRadixsort(long[] keys) {
+		int n = keys.length;
+		int[] counts = new int[Long.BYTES * RADIX];
+		int[] order = new int[n];
+		allocated(counts.length, Integer.BYTES);
+		allocated(n, Integer.BYTES);
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+			long key = keys[i] ^ Long.MIN_VALUE;
+			for (int pass = 0; pass < Long.BYTES; pass++) {
+				counts[(pass * RADIX) + (int) ((key >>> (pass * 8)) & RADIX_MASK)]++;
+			}
+		}
+		
+		long[] srcKeys = keys;
+		int[] srcOrder = order;
+		long[] destKeys = null;
+		int[] destOrder = null;
+		for (int pass = 0; pass < Long.BYTES; pass++) {
+			int offset = pass * RADIX;
+			int shift = pass * 8;
+			if (n == 0 || skipPass(counts, offset,
+					(int) (((srcKeys[0] ^ Long.MIN_VALUE) >>> shift) & RADIX_MASK), n)) {
+				continue;
+			}
+			
+			if (destKeys == null) {
+				destKeys = new long[n];
+				destOrder = new int[n];
+				allocated(n, (Long.BYTES + Integer.BYTES));
+			}
+			
+			for (int i = 0; i < n; i++) {
+				int digit = (int) (((srcKeys[i] ^ Long.MIN_VALUE) >>> shift) & RADIX_MASK);
+				int slot = counts[offset + digit]++;
+				destKeys[slot] = srcKeys[i];
+				destOrder[slot] = srcOrder[i];
+			}
+			
+			long[] tempKeys = srcKeys;
+			srcKeys = destKeys;
+			destKeys = tempKeys;
+			int[] tempOrder = srcOrder;
+			srcOrder = destOrder;
+			destOrder = tempOrder;
+		}
+		
+		return srcOrder;
+	}
+	
+	/**
+	 * Rearranges several parallel arrays in place into the order returned by
+	 * an argsort, so that afterwards element i of each array is the element
+	 * which was at order[i]. Each array is rearranged by following the cycles
+	 * of the permutation, holding a single element aside per cycle, so no
+	 * array is copied. While a column is being rearranged the entries of
+	 * order already visited are marked by complementing them, and they are
+	 * restored before permute returns.
+	 * 
+	 * order and the columns are checked before anything is changed, so if
+	 * order is not a permutation of 0 to n - 1, or a column does not fit,
+	 * permute throws and leaves every array as it was.
+	 * 
+	 * Columns may be int[], long[], float[], double[] or arrays of objects.
+	 * 
+	 *		int[] order = sorting.argsort(usernames);
+	 *		Sorting.permute(order, usernames, names, scores);
+	 * 
+	 * @param order A permutation of the indexes of the columns
+	 * @param columns The arrays to rearrange, all as long as order
+	 */
+	public static void permute(int[] order, Object... columns) {
+		if (order == null) {
+			throw new IllegalArgumentException("Order cannot be null!");
+		}
+		
+		checkPermutation(order);
+		for (Object column : columns) {
+			if (column == null) {
+				throw new IllegalArgumentException("Column cannot be null!");
+			} else if (!(column instanceof int[] || column instanceof long[]
+					|| column instanceof float[] || column instanceof double[]
+					|| column instanceof Object[])) {
+				throw new IllegalArgumentException("Unsupported column type "
+						+ column.getClass().getSimpleName() + "!");
+			} else if (Array.getLength(column) != order.length) {
+				throw new IllegalArgumentException("Column length does not match the order!");
+			}
+		}
+		
+		for (Object column : columns) {
+			if (column instanceof int[]) {
+				permuteColumn(order, (int[]) column);
+			} else if (column instanceof long[]) {
+				permuteColumn(order, (long[]) column);
+			} else if (column instanceof float[]) {
+				permuteColumn(order, (float[]) column);
+			} else if (column instanceof double[]) {
+				permuteColumn(order, (double[]) column);
+			} else {
+				permuteColumn(order, (Object[]) column);
+			}
+			
+			for (int i = 0; i < order.length; i++) {
+				if (order[i] < 0) {
+					order[i] = ~order[i];
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Checks that an order holds every index from 0 to its length - 1 exactly
+	 * once, in O(n) time and without extra space. Each index seen is marked
+	 * by complementing the entry at that index, and every mark is removed
+	 * again before returning or throwing.
+	 * 
+	 * @param order The order to check
+	 */
+	private static void checkPermutation(int[] order) {
+		int n = order.length;
+		for (int i = 0; i < n; i++) {
+			if (order[i] < 0 || order[i] >= n) {
+				throw new IllegalArgumentException("Order holds index " + order[i] 
+						+ ", which is out of bounds!");
+			}
+		}
+		
+		int duplicate = -1;
+		for (int i = 0; i < n && duplicate < 0; i++) {
+			int index = (order[i] < 0) ? ~order[i] : order[i];
+			if (order[index] < 0) {
+				duplicate = index;
+			} else {
+				order[index] = ~order[index];
+			}
+		}
+		
+		for (int i = 0; i < n; i++) {
+			if (order[i] < 0) {
+				order[i] = ~order[i];
+			}
+		}
+		
+		if (duplicate >= 0) {
+			throw new IllegalArgumentException("Order holds index " + duplicate 
+					+ " more than once!");
+		}
+	}
+	
+	/**
+	 * Rearranges a int column by following the cycles of a permutation,
+	 * complementing every entry of order it visits.
+	 * 
+	 * @see #permute(int[], Object...)
+	 * @param order A permutation of the indexes of the column
+	 * @param column The column to rearrange
+	 */
+	private static void permuteColumn(int[] order, int[] column) {
+		for (int start = 0; start < order.length; start++) {
+			if (order[start] < 0 || order[start] == start) {
+				continue;
+			}
+			
+			int held = column[start];
+			int i = start;
+			int next = order[i];
+			while (next != start) {
+				column[i] = column[next];
+				order[i] = ~next;
+				i = next;
+				next = order[i];
+			}
+			column[i] = held;
+			order[i] = ~next;
+		}
+	}
+	
+	/**
+	 * Rearranges a long column by following the cycles of a permutation,
+	 * complementing every entry of order it visits.
+	 * 
+	 * @see #permute(int[], Object...)
+	 * @param order A permutation of the indexes of the column
+	 * @param column The column to rearrange
+	 */
+	private static void permuteColumn(int[] order, long[] column) {
+		for (int start = 0; start < order.length; start++) {
+			if (order[start] < 0 || order[start] == start) {
+				continue;
+			}
+			
+			long held = column[start];
+			int i = start;
+			int next = order[i];
+			while (next != start) {
+				column[i] = column[next];
+				order[i] = ~next;
+				i = next;
+				next = order[i];
+			}
+			column[i] = held;
+			order[i] = ~next;
+		}
+	}
+	
+	/**
+	 * Rearranges a float column by following the cycles of a permutation,
+	 * complementing every entry of order it visits.
+	 * 
+	 * @see #permute(int[], Object...)
+	 * @param order A permutation of the indexes of the column
+	 * @param column The column to rearrange
+	 */
+	private static void permuteColumn(int[] order, float[] column) {
+		for (int start = 0; start < order.length; start++) {
+			if (order[start] < 0 || order[start] == start) {
+				continue;
+			}
+			
+			float held = column[start];
+			int i = start;
+			int next = order[i];
+			while (next != start) {
+				column[i] = column[next];
+				order[i] = ~next;
+				i = next;
+				next = order[i];
+			}
+			column[i] = held;
+			order[i] = ~next;
+		}
+	}
+	
+	/**
+	 * Rearranges a double column by following the cycles of a permutation,
+	 * complementing every entry of order it visits.
+	 * 
+	 * @see #permute(int[], Object...)
+	 * @param order A permutation of the indexes of the column
+	 * @param column The column to rearrange
+	 */
+	private static void permuteColumn(int[] order, double[] column) {
+		for (int start = 0; start < order.length; start++) {
+			if (order[start] < 0 || order[start] == start) {
+				continue;
+			}
+			
+			double held = column[start];
+			int i = start;
+			int next = order[i];
+			while (next != start) {
+				column[i] = column[next];
+				order[i] = ~next;
+				i = next;
+				next = order[i];
+			}
+			column[i] = held;
+			order[i] = ~next;
+		}
+	}
+	
+	/**
+	 * Rearranges a column of objects by following the cycles of a permutation,
+	 * complementing every entry of order it visits.
+	 * 
+	 * @see #permute(int[], Object...)
+	 * @param order A permutation of the indexes of the column
+	 * @param column The column to rearrange
+	 */
+	private static void permuteColumn(int[] order, Object[] column) {
+		for (int start = 0; start < order.length; start++) {
+			if (order[start] < 0 || order[start] == start) {
+				continue;
+			}
+			
+			Object held = column[start];
+			int i = start;
+			int next = order[i];
+			while (next != start) {
+				column[i] = column[next];
+				order[i] = ~next;
+				i = next;
+				next = order[i];
+			}
+			column[i] = held;
+			order[i] = ~next;
+		}
+	}
+
+	@Override
+	public <T extends Comparable<T>> void quicksort(T[] arr, Random r) {
+		SortStats call = begin("quicksort", arr.length);
+		if (arr.length > 1) {
+			introsort(arr, 0, (arr.length - 1), (2 * log2(arr.length)), r, 0);
+		}
+		end(call);
+	}
+	
+	/**
+	 * Introsorts the range [left, right] of an array. Each step partitions
+	 * the range around two random pivots and recurses only into the two
+	 * smaller of the three resulting parts, looping on the largest. Small
+	 * ranges are finished with insertion sort, and once depthLimit
+	 * partitioning steps have been taken the range is heapsorted instead,
+	 * which bounds both the running time at O(n log n) and the stack depth.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @param depthLimit The number of partitioning steps left before heapsort
+	 * @param r The random object used to select pivots
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private <T extends Comparable<T>> void introsort(T[] arr, int left, int right,
+			int depthLimit, Random r, int level) {
+		reached(level);
+		while ((right - left) >= INSERTION_THRESHOLD) {
+			if (depthLimit == 0) {
+				heapsort(arr, left, right);
+				return;
+			}
+			depthLimit--;
+			
+			swap(arr, left, (r.nextInt(right - left + 1) + left));
+			swap(arr, right, (r.nextInt(right - left) + left + 1));
+			if (compare(arr[left], arr[right]) > 0) {
+				swap(arr, left, right);
+			}
+			
+			T pivot1 = arr[left];
+			T pivot2 = arr[right];
+			int less = (left + 1);
+			int great = (right - 1);
+			for (int k = less; k <= great; k++) {
+				if (compare(arr[k], pivot1) < 0) {
+					swap(arr, k, less++);
+				} else if (compare(arr[k], pivot2) > 0) {
+					while (k < great && compare(arr[great], pivot2) > 0) {
+						great--;
+					}
+					swap(arr, k, great--);
+					if (compare(arr[k], pivot1) < 0) {
+						swap(arr, k, less++);
+					}
+				}
+			}
+			
+			// Move the pivots into their final positions
+			swap(arr, left, --less);
+			swap(arr, right, ++great);
+			
+			int middleLeft = (less + 1);
+			int middleRight = (great - 1);
+			if (compare(pivot1, pivot2) == 0) {
+				// Every middle element equals both pivots and is already in place
+				middleRight = middleLeft - 1;
+			} else if ((middleRight - middleLeft) > ((right - left) / 2)) {
+				// A large middle part usually means many keys equal the pivots;
+				// pull those out so they are not partitioned again
+				for (int k = middleLeft; k <= middleRight; k++) {
+					if (compare(arr[k], pivot1) == 0) {
+						swap(arr, k, middleLeft++);
+					} else if (compare(arr[k], pivot2) == 0) {
+						while (k < middleRight && compare(arr[middleRight], pivot2) == 0) {
+							middleRight--;
+						}
+						swap(arr, k, middleRight--);
+						if (compare(arr[k], pivot1) == 0) {
+							swap(arr, k, middleLeft++);
+						}
+					}
+				}
+			}
+			
+			int leftSize = less - left;
+			int middleSize = middleRight - middleLeft + 1;
+			int rightSize = right - great;
+			if (leftSize >= middleSize && leftSize >= rightSize) {
+				introsort(arr, middleLeft, middleRight, depthLimit, r, (level + 1));
+				introsort(arr, (great + 1), right, depthLimit, r, (level + 1));
+				right = (less - 1);
+			} else if (middleSize >= rightSize) {
+				introsort(arr, left, (less - 1), depthLimit, r, (level + 1));
+				introsort(arr, (great + 1), right, depthLimit, r, (level + 1));
+				left = middleLeft;
+				right = middleRight;
+			} else {
+				introsort(arr, left, (less - 1), depthLimit, r, (level + 1));
+				introsort(arr, middleLeft, middleRight, depthLimit, r, (level + 1));
+				left = (great + 1);
+			}
+		}
+		
+		insertionsort(arr, left, right);
+	}
+	
+	/**
+	 * Heapsorts the range [left, right] of an array using a max-heap rooted
+	 * at left.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private <T extends Comparable<T>> void heapsort(T[] arr, int left, int right) {
+		int size = (right - left + 1);
+		for (int i = (size / 2) - 1; i >= 0; i--) {
+			siftDown(arr, left, i, size);
+		}
+		
+		for (int end = (size - 1); end > 0; end--) {
+			swap(arr, left, (left + end));
+			siftDown(arr, left, 0, end);
+		}
+	}
+	
+	/**
+	 * Restores the max-heap property below a node of a heap stored at an
+	 * offset inside an array.
+	 * 
+	 * @param arr The array holding the heap
+	 * @param offset The index of the heap's root
+	 * @param node The heap-relative index of the node to sift down
+	 * @param size The number of elements in the heap
+	 */
+	private <T extends Comparable<T>> void siftDown(T[] arr, int offset, int node, int size) {
+		T current = arr[offset + node];
+		int moves = 1;
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size 
+					&& compare(arr[offset + child + 1], arr[offset + child]) > 0) {
+				child++;
+			}
+			
+			if (compare(arr[offset + child], current) <= 0) {
+				break;
+			}
+			
+			arr[offset + node] = arr[offset + child];
+			node = child;
+			moves++;
+		}
+		
+		arr[offset + node] = current;
+		moved(moves);
+	}
+	
+	/**
+	 * Swaps two elements of an array.
+	 * 
+	 * @param arr The array to swap in
+	 * @param i The index of the first element
+	 * @param j The index of the second element
+	 */
+	private <T> void swap(T[] arr, int i, int j) {
+		T temp = arr[i];
+		arr[i] = arr[j];
+		arr[j] = temp;
+		moved(2);
+	}
+	
+	/**
+	 * Returns the floor of the base-2 logarithm of a positive number.
+	 * 
+	 * @param n The number to take the logarithm of
+	 * @return floor(log2(n))
+	 */
+	private int log2(int n) {
+		return 31 - Integer.numberOfLeadingZeros(n);
+	}
+
+	@Override
+	public <T extends Comparable<T>> T[] mergesort(T[] arr) {
+		SortStats call = begin("mergesort", arr.length);
+		if (arr.length > 1) {
+			allocated(arr.length, REFERENCE_BYTES);
+			mergesort(arr.clone(), arr, 0, arr.length, 0);
+		}
+		end(call);
+		
+		return arr;
+	}
+	
+	/**
+	 * Sorts dest[low, high) by recursively sorting each half into src and
+	 * merging back. On entry both arrays must hold the same elements in the
+	 * range, which lets the two buffers swap roles at every level instead of
+	 * copying.
+	 * 
+	 * @param src The scratch buffer for this level
+	 * @param dest The buffer which receives the sorted range
+	 * @param low The first index of the range (inclusive)
+	 * @param high The last index of the range (exclusive)
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private <T extends Comparable<T>> void mergesort(T[] src, T[] dest, int low, int high, 
+			int level) {
+		reached(level);
+		if ((high - low) <= INSERTION_THRESHOLD) {
+			insertionsort(dest, low, (high - 1));
+			return;
+		}
+		
+		int mid = (low + high) >>> 1;
+		mergesort(dest, src, low, mid, (level + 1));
+		mergesort(dest, src, mid, high, (level + 1));
+		
+		if (compare(src[mid], src[mid - 1]) >= 0) {
+			// Halves are already in order, no need to merge
+			System.arraycopy(src, low, dest, low, (high - low));
+			moved(high - low);
+			return;
+		}
+		
+		merge(src, low, mid, mid, high, dest, low);
+	}
+	
+	/**
+	 * Stable merges the sorted runs src[firstLow, firstHigh) and
+	 * src[secondLow, secondHigh) into dest starting at destIndex. Ties are
+	 * taken from the first run.
+	 * 
+	 * @param src The array holding both runs
+	 * @param firstLow The start of the first run (inclusive)
+	 * @param firstHigh The end of the first run (exclusive)
+	 * @param secondLow The start of the second run (inclusive)
+	 * @param secondHigh The end of the second run (exclusive)
+	 * @param dest The array to merge into
+	 * @param destIndex The index of dest to start writing at
+	 */
+	private <T extends Comparable<T>> void merge(T[] src, int firstLow, int firstHigh,
+			int secondLow, int secondHigh, T[] dest, int destIndex) {
+		moved((firstHigh - firstLow) + (secondHigh - secondLow));
+		while (firstLow < firstHigh && secondLow < secondHigh) {
+			if (compare(src[secondLow], src[firstLow]) < 0) {
+				dest[destIndex++] = src[secondLow++];
+			} else {
+				dest[destIndex++] = src[firstLow++];
+			}
+		}
+		
+		System.arraycopy(src, firstLow, dest, destIndex, (firstHigh - firstLow));
+		destIndex += (firstHigh - firstLow);
+		System.arraycopy(src, secondLow, dest, destIndex, (secondHigh - secondLow));
+	}
+	
+	/**
+	 * Stable merge sorts an array on the common ForkJoinPool.
+	 * 
+	 * @see #parallelMergesort(Comparable[], ForkJoinPool)
+	 * @param arr The array to sort
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T extends Comparable<T>> T[] parallelMergesort(T[] arr) {
+		return parallelMergesort(arr, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Stable merge sorts an array on the given ForkJoinPool. Ranges above
+	 * PARALLEL_THRESHOLD are split and sorted concurrently, and the halves
+	 * are combined with a parallel merge which partitions both runs around
+	 * the median of the larger one using a binary search. Like mergesort,
+	 * only a single scratch copy of the array is allocated.
+	 * 
+	 * @param arr The array to sort
+	 * @param pool The pool to run the sort on
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T extends Comparable<T>> T[] parallelMergesort(T[] arr, ForkJoinPool pool) {
+		SortStats call = begin("parallelMergesort", arr.length);
+		if (arr.length > 1) {
+			allocated(arr.length, REFERENCE_BYTES);
+			if (arr.length <= PARALLEL_THRESHOLD) {
+				mergesort(arr.clone(), arr, 0, arr.length, 0);
+			} else {
+				pool.invoke(new MergesortTask<T>(arr.clone(), arr, 0, arr.length, 0));
+			}
+		}
+		end(call);
+		
+		return arr;
+	}
+	
+	/**
+	 * Sorts dest[low, high) in parallel, following the same buffer
+	 * ping-pong as the sequential mergesort.
+	 */
+	@SuppressWarnings("serial")
+	private class MergesortTask<T extends Comparable<T>> extends RecursiveAction {
+		private final T[] src;
+		private final T[] dest;
+		private final int low;
+		private final int high;
+		private final int level;
+		
+		MergesortTask(T[] src, T[] dest, int low, int high, int level) {
+			this.src = src;
+			this.dest = dest;
+			this.low = low;
+			this.high = high;
+			this.level = level;
+		}
+		
+		@Override
+		protected void compute() {
+			if ((high - low) <= PARALLEL_THRESHOLD) {
+				mergesort(src, dest, low, high, level);
+				return;
+			}
+			
+			reached(level);
+			int mid = (low + high) >>> 1;
+			invokeAll(new MergesortTask<T>(dest, src, low, mid, (level + 1)),
+					new MergesortTask<T>(dest, src, mid, high, (level + 1)));
+			
+			if (compare(src[mid], src[mid - 1]) >= 0) {
+				System.arraycopy(src, low, dest, low, (high - low));
+				moved(high - low);
+			} else {
+				new MergeTask<T>(src, low, mid, mid, high, dest, low).compute();
+			}
+		}
+	}
+	
+	/**
+	 * Merges two sorted runs in parallel. The middle element of the larger
+	 * run is located in the smaller run by binary search, which splits the
+	 * merge into two independent halves around that element's final slot.
+	 */
+	@SuppressWarnings("serial")
+	private class MergeTask<T extends Comparable<T>> extends RecursiveAction {
+		private final T[] src;
+		private final int firstLow;
+		private final int firstHigh;
+		private final int secondLow;
+		private final int secondHigh;
+		private final T[] dest;
+		private final int destIndex;
+		
+		MergeTask(T[] src, int firstLow, int firstHigh, int secondLow, int secondHigh,
+				T[] dest, int destIndex) {
+			this.src = src;
+			this.firstLow = firstLow;
+			this.firstHigh = firstHigh;
+			this.secondLow = secondLow;
+			this.secondHigh = secondHigh;
+			this.dest = dest;
+			this.destIndex = destIndex;
+		}
+		
+		@Override
+		protected void compute() {
+			int firstLength = firstHigh - firstLow;
+			int secondLength = secondHigh - secondLow;
+			if ((firstLength + secondLength) <= PARALLEL_THRESHOLD) {
+				merge(src, firstLow, firstHigh, secondLow, secondHigh, dest, destIndex);
+				return;
+			}
+			
+			int firstSplit;
+			int secondSplit;
+			int pivotIndex;
+			if (firstLength >= secondLength) {
+				// Equal elements of the second run must land after the pivot
+				firstSplit = (firstLow + firstHigh) >>> 1;
+				secondSplit = lowerBound(src, secondLow, secondHigh, src[firstSplit]);
+				pivotIndex = destIndex + (firstSplit - firstLow) + (secondSplit - secondLow);
+				dest[pivotIndex] = src[firstSplit];
+				moved(1);
+				invokeAll(new MergeTask<T>(src, firstLow, firstSplit, secondLow, secondSplit,
+								dest, destIndex),
+						new MergeTask<T>(src, (firstSplit + 1), firstHigh, secondSplit, secondHigh,
+								dest, (pivotIndex + 1)));
+			} else {
+				// Equal elements of the first run must land before the pivot
+				secondSplit = (secondLow + secondHigh) >>> 1;
+				firstSplit = upperBound(src, firstLow, firstHigh, src[secondSplit]);
+				pivotIndex = destIndex + (firstSplit - firstLow) + (secondSplit - secondLow);
+				dest[pivotIndex] = src[secondSplit];
+				moved(1);
+				invokeAll(new MergeTask<T>(src, firstLow, firstSplit, secondLow, secondSplit,
+								dest, destIndex),
+						new MergeTask<T>(src, firstSplit, firstHigh, (secondSplit + 1), secondHigh,
+								dest, (pivotIndex + 1)));
+			}
+		}
+	}
+	
+	/**
+	 * Sorts an array on the common ForkJoinPool with a sample sort.
+	 * 
+	 * @see #parallelSamplesort(Comparable[], ForkJoinPool)
+	 * @param arr The array to sort
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T extends Comparable<T>> T[] parallelSamplesort(T[] arr) {
+		return parallelSamplesort(arr, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Sorts an array on the given ForkJoinPool with a sample sort. A random
+	 * oversample of the array picks splitters which divide it into buckets
+	 * of roughly equal size. Blocks of the array are classified against the
+	 * splitters and scattered into their buckets concurrently, and each
+	 * bucket is then introsorted on its own worker. Unlike parallelMergesort
+	 * there is no final merge, so no single step touches the whole array.
+	 * The sort is not stable.
+	 * 
+	 * @see #parallelStableSamplesort(Comparable[], ForkJoinPool)
+	 * @param arr The array to sort
+	 * @param pool The pool to run the sort on
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T extends Comparable<T>> T[] parallelSamplesort(T[] arr, ForkJoinPool pool) {
+		SortStats call = begin("parallelSamplesort", arr.length);
+		samplesort(arr, pool, false);
+		end(call);
+		
+		return arr;
+	}
+	
+	/**
+	 * Stable sorts an array on the common ForkJoinPool with a sample sort.
+	 * 
+	 * @see #parallelStableSamplesort(Comparable[], ForkJoinPool)
+	 * @param arr The array to sort
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T extends Comparable<T>> T[] parallelStableSamplesort(T[] arr) {
+		return parallelStableSamplesort(arr, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Stable sorts an array on the given ForkJoinPool with a sample sort.
+	 * This works like parallelSamplesort, but the buckets are merge sorted.
+	 * Every element is classified together with its original index, and the
+	 * scatter keeps the elements of each bucket in their original order, so
+	 * equal elements end up in their original order.
+	 * 
+	 * @see #parallelSamplesort(Comparable[], ForkJoinPool)
+	 * @param arr The array to sort
+	 * @param pool The pool to run the sort on
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T extends Comparable<T>> T[] parallelStableSamplesort(T[] arr, ForkJoinPool pool) {
+		SortStats call = begin("parallelStableSamplesort", arr.length);
+		samplesort(arr, pool, true);
+		end(call);
+		
+		return arr;
+	}
+	
+	/**
+	 * Sample sorts an array. Elements are ordered by value and then by
+	 * original index, so equal elements are spread over several buckets
+	 * instead of piling up in one.
+	 * 
+	 * @param arr The array to sort
+	 * @param pool The pool to run the sort on
+	 * @param stable true to merge sort the buckets, false to introsort them
+	 */
+	private <T extends Comparable<T>> void samplesort(T[] arr, ForkJoinPool pool, boolean stable) {
+		int n = arr.length;
+		if (n <= PARALLEL_THRESHOLD) {
+			allocated(n, REFERENCE_BYTES);
+			sortBucket(arr.clone(), arr, 0, n, stable, 0);
+			return;
+		}
+		
+		// Between 4 and 8 buckets per worker, a power of two so the splitter
+		// tree is complete
+		int buckets = Math.min((Integer.highestOneBit(4 * pool.getParallelism()) << 1),
+				MAX_SAMPLESORT_BUCKETS);
+		int levels = Integer.numberOfTrailingZeros(buckets);
+		
+		// Take one random sample from each of buckets * OVERSAMPLING equal
+		// strata, which leaves the sample indexes already in ascending order
+		Random r = ThreadLocalRandom.current();
+		int[] sample = new int[buckets * OVERSAMPLING];
+		int stratum = n / sample.length;
+		for (int i = 0; i < sample.length; i++) {
+			sample[i] = (i * stratum) + r.nextInt(stratum);
+		}
+		allocated((2 * sample.length), Integer.BYTES);
+		sortIndexes(sample.clone(), sample, 0, sample.length, null, arr, 1);
+		
+		// Lay the splitters out as an implicit binary search tree, the root
+		// at 1 and the children of node i at 2i and 2i + 1
+		T[] splitters = Arrays.copyOf(arr, buckets);
+		int[] splitterIndexes = new int[buckets];
+		allocated(buckets, REFERENCE_BYTES + Integer.BYTES);
+		buildSplitterTree(arr, sample, splitters, splitterIndexes, 1, 0, buckets);
+		
+		int blocks = Math.min((4 * pool.getParallelism()), (n / PARALLEL_THRESHOLD));
+		byte[] oracle = new byte[n];
+		int[][] counts = new int[blocks][buckets];
+		allocated(n, Byte.BYTES);
+		allocated((blocks * buckets), Integer.BYTES);
+		pool.invoke(new ForEachTask(0, blocks, block -> {
+			int[] blockCounts = counts[block];
+			for (int i = blockStart(block, blocks, n); i < blockStart((block + 1), blocks, n); i++) {
+				T current = arr[i];
+				int node = 1;
+				for (int level = 0; level < levels; level++) {
+					// Go right when the splitter sorts before the element
+					int result = compare(splitters[node], current);
+					node = (2 * node) + (((result < 0) | (result == 0 & splitterIndexes[node] < i)) ? 1 : 0);
+				}
+				
+				oracle[i] = (byte) (node - buckets);
+				blockCounts[node - buckets]++;
+			}
+		}));
+		
+		// Turn the counts into the offset each block writes its next element
+		// of each bucket to, block by block within every bucket
+		int[] bucketStarts = new int[buckets + 1];
+		int total = 0;
+		for (int bucket = 0; bucket < buckets; bucket++) {
+			bucketStarts[bucket] = total;
+			for (int block = 0; block < blocks; block++) {
+				int count = counts[block][bucket];
+				counts[block][bucket] = total;
+				total += count;
+			}
+		}
+		bucketStarts[buckets] = n;
+		
+		T[] scratch = arr.clone();
+		allocated(n, REFERENCE_BYTES);
+		pool.invoke(new ForEachTask(0, blocks, block -> {
+			int[] next = counts[block];
+			for (int i = blockStart(block, blocks, n); i < blockStart((block + 1), blocks, n); i++) {
+				scratch[next[oracle[i] & 0xFF]++] = arr[i];
+			}
+		}));
+		moved(n);
+		
+		pool.invoke(new ForEachTask(0, buckets, bucket -> {
+			sortBucket(scratch, arr, bucketStarts[bucket], bucketStarts[bucket + 1], stable, 1);
+		}));
+	}
+	
+	/**
+	 * Fills in the subtree of the splitter tree rooted at a node with the
+	 * samples which divide a range of buckets.
+	 * 
+	 * @param arr The array being sorted
+	 * @param sample The sorted sample indexes
+	 * @param splitters The splitter tree
+	 * @param splitterIndexes The original index of each splitter
+	 * @param node The root of the subtree
+	 * @param low The first bucket of the range (inclusive)
+	 * @param high The last bucket of the range (exclusive)
+	 */
+	private <T> void buildSplitterTree(T[] arr, int[] sample, T[] splitters, int[] splitterIndexes,
+			int node, int low, int high) {
+		if ((high - low) < 2) {
+			return;
+		}
+		
+		// Everything before this splitter goes to buckets [low, mid)
+		int mid = (low + high) >>> 1;
+		splitterIndexes[node] = sample[mid * OVERSAMPLING];
+		splitters[node] = arr[splitterIndexes[node]];
+		buildSplitterTree(arr, sample, splitters, splitterIndexes, (2 * node), low, mid);
+		buildSplitterTree(arr, sample, splitters, splitterIndexes, ((2 * node) + 1), mid, high);
+	}
+	
+	/**
+	 * Returns the first index of one of a number of equal blocks of an array.
+	 * 
+	 * @param block The index of the block
+	 * @param blocks The number of blocks
+	 * @param n The length of the array
+	 * @return The first index of the block
+	 */
+	private int blockStart(int block, int blocks, int n) {
+		return (int) (((long) block * n) / blocks);
+	}
+	
+	/**
+	 * Copies one bucket of a sample sort back into the array being sorted
+	 * and sorts it there.
+	 * 
+	 * @param scratch The array the bucket was scattered into
+	 * @param arr The array being sorted
+	 * @param low The first index of the bucket (inclusive)
+	 * @param high The last index of the bucket (exclusive)
+	 * @param stable true to merge sort the bucket, false to introsort it
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private <T extends Comparable<T>> void sortBucket(T[] scratch, T[] arr, int low, int high,
+			boolean stable, int level) {
+		System.arraycopy(scratch, low, arr, low, (high - low));
+		if (stable) {
+			mergesort(scratch, arr, low, high, level);
+		} else if ((high - low) > 1) {
+			introsort(arr, low, (high - 1), (2 * log2(high - low)), ThreadLocalRandom.current(), level);
+		}
+	}
+	
+	/**
+	 * Runs an action for every index in [low, high) in parallel, splitting
+	 * the range in half until single indexes are left.
+	 */
+	@SuppressWarnings("serial")
+	private static class ForEachTask extends RecursiveAction {
+		private final int low;
+		private final int high;
+		private final IntConsumer action;
+		
+		ForEachTask(int low, int high, IntConsumer action) {
+			this.low = low;
+			this.high = high;
+			this.action = action;
+		}
+		
+		@Override
+		protected void compute() {
+			if ((high - low) == 1) {
+				action.accept(low);
+			} else if ((high - low) > 1) {
+				int mid = (low + high) >>> 1;
+				invokeAll(new ForEachTask(low, mid, action), new ForEachTask(mid, high, action));
+			}
+		}
+	}
+	
+	/**
+	 * Returns the first index in the sorted range arr[low, high) whose
+	 * element is not less than key.
+	 * 
+	 * @param arr The sorted array to search
+	 * @param low The start of the range (inclusive)
+	 * @param high The end of the range (exclusive)
+	 * @param key The element to search for
+	 * @return The insertion point of key before any equal elements
+	 */
+	private <T extends Comparable<T>> int lowerBound(T[] arr, int low, int high, T key) {
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compare(arr[mid], key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		
+		return low;
+	}
+	
+	/**
+	 * Returns the first index in the sorted range arr[low, high) whose
+	 * element is greater than key.
+	 * 
+	 * @param arr The sorted array to search
+	 * @param low The start of the range (inclusive)
+	 * @param high The end of the range (exclusive)
+	 * @param key The element to search for
+	 * @return The insertion point of key after any equal elements
+	 */
+	private <T extends Comparable<T>> int upperBound(T[] arr, int low, int high, T key) {
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compare(arr[mid], key) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		
+		return low;
+	}
+	
+	/**
+	 * Insertion sorts the range [left, right] of an array. Only strictly
+	 * greater elements are shifted, so the sort is stable.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private <T extends Comparable<T>> void insertionsort(T[] arr, int left, int right) {
+		int moves = 0;
+		for (int x = (left + 1); x <= right; x++) {
+			T current = arr[x];
+			int i = (x - 1);
+			while (i >= left && compare(current, arr[i]) < 0) {
+				arr[i + 1] = arr[i];
+				i--;
+			}
+			
+			arr[i + 1] = current;
+			moves += (x - i);
+		}
+		moved(moves);
+	}
+
+	@Override
+	public int[] radixsort(int[] arr) {
+		SortStats call = begin("radixsort(int[])", arr.length);
+		allocated(arr.length, Integer.BYTES);
+		lsdRadixsort(arr, new int[arr.length], 0, arr.length);
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * Radix sorts an int[] one byte at a time, least significant byte first,
+	 * using a caller-supplied scratch buffer so repeated sorts allocate
+	 * nothing per element. Negative values are ordered correctly by flipping
+	 * the sign bit while extracting digits, and any byte position on which
+	 * every key agrees is skipped entirely.
+	 * 
+	 * @param arr The array to sort
+	 * @param scratch A buffer at least as long as arr; its contents are overwritten
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public int[] radixsort(int[] arr, int[] scratch) {
+		if (scratch.length < arr.length) {
+			throw new IllegalArgumentException("Scratch buffer is smaller than the array!");
+		}
+		
+		SortStats call = begin("radixsort(int[])", arr.length);
+		lsdRadixsort(arr, scratch, 0, arr.length);
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * Radix sorts the range [from, to) of a int[] in place, leaving the rest
+	 * of the array untouched, using a caller-supplied scratch buffer which
+	 * only needs to be as long as the range.
+	 * 
+	 * @see #radixsort(int[], int[])
+	 * @param arr The array to sort
+	 * @param scratch A buffer at least as long as the range; its contents are overwritten
+	 * @param from The first index of the range (inclusive)
+	 * @param to The last index of the range (exclusive)
+	 * @return the array (the same instance that was passed in)
+	 */
+	public int[] radixsort(int[] arr, int[] scratch, int from, int to) {
+		if (from < 0 || to > arr.length || from > to) {
+			throw new IllegalArgumentException("Range is out of bounds!");
+		} else if (scratch.length < (to - from)) {
+			throw new IllegalArgumentException("Scratch buffer is smaller than the range!");
+		}
+		
+		SortStats call = begin("radixsort(int[])", (to - from));
+		lsdRadixsort(arr, scratch, from, to);
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * Radix sorts the range [from, to) of an int[] using a scratch buffer
+	 * known to be large enough. The range is moved to the front of scratch
+	 * and back on alternate passes.
+	 * 
+	 * @param arr The array to sort
+	 * @param scratch A buffer at least as long as the range
+	 * @param from The first index of the range (inclusive)
+	 * @param to The last index of the range (exclusive)
+	 */
+	private void lsdRadixsort(int[] arr, int[] scratch, int from, int to) {
+		int length = (to - from);
+		int[] counts = new int[Integer.BYTES * RADIX];
+		allocated(counts.length, Integer.BYTES);
+		for (int i = from; i < to; i++) {
+			int key = arr[i] ^ Integer.MIN_VALUE;
+			for (int pass = 0; pass < Integer.BYTES; pass++) {
+				counts[(pass * RADIX) + ((key >>> (pass * 8)) & RADIX_MASK)]++;
+			}
+		}
+		
+		int[] src = arr;
+		int[] dest = scratch;
+		int srcFrom = from;
+		int destFrom = 0;
+		for (int pass = 0; pass < Integer.BYTES; pass++) {
+			int offset = pass * RADIX;
+			int shift = pass * 8;
+			if (length == 0 || skipPass(counts, offset,
+					((src[srcFrom] ^ Integer.MIN_VALUE) >>> shift) & RADIX_MASK, length)) {
+				continue;
+			}
+			
+			for (int i = srcFrom; i < (srcFrom + length); i++) {
+				int digit = ((src[i] ^ Integer.MIN_VALUE) >>> shift) & RADIX_MASK;
+				dest[destFrom + counts[offset + digit]++] = src[i];
+			}
+			
+			int[] temp = src;
+			src = dest;
+			dest = temp;
+			int tempFrom = srcFrom;
+			srcFrom = destFrom;
+			destFrom = tempFrom;
+		}
+		
+		if (src != arr) {
+			System.arraycopy(src, srcFrom, arr, from, length);
+			moved(length);
+		}
+	}
+	
+	/**
+	 * Radix sorts a long[] one byte at a time.
+	 * 
+	 * @see #radixsort(long[], long[])
+	 * @param arr The array to sort
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public long[] radixsort(long[] arr) {
+		SortStats call = begin("radixsort(long[])", arr.length);
+		allocated(arr.length, Long.BYTES);
+		lsdRadixsort(arr, new long[arr.length], 0, arr.length);
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * Radix sorts a long[] one byte at a time, least significant byte first,
+	 * using a caller-supplied scratch buffer.
+	 * 
+	 * @see #radixsort(int[], int[])
+	 * @param arr The array to sort
+	 * @param scratch A buffer at least as long as arr; its contents are overwritten
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public long[] radixsort(long[] arr, long[] scratch) {
+		if (scratch.length < arr.length) {
+			throw new IllegalArgumentException("Scratch buffer is smaller than the array!");
+		}
+		
+		SortStats call = begin("radixsort(long[])", arr.length);
+		lsdRadixsort(arr, scratch, 0, arr.length);
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * Radix sorts the range [from, to) of a long[] in place, leaving the rest
+	 * of the array untouched, using a caller-supplied scratch buffer which
+	 * only needs to be as long as the range.
+	 * 
+	 * @see #radixsort(long[], long[])
+	 * @param arr The array to sort
+	 * @param scratch A buffer at least as long as the range; its contents are overwritten
+	 * @param from The first index of the range (inclusive)
+	 * @param to The last index of the range (exclusive)
+	 * @return the array (the same instance that was passed in)
+	 */
+	public long[] radixsort(long[] arr, long[] scratch, int from, int to) {
+		if (from < 0 || to > arr.length || from > to) {
+			throw new IllegalArgumentException("Range is out of bounds!");
+		} else if (scratch.length < (to - from)) {
+			throw new IllegalArgumentException("Scratch buffer is smaller than the range!");
+		}
+		
+		SortStats call = begin("radixsort(long[])", (to - from));
+		lsdRadixsort(arr, scratch, from, to);
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * Radix sorts the range [from, to) of a long[] using a scratch buffer
+	 * known to be large enough.
+	 * 
+	 * @see #lsdRadixsort(int[], int[], int, int)
+	 * @param arr The array to sort
+	 * @param scratch A buffer at least as long as the range
+	 * @param from The first index of the range (inclusive)
+	 * @param to The last index of the range (exclusive)
+	 */
+	private void lsdRadixsort(long[] arr, long[] scratch, int from, int to) {
+		int length = (to - from);
+		int[] counts = new int[Long.BYTES * RADIX];
+		allocated(counts.length, Integer.BYTES);
+		for (int i = from; i < to; i++) {
+			long key = arr[i] ^ Long.MIN_VALUE;
+			for (int pass = 0; pass < Long.BYTES; pass++) {
+				counts[(pass * RADIX) + (int) ((key >>> (pass * 8)) & RADIX_MASK)]++;
+			}
+		}
+		
+		long[] src = arr;
+		long[] dest = scratch;
+		int srcFrom = from;
+		int destFrom = 0;
+		for (int pass = 0; pass < Long.BYTES; pass++) {
+			int offset = pass * RADIX;
+			int shift = pass * 8;
+			if (length == 0 || skipPass(counts, offset,
+					(int) (((src[srcFrom] ^ Long.MIN_VALUE) >>> shift) & RADIX_MASK), length)) {
+				continue;
+			}
+			
+			for (int i = srcFrom; i < (srcFrom + length); i++) {
+				int digit = (int) (((src[i] ^ Long.MIN_VALUE) >>> shift) & RADIX_MASK);
+				dest[destFrom + counts[offset + digit]++] = src[i];
+			}
+			
+			long[] temp = src;
+			src = dest;
+			dest = temp;
+			int tempFrom = srcFrom;
+			srcFrom = destFrom;
+			destFrom = tempFrom;
+		}
+		
+		if (src != arr) {
+			System.arraycopy(src, srcFrom, arr, from, length);
+			moved(length);
+		}
+	}
+	
+	/**
+	 * Stable radix sorts an array of objects by an int key. Each key is
+	 * extracted exactly once and carried alongside its element through the
+	 * byte passes, so the extractor is never called more than n times.
+	 * 
+	 * @param arr The array to sort
+	 * @param key Extracts the int sort key of an element
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T> T[] radixsortByKey(T[] arr, ToIntFunction<? super T> key) {
+		SortStats call = begin("radixsortByKey", arr.length);
+		int[] keys = new int[arr.length];
+		for (int i = 0; i < arr.length; i++) {
+			keys[i] = key.applyAsInt(arr[i]) ^ Integer.MIN_VALUE;
+		}
+		
+		int[] counts = new int[Integer.BYTES * RADIX];
+		allocated((2 * arr.length), Integer.BYTES);
+		allocated(arr.length, REFERENCE_BYTES);
+		allocated(counts.length, Integer.BYTES);
+		for (int i = 0; i < keys.length; i++) {
+			for (int pass = 0; pass < Integer.BYTES; pass++) {
+				counts[(pass * RADIX) + ((keys[i] >>> (pass * 8)) & RADIX_MASK)]++;
+			}
+		}
+		
+		int[] srcKeys = keys;
+		int[] destKeys = new int[arr.length];
+		T[] src = arr;
+		T[] dest = arr.clone();
+		for (int pass = 0; pass < Integer.BYTES; pass++) {
+			int offset = pass * RADIX;
+			int shift = pass * 8;
+			if (arr.length == 0 || skipPass(counts, offset,
+					(srcKeys[0] >>> shift) & RADIX_MASK, arr.length)) {
+				continue;
+			}
+			
+			for (int i = 0; i < arr.length; i++) {
+				int target = counts[offset + ((srcKeys[i] >>> shift) & RADIX_MASK)]++;
+				destKeys[target] = srcKeys[i];
+				dest[target] = src[i];
+			}
+			
+			int[] tempKeys = srcKeys;
+			srcKeys = destKeys;
+			destKeys = tempKeys;
+			T[] temp = src;
+			src = dest;
+			dest = temp;
+		}
+		
+		if (src != arr) {
+			System.arraycopy(src, 0, arr, 0, arr.length);
+			moved(arr.length);
+		}
+		end(call);
+		
+		return arr;
+	}
+	
+	/**
+	 * Stable radix sorts an array of objects by a long key.
+	 * 
+	 * @see #radixsortByKey(Object[], ToIntFunction)
+	 * @param arr The array to sort
+	 * @param key Extracts the long sort key of an element
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T> T[] radixsortByLongKey(T[] arr, ToLongFunction<? super T> key) {
+		SortStats call = begin("radixsortByLongKey", arr.length);
+		long[] keys = new long[arr.length];
+		for (int i = 0; i < arr.length; i++) {
+			keys[i] = key.applyAsLong(arr[i]) ^ Long.MIN_VALUE;
+		}
+		
+		int[] counts = new int[Long.BYTES * RADIX];
+		allocated((2 * arr.length), Long.BYTES);
+		allocated(arr.length, REFERENCE_BYTES);
+		allocated(counts.length, Integer.BYTES);
+		for (int i = 0; i < keys.length; i++) {
+			for (int pass = 0; pass < Long.BYTES; pass++) {
+				counts[(pass * RADIX) + (int) ((keys[i] >>> (pass * 8)) & RADIX_MASK)]++;
+			}
+		}
+		
+		long[] srcKeys = keys;
+		long[] destKeys = new long[arr.length];
+		T[] src = arr;
+		T[] dest = arr.clone();
+		for (int pass = 0; pass < Long.BYTES; pass++) {
+			int offset = pass * RADIX;
+			int shift = pass * 8;
+			if (arr.length == 0 || skipPass(counts, offset,
+					(int) ((srcKeys[0] >>> shift) & RADIX_MASK), arr.length)) {
+				continue;
+			}
+			
+			for (int i = 0; i < arr.length; i++) {
+				int target = counts[offset + (int) ((srcKeys[i] >>> shift) & RADIX_MASK)]++;
+				destKeys[target] = srcKeys[i];
+				dest[target] = src[i];
+			}
+			
+			long[] tempKeys = srcKeys;
+			srcKeys = destKeys;
+			destKeys = tempKeys;
+			T[] temp = src;
+			src = dest;
+			dest = temp;
+		}
+		
+		if (src != arr) {
+			System.arraycopy(src, 0, arr, 0, arr.length);
+			moved(arr.length);
+		}
+		end(call);
+		
+		return arr;
+	}
+	
+	/**
+	 * Decides whether a radix pass can be skipped and, if not, turns that
+	 * pass's histogram into starting offsets.
+	 * 
+	 * @param counts The histograms for every pass, RADIX entries each
+	 * @param offset The index of this pass's first histogram entry
+	 * @param anyDigit The digit of any one key for this pass
+	 * @param length The number of keys being sorted
+	 * @return true if every key has the same digit and the pass does nothing
+	 */
+	private boolean skipPass(int[] counts, int offset, int anyDigit, int length) {
+		if (counts[offset + anyDigit] == length) {
+			if (stats != null) {
+				stats.radixPass(true);
+			}
+			return true;
+		}
+		
+		if (stats != null) {
+			stats.radixPass(false);
+			stats.moved(length);
+		}
+		
+		int total = 0;
+		for (int i = offset; i < (offset + RADIX); i++) {
+			int count = counts[i];
+			counts[i] = total;
+			total += count;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Sorts an array of Strings with a most-significant-digit-first radix
+	 * sort. Each char is split into two byte digits, so the sort handles the
+	 * full char range while only ever keeping RADIX + 2 counters per bucket,
+	 * and a digit on which every String in a bucket agrees is stepped over
+	 * without moving anything. Characters are only examined while they can
+	 * still tell Strings apart, so shared prefixes cost one pass rather than
+	 * one re-comparison per String.compareTo call. The sort is stable and
+	 * orders Strings as String.compareTo does.
+	 * 
+	 * @param arr The array to sort
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public String[] msdRadixsort(String[] arr) {
+		SortStats call = begin("msdRadixsort", arr.length);
+		allocated(arr.length, REFERENCE_BYTES);
+		msdRadixsort(arr, null, new String[arr.length], null, 0, arr.length, 0, 0);
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * Stable sorts an array of objects by a String key with an MSD radix
+	 * sort. Each key is extracted exactly once. For example, Users can be
+	 * ordered as by User.compareTo with:
+	 * 
+	 *		msdRadixsort(users, u -> u.getUsername().toLowerCase())
+	 * 
+	 * @see #msdRadixsort(String[])
+	 * @param arr The array to sort
+	 * @param key Extracts the sort key of an element
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T> T[] msdRadixsort(T[] arr, Function<? super T, String> key) {
+		SortStats call = begin("msdRadixsortByKey", arr.length);
+		String[] keys = stringKeys(arr, key);
+		allocated((3 * arr.length), REFERENCE_BYTES);
+		msdRadixsort(keys, arr, new String[arr.length], arr.clone(), 0, arr.length, 0, 0);
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * MSD radix sorts keys[low, high), moving items alongside. Every key in
+	 * the range is known to agree on the digits before depth.
+	 * 
+	 * @param keys The keys to sort
+	 * @param items The elements the keys belong to, or null
+	 * @param auxKeys A scratch buffer as long as keys
+	 * @param auxItems A scratch buffer as long as items, or null
+	 * @param low The first index of the range (inclusive)
+	 * @param high The last index of the range (exclusive)
+	 * @param depth The index of the digit to distribute on, two per char
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private void msdRadixsort(String[] keys, Object[] items, String[] auxKeys, Object[] auxItems,
+			int low, int high, int depth, int level) {
+		reached(level);
+		while ((high - low) > INSERTION_THRESHOLD) {
+			// Digit 0 marks a key which has ended, so counts are shifted by two
+			int[] counts = new int[RADIX + 2];
+			for (int i = low; i < high; i++) {
+				counts[digit(keys[i], depth) + 1]++;
+			}
+			
+			int first = digit(keys[low], depth);
+			if (counts[first + 1] == (high - low)) {
+				if (first == 0) {
+					// Every key has ended, so they are all equal
+					return;
+				}
+				depth++;
+				continue;
+			}
+			
+			for (int i = 1; i < counts.length; i++) {
+				counts[i] += counts[i - 1];
+			}
+			
+			int[] next = counts.clone();
+			for (int i = low; i < high; i++) {
+				int target = low + next[digit(keys[i], depth)]++;
+				auxKeys[target] = keys[i];
+				if (items != null) {
+					auxItems[target] = items[i];
+				}
+			}
+			
+			System.arraycopy(auxKeys, low, keys, low, (high - low));
+			if (items != null) {
+				System.arraycopy(auxItems, low, items, low, (high - low));
+			}
+			moved(2 * (high - low));
+			
+			// Keys which ended at this digit are all equal and need no more work
+			for (int digit = 1; digit <= RADIX; digit++) {
+				msdRadixsort(keys, items, auxKeys, auxItems, (low + counts[digit]),
+						(low + counts[digit + 1]), (depth + 1), (level + 1));
+			}
+			return;
+		}
+		
+		stringInsertionsort(keys, items, low, high, (depth >>> 1));
+	}
+	
+	/**
+	 * Returns one byte digit of a String for msdRadixsort: the high byte of
+	 * char depth / 2 for even depths and its low byte for odd ones.
+	 * 
+	 * @param key The String
+	 * @param depth The index of the digit
+	 * @return The digit plus one, or 0 if the String has ended
+	 */
+	private int digit(String key, int depth) {
+		int index = depth >>> 1;
+		if (index >= key.length()) {
+			return 0;
+		}
+		
+		char c = key.charAt(index);
+		return (((depth & 1) == 0) ? (c >>> 8) : (c & RADIX_MASK)) + 1;
+	}
+	
+	/**
+	 * Sorts an array of Strings with multikey quicksort (three-way radix
+	 * quicksort). Each step partitions the range on a single character of a
+	 * random pivot into less, equal and greater parts. Only the equal part
+	 * moves on to the next character, so each character of a shared prefix
+	 * is compared once per partitioning step rather than once per
+	 * String.compareTo call. The sort is not stable.
+	 * 
+	 * @param arr The array to sort
+	 * @param r The random object used to select pivots
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public String[] multikeyQuicksort(String[] arr, Random r) {
+		SortStats call = begin("multikeyQuicksort", arr.length);
+		multikeyQuicksort(arr, null, 0, arr.length, 0, r, 0);
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * Sorts an array of objects by a String key with multikey quicksort.
+	 * Each key is extracted exactly once.
+	 * 
+	 * @see #multikeyQuicksort(String[], Random)
+	 * @param arr The array to sort
+	 * @param key Extracts the sort key of an element
+	 * @param r The random object used to select pivots
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T> T[] multikeyQuicksort(T[] arr, Function<? super T, String> key, Random r) {
+		SortStats call = begin("multikeyQuicksortByKey", arr.length);
+		String[] keys = stringKeys(arr, key);
+		allocated(arr.length, REFERENCE_BYTES);
+		multikeyQuicksort(keys, arr, 0, arr.length, 0, r, 0);
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * Multikey quicksorts keys[low, high), moving items alongside. Every key
+	 * in the range is known to agree on the chars before depth. The equal
+	 * part is looped on rather than recursed into, so long shared prefixes
+	 * do not deepen the stack.
+	 * 
+	 * @param keys The keys to sort
+	 * @param items The elements the keys belong to, or null
+	 * @param low The first index of the range (inclusive)
+	 * @param high The last index of the range (exclusive)
+	 * @param depth The index of the char to partition on
+	 * @param r The random object used to select pivots
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private void multikeyQuicksort(String[] keys, Object[] items, int low, int high, int depth,
+			Random r, int level) {
+		reached(level);
+		while ((high - low) > INSERTION_THRESHOLD) {
+			int pivot = charAt(keys[low + r.nextInt(high - low)], depth);
+			int lessIndex = low;
+			int greaterIndex = (high - 1);
+			int i = low;
+			while (i <= greaterIndex) {
+				int current = charAt(keys[i], depth);
+				if (current < pivot) {
+					swap(keys, items, i++, lessIndex++);
+				} else if (current > pivot) {
+					swap(keys, items, i, greaterIndex--);
+				} else {
+					i++;
+				}
+			}
+			
+			multikeyQuicksort(keys, items, low, lessIndex, depth, r, (level + 1));
+			multikeyQuicksort(keys, items, (greaterIndex + 1), high, depth, r, (level + 1));
+			if (pivot < 0) {
+				// Every key in the equal part has ended, so they are all equal
+				return;
+			}
+			
+			low = lessIndex;
+			high = (greaterIndex + 1);
+			depth++;
+		}
+		
+		stringInsertionsort(keys, items, low, high, depth);
+	}
+	
+	/**
+	 * Returns a char of a String, or -1 past its end.
+	 * 
+	 * @param key The String
+	 * @param index The index of the char
+	 * @return The char, or -1 if the String is shorter
+	 */
+	private int charAt(String key, int index) {
+		return (index < key.length()) ? key.charAt(index) : -1;
+	}
+	
+	/**
+	 * Swaps two keys and the items they belong to.
+	 * 
+	 * @param keys The keys
+	 * @param items The elements the keys belong to, or null
+	 * @param i The index of the first key
+	 * @param j The index of the second key
+	 */
+	private void swap(String[] keys, Object[] items, int i, int j) {
+		swap(keys, i, j);
+		if (items != null) {
+			swap(items, i, j);
+		}
+	}
+	
+	/**
+	 * Stable sorts an array of Strings with an LCP-aware merge sort. Every
+	 * String carries the length of the prefix it shares with its
+	 * predecessor (its longest common prefix, or LCP), and merges compare
+	 * those lengths first: only when they tie are characters compared, and
+	 * then only from the end of the shared prefix. Each character of a
+	 * distinguishing prefix is therefore compared O(log n) times at most,
+	 * rather than once per comparison.
+	 * 
+	 * @param arr The array to sort
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public String[] lcpMergesort(String[] arr) {
+		SortStats call = begin("lcpMergesort", arr.length);
+		if (arr.length > 1) {
+			allocated(arr.length, REFERENCE_BYTES + (2 * Integer.BYTES));
+			lcpMergesort(arr.clone(), null, new int[arr.length], arr, null, new int[arr.length],
+					0, arr.length, 0);
+		}
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * Stable sorts an array of objects by a String key with an LCP-aware
+	 * merge sort. Each key is extracted exactly once.
+	 * 
+	 * @see #lcpMergesort(String[])
+	 * @param arr The array to sort
+	 * @param key Extracts the sort key of an element
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public <T> T[] lcpMergesort(T[] arr, Function<? super T, String> key) {
+		SortStats call = begin("lcpMergesortByKey", arr.length);
+		String[] keys = stringKeys(arr, key);
+		if (arr.length > 1) {
+			allocated(arr.length, (3 * REFERENCE_BYTES) + (2 * Integer.BYTES));
+			lcpMergesort(keys.clone(), arr.clone(), new int[arr.length], keys, arr, new int[arr.length],
+					0, arr.length, 0);
+		}
+		end(call);
+		return arr;
+	}
+	
+	/**
+	 * Sorts dest[low, high) by recursively sorting each half into src and
+	 * merging back, following the same buffer ping-pong as mergesort. On
+	 * return destLcps[i] holds the LCP of destKeys[i] and destKeys[i - 1],
+	 * and destLcps[low] is 0.
+	 * 
+	 * @param srcKeys The scratch keys for this level
+	 * @param srcItems The scratch items for this level, or null
+	 * @param srcLcps The scratch LCPs for this level
+	 * @param destKeys The keys which receive the sorted range
+	 * @param destItems The items which receive the sorted range, or null
+	 * @param destLcps The LCPs of the sorted range
+	 * @param low The first index of the range (inclusive)
+	 * @param high The last index of the range (exclusive)
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private void lcpMergesort(String[] srcKeys, Object[] srcItems, int[] srcLcps,
+			String[] destKeys, Object[] destItems, int[] destLcps, int low, int high, int level) {
+		reached(level);
+		if ((high - low) <= INSERTION_THRESHOLD) {
+			stringInsertionsort(destKeys, destItems, low, high, 0);
+			destLcps[low] = 0;
+			for (int i = (low + 1); i < high; i++) {
+				destLcps[i] = lcp(destKeys[i - 1], destKeys[i], 0);
+			}
+			return;
+		}
+		
+		int mid = (low + high) >>> 1;
+		lcpMergesort(destKeys, destItems, destLcps, srcKeys, srcItems, srcLcps, low, mid, (level + 1));
+		lcpMergesort(destKeys, destItems, destLcps, srcKeys, srcItems, srcLcps, mid, high, (level + 1));
+		
+		// firstLcp and secondLcp are the LCPs of each run's head with the
+		// last key written, which starts out as an empty key
+		int first = low;
+		int second = mid;
+		int firstLcp = 0;
+		int secondLcp = 0;
+		int out = low;
+		while (first < mid && second < high) {
+			boolean takeFirst;
+			int taken;
+			if (firstLcp != secondLcp) {
+				// The head sharing more with the last key written is the smaller,
+				// and the other head's LCP with it is unchanged
+				takeFirst = firstLcp > secondLcp;
+				taken = Math.max(firstLcp, secondLcp);
+			} else {
+				String a = srcKeys[first];
+				String b = srcKeys[second];
+				int shared = lcp(a, b, firstLcp);
+				takeFirst = (shared == a.length()) 
+						|| (shared < b.length() && a.charAt(shared) < b.charAt(shared));
+				taken = firstLcp;
+				if (takeFirst) {
+					secondLcp = shared;
+				} else {
+					firstLcp = shared;
+				}
+			}
+			
+			int from = takeFirst ? first++ : second++;
+			destKeys[out] = srcKeys[from];
+			if (destItems != null) {
+				destItems[out] = srcItems[from];
+			}
+			destLcps[out++] = taken;
+			if (takeFirst) {
+				firstLcp = (first < mid) ? srcLcps[first] : 0;
+			} else {
+				secondLcp = (second < high) ? srcLcps[second] : 0;
+			}
+		}
+		
+		// The rest of one run follows unchanged apart from its head's LCP
+		int rest = (first < mid) ? first : second;
+		int restLcp = (first < mid) ? firstLcp : secondLcp;
+		int restLength = high - out;
+		System.arraycopy(srcKeys, rest, destKeys, out, restLength);
+		if (destItems != null) {
+			System.arraycopy(srcItems, rest, destItems, out, restLength);
+		}
+		System.arraycopy(srcLcps, rest, destLcps, out, restLength);
+		destLcps[out] = restLcp;
+		moved(high - low);
+	}
+	
+	/**
+	 * Returns the length of the longest common prefix of two Strings which
+	 * are known to share at least their first from chars.
+	 * 
+	 * @param a The first String
+	 * @param b The second String
+	 * @param from The number of chars already known to match
+	 * @return The length of their longest common prefix
+	 */
+	private int lcp(String a, String b, int from) {
+		int length = Math.min(a.length(), b.length());
+		while (from < length && a.charAt(from) == b.charAt(from)) {
+			from++;
+		}
+		
+		return from;
+	}
+	
+	/**
+	 * Stable insertion sorts keys[low, high), moving items alongside. Every
+	 * key in the range is known to agree on the chars before depth.
+	 * 
+	 * @param keys The keys to sort
+	 * @param items The elements the keys belong to, or null
+	 * @param low The first index of the range (inclusive)
+	 * @param high The last index of the range (exclusive)
+	 * @param depth The index of the first char which may differ
+	 */
+	private void stringInsertionsort(String[] keys, Object[] items, int low, int high, int depth) {
+		for (int x = (low + 1); x < high; x++) {
+			String current = keys[x];
+			Object item = (items != null) ? items[x] : null;
+			int i = (x - 1);
+			while (i >= low && compareFrom(current, keys[i], depth) < 0) {
+				keys[i + 1] = keys[i];
+				if (items != null) {
+					items[i + 1] = items[i];
+				}
+				i--;
+			}
+			
+			keys[i + 1] = current;
+			if (items != null) {
+				items[i + 1] = item;
+			}
+		}
+	}
+	
+	/**
+	 * Compares two Strings as String.compareTo does, skipping chars both are
+	 * known to share.
+	 * 
+	 * @param a The first String
+	 * @param b The second String
+	 * @param from The number of leading chars known to match
+	 * @return a negative number, zero, or a positive number as a is less
+	 *         than, equal to, or greater than b
+	 */
+	private int compareFrom(String a, String b, int from) {
+		if (stats != null) {
+			stats.compared();
+		}
+		
+		int shared = lcp(a, b, from);
+		if (shared < a.length() && shared < b.length()) {
+			return a.charAt(shared) - b.charAt(shared);
+		}
+		
+		return a.length() - b.length();
+	}
+	
+	/**
+	 * Extracts the String key of every element of an array.
+	 * 
+	 * @param arr The elements
+	 * @param key Extracts the sort key of an element
+	 * @return The keys, in the same order as the elements
+	 */
+	private <T> String[] stringKeys(T[] arr, Function<? super T, String> key) {
+		String[] keys = new String[arr.length];
+		for (int i = 0; i < arr.length; i++) {
+			keys[i] = key.apply(arr[i]);
+		}
+		
+		return keys;
+	}
+	
+	@Override
+	public void quicksort(int[] arr, Random r) {
+		SortStats call = begin("quicksort(int[])", arr.length, UNCOUNTED);
+		if (arr.length > 1) {
+			quicksort(arr, 0, (arr.length - 1), (2 * log2(arr.length)), r, 0);
+		}
+		end(call);
+	}
+	
+	/**
+	 * Quicksorts the range [left, right] of a int[] around the median of
+	 * three random samples. The partition loop has no data-dependent branch:
+	 * every element is swapped into the boundary slot and the boundary then
+	 * advances by 0 or 1, which the JIT turns into a conditional move instead
+	 * of a jump that random keys would mispredict half the time. Runs of
+	 * equal keys are split off as in pdqsort, and only the smaller side is
+	 * recursed into, which bounds the stack at O(log n).
+	 * Once depthLimit partitioning steps have been taken the range is
+	 * heapsorted instead, as in introsort, which bounds the running time at
+	 * O(n log n) however the pivots turn out.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @param depthLimit The number of partitioning steps left before heapsort
+	 * @param r The random object used to select pivots
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private void quicksort(int[] arr, int left, int right, int depthLimit, Random r, int level) {
+		reached(level);
+		while ((right - left) >= INSERTION_THRESHOLD) {
+			if (depthLimit == 0) {
+				heapsort(arr, left, right);
+				return;
+			}
+			depthLimit--;
+			
+			int size = (right - left + 1);
+			int a = left + r.nextInt(size);
+			int b = left + r.nextInt(size);
+			int c = left + r.nextInt(size);
+			int median = medianOfThree(arr[a], arr[b], arr[c]);
+			int pivotIndex = (arr[a] == median) ? a : ((arr[b] == median) ? b : c);
+			int pivot = arr[pivotIndex];
+			arr[pivotIndex] = arr[right];
+			arr[right] = pivot;
+			
+			// No key in the range is smaller than the one just before it, so if
+			// the pivot equals that key, the keys equal to the pivot are already
+			// in their final place once they are partitioned to the front
+			boolean equal = (left > 0 && arr[left - 1] == pivot);
+			int store = left;
+			if (equal) {
+				for (int i = left; i < right; i++) {
+					int current = arr[i];
+					arr[i] = arr[store];
+					arr[store] = current;
+					store += (current <= pivot) ? 1 : 0;
+				}
+			} else {
+				for (int i = left; i < right; i++) {
+					int current = arr[i];
+					arr[i] = arr[store];
+					arr[store] = current;
+					store += (current < pivot) ? 1 : 0;
+				}
+			}
+			arr[right] = arr[store];
+			arr[store] = pivot;
+			
+			if (equal) {
+				left = (store + 1);
+			} else if ((store - left) < (right - store)) {
+				quicksort(arr, left, (store - 1), depthLimit, r, (level + 1));
+				left = (store + 1);
+			} else {
+				quicksort(arr, (store + 1), right, depthLimit, r, (level + 1));
+				right = (store - 1);
+			}
+		}
+		
+		networksort(arr, left, right);
+	}
+	
+	/**
+	 * Heapsorts the range [left, right] of a int[] using a max-heap rooted
+	 * at left.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private void heapsort(int[] arr, int left, int right) {
+		int size = (right - left + 1);
+		for (int i = (size / 2) - 1; i >= 0; i--) {
+			siftDown(arr, left, i, size);
+		}
+		
+		for (int end = (size - 1); end > 0; end--) {
+			int temp = arr[left];
+			arr[left] = arr[left + end];
+			arr[left + end] = temp;
+			siftDown(arr, left, 0, end);
+		}
+	}
+	
+	/**
+	 * Restores the max-heap property below a node of a heap stored at an
+	 * offset inside a int[].
+	 * 
+	 * @param arr The array holding the heap
+	 * @param offset The index of the heap's root
+	 * @param node The heap-relative index of the node to sift down
+	 * @param size The number of values in the heap
+	 */
+	private void siftDown(int[] arr, int offset, int node, int size) {
+		int current = arr[offset + node];
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size && arr[offset + child] < arr[offset + child + 1]) {
+				child++;
+			}
+			
+			if (current >= arr[offset + child]) {
+				break;
+			}
+			
+			arr[offset + node] = arr[offset + child];
+			node = child;
+		}
+		
+		arr[offset + node] = current;
+	}
+	
+	@Override
+	public int[] mergesort(int[] arr) {
+		SortStats call = begin("mergesort(int[])", arr.length, UNCOUNTED);
+		if (arr.length > 1) {
+			allocated(arr.length, Integer.BYTES);
+			mergesort(arr.clone(), arr, 0, arr.length, 0);
+		}
+		end(call);
+		
+		return arr;
+	}
+	
+	/**
+	 * Sorts dest[low, high) by recursively sorting each half into src and
+	 * merging back. On entry both arrays must hold the same values in the
+	 * range, which lets the two buffers swap roles at every level instead of
+	 * copying.
+	 * 
+	 * @param src The scratch buffer for this level
+	 * @param dest The buffer which receives the sorted range
+	 * @param low The first index of the range (inclusive)
+	 * @param high The last index of the range (exclusive)
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private void mergesort(int[] src, int[] dest, int low, int high, int level) {
+		reached(level);
+		if ((high - low) <= INSERTION_THRESHOLD) {
+			networksort(dest, low, (high - 1));
+			return;
+		}
+		
+		int mid = (low + high) >>> 1;
+		mergesort(dest, src, low, mid, (level + 1));
+		mergesort(dest, src, mid, high, (level + 1));
+		
+		if (src[mid] >= src[mid - 1]) {
+			// Halves are already in order, no need to merge
+			System.arraycopy(src, low, dest, low, (high - low));
+			return;
+		}
+		
+		int firstIndex = low;
+		int secondIndex = mid;
+		for (int i = low; i < high; i++) {
+			if (secondIndex >= high 
+					|| (firstIndex < mid && src[secondIndex] >= src[firstIndex])) {
+				dest[i] = src[firstIndex++];
+			} else {
+				dest[i] = src[secondIndex++];
+			}
+		}
+	}
+	
+	@Override
+	public void insertionsort(int[] arr) {
+		SortStats call = begin("insertionsort(int[])", arr.length, UNCOUNTED);
+		insertionsort(arr, 0, (arr.length - 1));
+		end(call);
+	}
+	
+	/**
+	 * Insertion sorts the range [left, right] of a int[].
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private void insertionsort(int[] arr, int left, int right) {
+		for (int x = (left + 1); x <= right; x++) {
+			int current = arr[x];
+			int i = (x - 1);
+			while (i >= left && current < arr[i]) {
+				arr[i + 1] = arr[i];
+				i--;
+			}
+			
+			arr[i + 1] = current;
+		}
+	}
+	
+	/**
+	 * Sorts a range of a int[] no longer than INSERTION_THRESHOLD with a
+	 * sorting network. The comparators are fixed in advance, so each one is a
+	 * min and a max rather than a branch on the data.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private void networksort(int[] arr, int left, int right) {
+		int[] network = NETWORKS[right - left + 1];
+		for (int i = 0; i < network.length; i += 2) {
+			int first = left + network[i];
+			int second = left + network[i + 1];
+			int a = arr[first];
+			int b = arr[second];
+			arr[first] = Math.min(a, b);
+			arr[second] = Math.max(a, b);
+		}
+	}
+	
+	/**
+	 * Builds Batcher's odd-even merge sorting network for n elements. The
+	 * network for the next power of two is generated and every comparator
+	 * which touches an offset past n is dropped, which is safe because the
+	 * missing elements can be thought of as larger than any real one.
+	 * 
+	 * @param n The number of elements
+	 * @return The comparators, as consecutive pairs of offsets
+	 */
+	private static int[] sortingNetwork(int n) {
+		int size = 1;
+		while (size < n) {
+			size <<= 1;
+		}
+		
+		int[] pairs = new int[2 * n * n];
+		int count = 0;
+		for (int p = 1; p < size; p <<= 1) {
+			for (int k = p; k >= 1; k >>= 1) {
+				for (int j = (k % p); (j + k) < size; j += (2 * k)) {
+					for (int i = 0; i < Math.min(k, (size - j - k)); i++) {
+						int first = (i + j);
+						int second = (i + j + k);
+						if ((first / (2 * p)) == (second / (2 * p)) && second < n) {
+							pairs[count++] = first;
+							pairs[count++] = second;
+						}
+					}
+				}
+			}
+		}
+		
+		int[] network = new int[count];
+		System.arraycopy(pairs, 0, network, 0, count);
+		
+		return network;
+	}
+	
+	@Override
+	public void quicksort(long[] arr, Random r) {
+		SortStats call = begin("quicksort(long[])", arr.length, UNCOUNTED);
+		if (arr.length > 1) {
+			quicksort(arr, 0, (arr.length - 1), (2 * log2(arr.length)), r, 0);
+		}
+		end(call);
+	}
+	
+	/**
+	 * Quicksorts the range [left, right] of a long[] around the median of
+	 * three random samples. The partition loop has no data-dependent branch:
+	 * every element is swapped into the boundary slot and the boundary then
+	 * advances by 0 or 1, which the JIT turns into a conditional move instead
+	 * of a jump that random keys would mispredict half the time. Runs of
+	 * equal keys are split off as in pdqsort, and only the smaller side is
+	 * recursed into, which bounds the stack at O(log n).
+	 * Once depthLimit partitioning steps have been taken the range is
+	 * heapsorted instead, as in introsort, which bounds the running time at
+	 * O(n log n) however the pivots turn out.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @param depthLimit The number of partitioning steps left before heapsort
+	 * @param r The random object used to select pivots
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private void quicksort(long[] arr, int left, int right, int depthLimit, Random r, int level) {
+		reached(level);
+		while ((right - left) >= INSERTION_THRESHOLD) {
+			if (depthLimit == 0) {
+				heapsort(arr, left, right);
+				return;
+			}
+			depthLimit--;
+			
+			int size = (right - left + 1);
+			int a = left + r.nextInt(size);
+			int b = left + r.nextInt(size);
+			int c = left + r.nextInt(size);
+			long median = medianOfThree(arr[a], arr[b], arr[c]);
+			int pivotIndex = (arr[a] == median) ? a : ((arr[b] == median) ? b : c);
+			long pivot = arr[pivotIndex];
+			arr[pivotIndex] = arr[right];
+			arr[right] = pivot;
+			
+			// No key in the range is smaller than the one just before it, so if
+			// the pivot equals that key, the keys equal to the pivot are already
+			// in their final place once they are partitioned to the front
+			boolean equal = (left > 0 && arr[left - 1] == pivot);
+			int store = left;
+			if (equal) {
+				for (int i = left; i < right; i++) {
+					long current = arr[i];
+					arr[i] = arr[store];
+					arr[store] = current;
+					store += (current <= pivot) ? 1 : 0;
+				}
+			} else {
+				for (int i = left; i < right; i++) {
+					long current = arr[i];
+					arr[i] = arr[store];
+					arr[store] = current;
+					store += (current < pivot) ? 1 : 0;
+				}
+			}
+			arr[right] = arr[store];
+			arr[store] = pivot;
+			
+			if (equal) {
+				left = (store + 1);
+			} else if ((store - left) < (right - store)) {
+				quicksort(arr, left, (store - 1), depthLimit, r, (level + 1));
+				left = (store + 1);
+			} else {
+				quicksort(arr, (store + 1), right, depthLimit, r, (level + 1));
+				right = (store - 1);
+			}
+		}
+		
+		networksort(arr, left, right);
+	}
+	
+	/**
+	 * Heapsorts the range [left, right] of a long[] using a max-heap rooted
+	 * at left.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private void heapsort(long[] arr, int left, int right) {
+		int size = (right - left + 1);
+		for (int i = (size / 2) - 1; i >= 0; i--) {
+			siftDown(arr, left, i, size);
+		}
+		
+		for (int end = (size - 1); end > 0; end--) {
+			long temp = arr[left];
+			arr[left] = arr[left + end];
+			arr[left + end] = temp;
+			siftDown(arr, left, 0, end);
+		}
+	}
+	
+	/**
+	 * Restores the max-heap property below a node of a heap stored at an
+	 * offset inside a long[].
+	 * 
+	 * @param arr The array holding the heap
+	 * @param offset The index of the heap's root
+	 * @param node The heap-relative index of the node to sift down
+	 * @param size The number of values in the heap
+	 */
+	private void siftDown(long[] arr, int offset, int node, int size) {
+		long current = arr[offset + node];
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size && arr[offset + child] < arr[offset + child + 1]) {
+				child++;
+			}
+			
+			if (current >= arr[offset + child]) {
+				break;
+			}
+			
+			arr[offset + node] = arr[offset + child];
+			node = child;
+		}
+		
+		arr[offset + node] = current;
+	}
+	
+	@Override
+	public long[] mergesort(long[] arr) {
+		SortStats call = begin("mergesort(long[])", arr.length, UNCOUNTED);
+		if (arr.length > 1) {
+			allocated(arr.length, Long.BYTES);
+			mergesort(arr.clone(), arr, 0, arr.length, 0);
+		}
+		end(call);
+		
+		return arr;
+	}
+	
+	/**
+	 * Sorts dest[low, high) by recursively sorting each half into src and
+	 * merging back. On entry both arrays must hold the same values in the
+	 * range, which lets the two buffers swap roles at every level instead of
+	 * copying.
+	 * 
+	 * @param src The scratch buffer for this level
+	 * @param dest The buffer which receives the sorted range
+	 * @param low The first index of the range (inclusive)
+	 * @param high The last index of the range (exclusive)
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private void mergesort(long[] src, long[] dest, int low, int high, int level) {
+		reached(level);
+		if ((high - low) <= INSERTION_THRESHOLD) {
+			networksort(dest, low, (high - 1));
+			return;
+		}
+		
+		int mid = (low + high) >>> 1;
+		mergesort(dest, src, low, mid, (level + 1));
+		mergesort(dest, src, mid, high, (level + 1));
+		
+		if (src[mid] >= src[mid - 1]) {
+			// Halves are already in order, no need to merge
+			System.arraycopy(src, low, dest, low, (high - low));
+			return;
+		}
+		
+		int firstIndex = low;
+		int secondIndex = mid;
+		for (int i = low; i < high; i++) {
+			if (secondIndex >= high 
+					|| (firstIndex < mid && src[secondIndex] >= src[firstIndex])) {
+				dest[i] = src[firstIndex++];
+			} else {
+				dest[i] = src[secondIndex++];
+			}
+		}
+	}
+	
+	@Override
+	public void insertionsort(long[] arr) {
+		SortStats call = begin("insertionsort(long[])", arr.length, UNCOUNTED);
+		insertionsort(arr, 0, (arr.length - 1));
+		end(call);
+	}
+	
+	/**
+	 * Insertion sorts the range [left, right] of a long[].
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private void insertionsort(long[] arr, int left, int right) {
+		for (int x = (left + 1); x <= right; x++) {
+			long current = arr[x];
+			int i = (x - 1);
+			while (i >= left && current < arr[i]) {
+				arr[i + 1] = arr[i];
+				i--;
+			}
+			
+			arr[i + 1] = current;
+		}
+	}
+	
+	/**
+	 * Sorts a range of a long[] no longer than INSERTION_THRESHOLD with a
+	 * sorting network. The comparators are fixed in advance, so each one is a
+	 * min and a max rather than a branch on the data.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private void networksort(long[] arr, int left, int right) {
+		int[] network = NETWORKS[right - left + 1];
+		for (int i = 0; i < network.length; i += 2) {
+			int first = left + network[i];
+			int second = left + network[i + 1];
+			long a = arr[first];
+			long b = arr[second];
+			arr[first] = Math.min(a, b);
+			arr[second] = Math.max(a, b);
+		}
+	}
+	
+	@Override
+	public void quicksort(double[] arr, Random r) {
+		SortStats call = begin("quicksort(double[])", arr.length, UNCOUNTED);
+		// The partition compares with < and ==, so NaNs are moved to the end
+		// first, and -0.0 and 0.0, which those treat as equal, are put in
+		// order afterwards
+		int end = arr.length;
+		for (int i = (end - 1); i >= 0; i--) {
+			if (Double.isNaN(arr[i])) {
+				double nan = arr[i];
+				arr[i] = arr[--end];
+				arr[end] = nan;
+			}
+		}
+		
+		if (end > 1) {
+			quicksort(arr, 0, (end - 1), (2 * log2(end)), r, 0);
+		}
+		orderZeros(arr, end);
+		end(call);
+	}
+	
+	/**
+	 * Puts the zeros of a sorted range of a double[] in order, every -0.0
+	 * before every 0.0.
+	 * 
+	 * @param arr The array holding the range
+	 * @param end The end of the range, which starts at 0 (exclusive)
+	 */
+	private void orderZeros(double[] arr, int end) {
+		int low = 0;
+		int high = end;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (arr[mid] < 0.0) {
+				low = (mid + 1);
+			} else {
+				high = mid;
+			}
+		}
+		
+		int negatives = 0;
+		int zeros = low;
+		while (zeros < end && arr[zeros] == 0.0) {
+			if (Double.doubleToRawLongBits(arr[zeros++]) < 0) {
+				negatives++;
+			}
+		}
+		
+		for (int i = low; i < zeros; i++) {
+			arr[i] = (i < (low + negatives)) ? -0.0 : 0.0;
+		}
+	}
+	
+	/**
+	 * Quicksorts the range [left, right] of a double[] around the median of
+	 * three random samples. The partition loop has no data-dependent branch:
+	 * every element is swapped into the boundary slot and the boundary then
+	 * advances by 0 or 1, which the JIT turns into a conditional move instead
+	 * of a jump that random keys would mispredict half the time. Runs of
+	 * equal keys are split off as in pdqsort, and only the smaller side is
+	 * recursed into, which bounds the stack at O(log n).
+	 * Once depthLimit partitioning steps have been taken the range is
+	 * heapsorted instead, as in introsort, which bounds the running time at
+	 * O(n log n) however the pivots turn out.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @param depthLimit The number of partitioning steps left before heapsort
+	 * @param r The random object used to select pivots
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private void quicksort(double[] arr, int left, int right, int depthLimit, Random r, int level) {
+		reached(level);
+		while ((right - left) >= INSERTION_THRESHOLD) {
+			if (depthLimit == 0) {
+				heapsort(arr, left, right);
+				return;
+			}
+			depthLimit--;
+			
+			int size = (right - left + 1);
+			int a = left + r.nextInt(size);
+			int b = left + r.nextInt(size);
+			int c = left + r.nextInt(size);
+			double median = medianOfThree(arr[a], arr[b], arr[c]);
+			int pivotIndex = (arr[a] == median) ? a : ((arr[b] == median) ? b : c);
+			double pivot = arr[pivotIndex];
+			arr[pivotIndex] = arr[right];
+			arr[right] = pivot;
+			
+			// No key in the range is smaller than the one just before it, so if
+			// the pivot equals that key, the keys equal to the pivot are already
+			// in their final place once they are partitioned to the front
+			boolean equal = (left > 0 && arr[left - 1] == pivot);
+			int store = left;
+			if (equal) {
+				for (int i = left; i < right; i++) {
+					double current = arr[i];
+					arr[i] = arr[store];
+					arr[store] = current;
+					store += (current <= pivot) ? 1 : 0;
+				}
+			} else {
+				for (int i = left; i < right; i++) {
+					double current = arr[i];
+					arr[i] = arr[store];
+					arr[store] = current;
+					store += (current < pivot) ? 1 : 0;
+				}
+			}
+			arr[right] = arr[store];
+			arr[store] = pivot;
+			
+			if (equal) {
+				left = (store + 1);
+			} else if ((store - left) < (right - store)) {
+				quicksort(arr, left, (store - 1), depthLimit, r, (level + 1));
+				left = (store + 1);
+			} else {
+				quicksort(arr, (store + 1), right, depthLimit, r, (level + 1));
+				right = (store - 1);
+			}
+		}
+		
+		networksort(arr, left, right);
+	}
+	
+	/**
+	 * Heapsorts the range [left, right] of a double[] using a max-heap rooted
+	 * at left.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private void heapsort(double[] arr, int left, int right) {
+		int size = (right - left + 1);
+		for (int i = (size / 2) - 1; i >= 0; i--) {
+			siftDown(arr, left, i, size);
+		}
+		
+		for (int end = (size - 1); end > 0; end--) {
+			double temp = arr[left];
+			arr[left] = arr[left + end];
+			arr[left + end] = temp;
+			siftDown(arr, left, 0, end);
+		}
+	}
+	
+	/**
+	 * Restores the max-heap property below a node of a heap stored at an
+	 * offset inside a double[].
+	 * 
+	 * @param arr The array holding the heap
+	 * @param offset The index of the heap's root
+	 * @param node The heap-relative index of the node to sift down
+	 * @param size The number of values in the heap
+	 */
+	private void siftDown(double[] arr, int offset, int node, int size) {
+		double current = arr[offset + node];
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size && arr[offset + child] < arr[offset + child + 1]) {
+				child++;
+			}
+			
+			if (current >= arr[offset + child]) {
+				break;
+			}
+			
+			arr[offset + node] = arr[offset + child];
+			node = child;
+		}
+		
+		arr[offset + node] = current;
+	}
+	
+	@Override
+	public double[] mergesort(double[] arr) {
+		SortStats call = begin("mergesort(double[])", arr.length, UNCOUNTED);
+		if (arr.length > 1) {
+			allocated(arr.length, Double.BYTES);
+			mergesort(arr.clone(), arr, 0, arr.length, 0);
+		}
+		end(call);
+		
+		return arr;
+	}
+	
+	/**
+	 * Sorts dest[low, high) by recursively sorting each half into src and
+	 * merging back. On entry both arrays must hold the same values in the
+	 * range, which lets the two buffers swap roles at every level instead of
+	 * copying.
+	 * 
+	 * @param src The scratch buffer for this level
+	 * @param dest The buffer which receives the sorted range
+	 * @param low The first index of the range (inclusive)
+	 * @param high The last index of the range (exclusive)
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private void mergesort(double[] src, double[] dest, int low, int high, int level) {
+		reached(level);
+		if ((high - low) <= INSERTION_THRESHOLD) {
+			insertionsort(dest, low, (high - 1));
+			return;
+		}
+		
+		int mid = (low + high) >>> 1;
+		mergesort(dest, src, low, mid, (level + 1));
+		mergesort(dest, src, mid, high, (level + 1));
+		
+		if (Double.compare(src[mid], src[mid - 1]) >= 0) {
+			// Halves are already in order, no need to merge
+			System.arraycopy(src, low, dest, low, (high - low));
+			return;
+		}
+		
+		int firstIndex = low;
+		int secondIndex = mid;
+		for (int i = low; i < high; i++) {
+			if (secondIndex >= high 
+					|| (firstIndex < mid && Double.compare(src[secondIndex], src[firstIndex]) >= 0)) {
+				dest[i] = src[firstIndex++];
+			} else {
+				dest[i] = src[secondIndex++];
+			}
+		}
+	}
+	
+	@Override
+	public void insertionsort(double[] arr) {
+		SortStats call = begin("insertionsort(double[])", arr.length, UNCOUNTED);
+		insertionsort(arr, 0, (arr.length - 1));
+		end(call);
+	}
+	
+	/**
+	 * Insertion sorts the range [left, right] of a double[].
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private void insertionsort(double[] arr, int left, int right) {
+		for (int x = (left + 1); x <= right; x++) {
+			double current = arr[x];
+			int i = (x - 1);
+			while (i >= left && Double.compare(current, arr[i]) < 0) {
+				arr[i + 1] = arr[i];
+				i--;
+			}
+			
+			arr[i + 1] = current;
+		}
+	}
+	
+	/**
+	 * Sorts a range of a double[] no longer than INSERTION_THRESHOLD with a
+	 * sorting network. The comparators are fixed in advance, so each one is a
+	 * min and a max rather than a branch on the data.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private void networksort(double[] arr, int left, int right) {
+		int[] network = NETWORKS[right - left + 1];
+		for (int i = 0; i < network.length; i += 2) {
+			int first = left + network[i];
+			int second = left + network[i + 1];
+			double a = arr[first];
+			double b = arr[second];
+			arr[first] = Math.min(a, b);
+			arr[second] = Math.max(a, b);
+		}
+	}
+	
+	@Override
+	public void quicksort(float[] arr, Random r) {
+		SortStats call = begin("quicksort(float[])", arr.length, UNCOUNTED);
+		// The partition compares with < and ==, so NaNs are moved to the end
+		// first, and -0.0 and 0.0, which those treat as equal, are put in
+		// order afterwards
+		int end = arr.length;
+		for (int i = (end - 1); i >= 0; i--) {
+			if (Float.isNaN(arr[i])) {
+				float nan = arr[i];
+				arr[i] = arr[--end];
+				arr[end] = nan;
+			}
+		}
+		
+		if (end > 1) {
+			quicksort(arr, 0, (end - 1), (2 * log2(end)), r, 0);
+		}
+		orderZeros(arr, end);
+		end(call);
+	}
+	
+	/**
+	 * Puts the zeros of a sorted range of a float[] in order, every -0.0
+	 * before every 0.0.
+	 * 
+	 * @param arr The array holding the range
+	 * @param end The end of the range, which starts at 0 (exclusive)
+	 */
+	private void orderZeros(float[] arr, int end) {
+		int low = 0;
+		int high = end;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (arr[mid] < 0.0f) {
+				low = (mid + 1);
+			} else {
+				high = mid;
+			}
+		}
+		
+		int negatives = 0;
+		int zeros = low;
+		while (zeros < end && arr[zeros] == 0.0f) {
+			if (Float.floatToRawIntBits(arr[zeros++]) < 0) {
+				negatives++;
+			}
+		}
+		
+		for (int i = low; i < zeros; i++) {
+			arr[i] = (i < (low + negatives)) ? -0.0f : 0.0f;
+		}
+	}
+	
+	/**
+	 * Quicksorts the range [left, right] of a float[] around the median of
+	 * three random samples. The partition loop has no data-dependent branch:
+	 * every element is swapped into the boundary slot and the boundary then
+	 * advances by 0 or 1, which the JIT turns into a conditional move instead
+	 * of a jump that random keys would mispredict half the time. Runs of
+	 * equal keys are split off as in pdqsort, and only the smaller side is
+	 * recursed into, which bounds the stack at O(log n).
+	 * Once depthLimit partitioning steps have been taken the range is
+	 * heapsorted instead, as in introsort, which bounds the running time at
+	 * O(n log n) however the pivots turn out.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @param depthLimit The number of partitioning steps left before heapsort
+	 * @param r The random object used to select pivots
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private void quicksort(float[] arr, int left, int right, int depthLimit, Random r, int level) {
+		reached(level);
+		while ((right - left) >= INSERTION_THRESHOLD) {
+			if (depthLimit == 0) {
+				heapsort(arr, left, right);
+				return;
+			}
+			depthLimit--;
+			
+			int size = (right - left + 1);
+			int a = left + r.nextInt(size);
+			int b = left + r.nextInt(size);
+			int c = left + r.nextInt(size);
+			float median = medianOfThree(arr[a], arr[b], arr[c]);
+			int pivotIndex = (arr[a] == median) ? a : ((arr[b] == median) ? b : c);
+			float pivot = arr[pivotIndex];
+			arr[pivotIndex] = arr[right];
+			arr[right] = pivot;
+			
+			// No key in the range is smaller than the one just before it, so if
+			// the pivot equals that key, the keys equal to the pivot are already
+			// in their final place once they are partitioned to the front
+			boolean equal = (left > 0 && arr[left - 1] == pivot);
+			int store = left;
+			if (equal) {
+				for (int i = left; i < right; i++) {
+					float current = arr[i];
+					arr[i] = arr[store];
+					arr[store] = current;
+					store += (current <= pivot) ? 1 : 0;
+				}
+			} else {
+				for (int i = left; i < right; i++) {
+					float current = arr[i];
+					arr[i] = arr[store];
+					arr[store] = current;
+					store += (current < pivot) ? 1 : 0;
+				}
+			}
+			arr[right] = arr[store];
+			arr[store] = pivot;
+			
+			if (equal) {
+				left = (store + 1);
+			} else if ((store - left) < (right - store)) {
+				quicksort(arr, left, (store - 1), depthLimit, r, (level + 1));
+				left = (store + 1);
+			} else {
+				quicksort(arr, (store + 1), right, depthLimit, r, (level + 1));
+				right = (store - 1);
+			}
+		}
+		
+		networksort(arr, left, right);
+	}
+	
+	/**
+	 * Heapsorts the range [left, right] of a float[] using a max-heap rooted
+	 * at left.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private void heapsort(float[] arr, int left, int right) {
+		int size = (right - left + 1);
+		for (int i = (size / 2) - 1; i >= 0; i--) {
+			siftDown(arr, left, i, size);
+		}
+		
+		for (int end = (size - 1); end > 0; end--) {
+			float temp = arr[left];
+			arr[left] = arr[left + end];
+			arr[left + end] = temp;
+			siftDown(arr, left, 0, end);
+		}
+	}
+	
+	/**
+	 * Restores the max-heap property below a node of a heap stored at an
+	 * offset inside a float[].
+	 * 
+	 * @param arr The array holding the heap
+	 * @param offset The index of the heap's root
+	 * @param node The heap-relative index of the node to sift down
+	 * @param size The number of values in the heap
+	 */
+	private void siftDown(float[] arr, int offset, int node, int size) {
+		float current = arr[offset + node];
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size && arr[offset + child] < arr[offset + child + 1]) {
+				child++;
+			}
+			
+			if (current >= arr[offset + child]) {
+				break;
+			}
+			
+			arr[offset + node] = arr[offset + child];
+			node = child;
+		}
+		
+		arr[offset + node] = current;
+	}
+	
+	@Override
+	public float[] mergesort(float[] arr) {
+		SortStats call = begin("mergesort(float[])", arr.length, UNCOUNTED);
+		if (arr.length > 1) {
+			allocated(arr.length, Float.BYTES);
+			mergesort(arr.clone(), arr, 0, arr.length, 0);
+		}
+		end(call);
+		
+		return arr;
+	}
+	
+	/**
+	 * Sorts dest[low, high) by recursively sorting each half into src and
+	 * merging back. On entry both arrays must hold the same values in the
+	 * range, which lets the two buffers swap roles at every level instead of
+	 * copying.
+	 * 
+	 * @param src The scratch buffer for this level
+	 * @param dest The buffer which receives the sorted range
+	 * @param low The first index of the range (inclusive)
+	 * @param high The last index of the range (exclusive)
+	 * @param level The level of recursion, the top call being 0
+	 */
+	private void mergesort(float[] src, float[] dest, int low, int high, int level) {
+		reached(level);
+		if ((high - low) <= INSERTION_THRESHOLD) {
+			insertionsort(dest, low, (high - 1));
+			return;
+		}
+		
+		int mid = (low + high) >>> 1;
+		mergesort(dest, src, low, mid, (level + 1));
+		mergesort(dest, src, mid, high, (level + 1));
+		
+		if (Float.compare(src[mid], src[mid - 1]) >= 0) {
+			// Halves are already in order, no need to merge
+			System.arraycopy(src, low, dest, low, (high - low));
+			return;
+		}
+		
+		int firstIndex = low;
+		int secondIndex = mid;
+		for (int i = low; i < high; i++) {
+			if (secondIndex >= high 
+					|| (firstIndex < mid && Float.compare(src[secondIndex], src[firstIndex]) >= 0)) {
+				dest[i] = src[firstIndex++];
+			} else {
+				dest[i] = src[secondIndex++];
+			}
+		}
+	}
+	
+	@Override
+	public void insertionsort(float[] arr) {
+		SortStats call = begin("insertionsort(float[])", arr.length, UNCOUNTED);
+		insertionsort(arr, 0, (arr.length - 1));
+		end(call);
+	}
+	
+	/**
+	 * Insertion sorts the range [left, right] of a float[].
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private void insertionsort(float[] arr, int left, int right) {
+		for (int x = (left + 1); x <= right; x++) {
+			float current = arr[x];
+			int i = (x - 1);
+			while (i >= left && Float.compare(current, arr[i]) < 0) {
+				arr[i + 1] = arr[i];
+				i--;
+			}
+			
+			arr[i + 1] = current;
+		}
+	}
+	
+	/**
+	 * Sorts a range of a float[] no longer than INSERTION_THRESHOLD with a
+	 * sorting network. The comparators are fixed in advance, so each one is a
+	 * min and a max rather than a branch on the data.
+	 * 
+	 * @param arr The array to sort
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 */
+	private void networksort(float[] arr, int left, int right) {
+		int[] network = NETWORKS[right - left + 1];
+		for (int i = 0; i < network.length; i += 2) {
+			int first = left + network[i];
+			int second = left + network[i + 1];
+			float a = arr[first];
+			float b = arr[second];
+			arr[first] = Math.min(a, b);
+			arr[second] = Math.max(a, b);
+		}
+	}
+	
+	/**
+	 * Rearranges an array so that arr[k] holds the element which would be
+	 * there if the array were sorted, every element before it is less than
+	 * or equal to it, and every element after it is greater than or equal
+	 * to it (nth_element).
+	 * 
+	 * Uses introselect: quickselect with median-of-three pivots, switching
+	 * to median-of-medians pivots once 2 * log2(n) partitioning steps have
+	 * not found k, so the worst case running time is O(n).
+	 * 
+	 * @param arr The array to select from
+	 * @param k The zero-based rank of the element to select
+	 * @return The k-th smallest element
+	 */
+	public <T extends Comparable<T>> T select(T[] arr, int k) {
+		if (k < 0 || k >= arr.length) {
+			throw new IllegalArgumentException("k is out of bounds!");
+		}
+		
+		SortStats call = begin("select", arr.length);
+		select(arr, 0, (arr.length - 1), k, (2 * log2(arr.length)));
+		end(call);
+		return arr[k];
+	}
+	
+	/**
+	 * Selects rank k within the range [left, right] of an array.
+	 * 
+	 * @param arr The array to select from
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @param k The index the selected element must end up at
+	 * @param budget The number of median-of-three steps left
+	 */
+	private <T extends Comparable<T>> void select(T[] arr, int left, int right, int k, int budget) {
+		while (left < right) {
+			if ((right - left) < INSERTION_THRESHOLD) {
+				insertionsort(arr, left, right);
+				return;
+			}
+			
+			T pivot;
+			if (budget > 0) {
+				budget--;
+				pivot = medianOfThree(arr[left], arr[(left + right) >>> 1], arr[right]);
+			} else {
+				pivot = medianOfMedians(arr, left, right);
+			}
+			
+			int lessIndex = left;
+			int greaterIndex = right;
+			int i = left;
+			while (i <= greaterIndex) {
+				int compare = compare(arr[i], pivot);
+				if (compare < 0) {
+					swap(arr, i++, lessIndex++);
+				} else if (compare > 0) {
+					swap(arr, i, greaterIndex--);
+				} else {
+					i++;
+				}
+			}
+			
+			if (k < lessIndex) {
+				right = (lessIndex - 1);
+			} else if (k > greaterIndex) {
+				left = (greaterIndex + 1);
+			} else {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the median of three elements.
+	 * 
+	 * @param a The first element
+	 * @param b The second element
+	 * @param c The third element
+	 * @return The median
+	 */
+	private <T extends Comparable<T>> T medianOfThree(T a, T b, T c) {
+		if (compare(a, b) > 0) {
+			T temp = a;
+			a = b;
+			b = temp;
+		}
+		
+		if (compare(b, c) <= 0) {
+			return b;
+		}
+		
+		return (compare(a, c) > 0) ? a : c;
+	}
+	
+	/**
+	 * Returns an approximate median of the range [left, right] which is
+	 * guaranteed to have at least 30% of the range on either side: the
+	 * range is split into groups of five, the median of each group is moved
+	 * to the front, and the true median of those medians is selected.
+	 * 
+	 * @param arr The array holding the range
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @return The median of medians
+	 */
+	private <T extends Comparable<T>> T medianOfMedians(T[] arr, int left, int right) {
+		int medians = left;
+		for (int i = left; i <= right; i += 5) {
+			int end = Math.min((i + 4), right);
+			insertionsort(arr, i, end);
+			swap(arr, medians++, ((i + end) >>> 1));
+		}
+		
+		int mid = (left + medians - 1) >>> 1;
+		select(arr, left, (medians - 1), mid, 0);
+		return arr[mid];
+	}
+	
+	/**
+	 * Rearranges an array so that its first k positions hold its k smallest
+	 * elements in sorted order; the order of the rest is unspecified.
+	 * A max-heap of the k smallest elements seen so far is kept at the
+	 * front of the array, so this runs in O(n log k).
+	 * 
+	 * @param arr The array to partially sort
+	 * @param k The number of leading positions to sort
+	 */
+	public <T extends Comparable<T>> void partialSort(T[] arr, int k) {
+		if (k < 0 || k > arr.length) {
+			throw new IllegalArgumentException("k is out of bounds!");
+		}
+		
+		SortStats call = begin("partialSort", arr.length);
+		for (int i = (k / 2) - 1; i >= 0; i--) {
+			siftDown(arr, 0, i, k);
+		}
+		
+		for (int i = k; i < arr.length; i++) {
+			if (compare(arr[i], arr[0]) < 0) {
+				swap(arr, 0, i);
+				siftDown(arr, 0, 0, k);
+			}
+		}
+		
+		for (int end = (k - 1); end > 0; end--) {
+			swap(arr, 0, end);
+			siftDown(arr, 0, 0, end);
+		}
+		end(call);
+	}
+	
+	/**
+	 * Selects the k-th smallest value of a int[] in place.
+	 * 
+	 * @see #select(Comparable[], int)
+	 * @param arr The array to select from
+	 * @param k The zero-based rank of the value to select
+	 * @return The k-th smallest value
+	 */
+	public int select(int[] arr, int k) {
+		if (k < 0 || k >= arr.length) {
+			throw new IllegalArgumentException("k is out of bounds!");
+		}
+		
+		SortStats call = begin("select(int[])", arr.length, UNCOUNTED);
+		select(arr, 0, (arr.length - 1), k, (2 * log2(arr.length)));
+		end(call);
+		return arr[k];
+	}
+	
+	/**
+	 * Selects rank k within the range [left, right] of a int[].
+	 * 
+	 * @param arr The array to select from
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @param k The index the selected value must end up at
+	 * @param budget The number of median-of-three steps left
+	 */
+	private void select(int[] arr, int left, int right, int k, int budget) {
+		while (left < right) {
+			if ((right - left) < INSERTION_THRESHOLD) {
+				insertionsort(arr, left, right);
+				return;
+			}
+			
+			int pivot;
+			if (budget > 0) {
+				budget--;
+				pivot = medianOfThree(arr[left], arr[(left + right) >>> 1], arr[right]);
+			} else {
+				pivot = medianOfMedians(arr, left, right);
+			}
+			
+			int lessIndex = left;
+			int greaterIndex = right;
+			int i = left;
+			while (i <= greaterIndex) {
+				int current = arr[i];
+				if (current < pivot) {
+					arr[i++] = arr[lessIndex];
+					arr[lessIndex++] = current;
+				} else if (pivot < current) {
+					arr[i] = arr[greaterIndex];
+					arr[greaterIndex--] = current;
+				} else {
+					i++;
+				}
+			}
+			
+			if (k < lessIndex) {
+				right = (lessIndex - 1);
+			} else if (k > greaterIndex) {
+				left = (greaterIndex + 1);
+			} else {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the median of three int values.
+	 * 
+	 * @param a The first value
+	 * @param b The second value
+	 * @param c The third value
+	 * @return The median
+	 */
+	private int medianOfThree(int a, int b, int c) {
+		if (b < a) {
+			int temp = a;
+			a = b;
+			b = temp;
+		}
+		
+		if (c >= b) {
+			return b;
+		}
+		
+		return (c < a) ? a : c;
+	}
+	
+	/**
+	 * Returns the median of medians of the range [left, right] of a int[].
+	 * 
+	 * @see #medianOfMedians(Comparable[], int, int)
+	 * @param arr The array holding the range
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @return The median of medians
+	 */
+	private int medianOfMedians(int[] arr, int left, int right) {
+		int medians = left;
+		for (int i = left; i <= right; i += 5) {
+			int end = Math.min((i + 4), right);
+			insertionsort(arr, i, end);
+			int mid = (i + end) >>> 1;
+			int temp = arr[medians];
+			arr[medians++] = arr[mid];
+			arr[mid] = temp;
+		}
+		
+		int mid = (left + medians - 1) >>> 1;
+		select(arr, left, (medians - 1), mid, 0);
+		return arr[mid];
+	}
+	
+	/**
+	 * Sorts the k smallest values of a int[] into its first k positions.
+	 * 
+	 * @see #partialSort(Comparable[], int)
+	 * @param arr The array to partially sort
+	 * @param k The number of leading positions to sort
+	 */
+	public void partialSort(int[] arr, int k) {
+		if (k < 0 || k > arr.length) {
+			throw new IllegalArgumentException("k is out of bounds!");
+		}
+		
+		SortStats call = begin("partialSort(int[])", arr.length, UNCOUNTED);
+		for (int i = (k / 2) - 1; i >= 0; i--) {
+			siftDown(arr, i, k);
+		}
+		
+		for (int i = k; i < arr.length; i++) {
+			if (arr[i] < arr[0]) {
+				int temp = arr[0];
+				arr[0] = arr[i];
+				arr[i] = temp;
+				siftDown(arr, 0, k);
+			}
+		}
+		
+		for (int end = (k - 1); end > 0; end--) {
+			int temp = arr[0];
+			arr[0] = arr[end];
+			arr[end] = temp;
+			siftDown(arr, 0, end);
+		}
+		end(call);
+	}
+	
+	/**
+	 * Restores the max-heap property below a node of a heap stored at the
+	 * front of a int[].
+	 * 
+	 * @param arr The array holding the heap
+	 * @param node The index of the node to sift down
+	 * @param size The number of values in the heap
+	 */
+	private void siftDown(int[] arr, int node, int size) {
+		int current = arr[node];
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size && arr[child] < arr[child + 1]) {
+				child++;
+			}
+			
+			if (current >= arr[child]) {
+				break;
+			}
+			
+			arr[node] = arr[child];
+			node = child;
+		}
+		
+		arr[node] = current;
+	}
+	
+	/**
+	 * Selects the k-th smallest value of a long[] in place.
+	 * 
+	 * @see #select(Comparable[], int)
+	 * @param arr The array to select from
+	 * @param k The zero-based rank of the value to select
+	 * @return The k-th smallest value
+	 */
+	public long select(long[] arr, int k) {
+		if (k < 0 || k >= arr.length) {
+			throw new IllegalArgumentException("k is out of bounds!");
+		}
+		
+		SortStats call = begin("select(long[])", arr.length, UNCOUNTED);
+		select(arr, 0, (arr.length - 1), k, (2 * log2(arr.length)));
+		end(call);
+		return arr[k];
+	}
+	
+	/**
+	 * Selects rank k within the range [left, right] of a long[].
+	 * 
+	 * @param arr The array to select from
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @param k The index the selected value must end up at
+	 * @param budget The number of median-of-three steps left
+	 */
+	private void select(long[] arr, int left, int right, int k, int budget) {
+		while (left < right) {
+			if ((right - left) < INSERTION_THRESHOLD) {
+				insertionsort(arr, left, right);
+				return;
+			}
+			
+			long pivot;
+			if (budget > 0) {
+				budget--;
+				pivot = medianOfThree(arr[left], arr[(left + right) >>> 1], arr[right]);
+			} else {
+				pivot = medianOfMedians(arr, left, right);
+			}
+			
+			int lessIndex = left;
+			int greaterIndex = right;
+			int i = left;
+			while (i <= greaterIndex) {
+				long current = arr[i];
+				if (current < pivot) {
+					arr[i++] = arr[lessIndex];
+					arr[lessIndex++] = current;
+				} else if (pivot < current) {
+					arr[i] = arr[greaterIndex];
+					arr[greaterIndex--] = current;
+				} else {
+					i++;
+				}
+			}
+			
+			if (k < lessIndex) {
+				right = (lessIndex - 1);
+			} else if (k > greaterIndex) {
+				left = (greaterIndex + 1);
+			} else {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the median of three long values.
+	 * 
+	 * @param a The first value
+	 * @param b The second value
+	 * @param c The third value
+	 * @return The median
+	 */
+	private long medianOfThree(long a, long b, long c) {
+		if (b < a) {
+			long temp = a;
+			a = b;
+			b = temp;
+		}
+		
+		if (c >= b) {
+			return b;
+		}
+		
+		return (c < a) ? a : c;
+	}
+	
+	/**
+	 * Returns the median of medians of the range [left, right] of a long[].
+	 * 
+	 * @see #medianOfMedians(Comparable[], int, int)
+	 * @param arr The array holding the range
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @return The median of medians
+	 */
+	private long medianOfMedians(long[] arr, int left, int right) {
+		int medians = left;
+		for (int i = left; i <= right; i += 5) {
+			int end = Math.min((i + 4), right);
+			insertionsort(arr, i, end);
+			int mid = (i + end) >>> 1;
+			long temp = arr[medians];
+			arr[medians++] = arr[mid];
+			arr[mid] = temp;
+		}
+		
+		int mid = (left + medians - 1) >>> 1;
+		select(arr, left, (medians - 1), mid, 0);
+		return arr[mid];
+	}
+	
+	/**
+	 * Sorts the k smallest values of a long[] into its first k positions.
+	 * 
+	 * @see #partialSort(Comparable[], int)
+	 * @param arr The array to partially sort
+	 * @param k The number of leading positions to sort
+	 */
+	public void partialSort(long[] arr, int k) {
+		if (k < 0 || k > arr.length) {
+			throw new IllegalArgumentException("k is out of bounds!");
+		}
+		
+		SortStats call = begin("partialSort(long[])", arr.length, UNCOUNTED);
+		for (int i = (k / 2) - 1; i >= 0; i--) {
+			siftDown(arr, i, k);
+		}
+		
+		for (int i = k; i < arr.length; i++) {
+			if (arr[i] < arr[0]) {
+				long temp = arr[0];
+				arr[0] = arr[i];
+				arr[i] = temp;
+				siftDown(arr, 0, k);
+			}
+		}
+		
+		for (int end = (k - 1); end > 0; end--) {
+			long temp = arr[0];
+			arr[0] = arr[end];
+			arr[end] = temp;
+			siftDown(arr, 0, end);
+		}
+		end(call);
+	}
+	
+	/**
+	 * Restores the max-heap property below a node of a heap stored at the
+	 * front of a long[].
+	 * 
+	 * @param arr The array holding the heap
+	 * @param node The index of the node to sift down
+	 * @param size The number of values in the heap
+	 */
+	private void siftDown(long[] arr, int node, int size) {
+		long current = arr[node];
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size && arr[child] < arr[child + 1]) {
+				child++;
+			}
+			
+			if (current >= arr[child]) {
+				break;
+			}
+			
+			arr[node] = arr[child];
+			node = child;
+		}
+		
+		arr[node] = current;
+	}
+	
+	/**
+	 * Selects the k-th smallest value of a double[] in place.
+	 * 
+	 * @see #select(Comparable[], int)
+	 * @param arr The array to select from
+	 * @param k The zero-based rank of the value to select
+	 * @return The k-th smallest value
+	 */
+	public double select(double[] arr, int k) {
+		if (k < 0 || k >= arr.length) {
+			throw new IllegalArgumentException("k is out of bounds!");
+		}
+		
+		SortStats call = begin("select(double[])", arr.length, UNCOUNTED);
+		select(arr, 0, (arr.length - 1), k, (2 * log2(arr.length)));
+		end(call);
+		return arr[k];
+	}
+	
+	/**
+	 * Selects rank k within the range [left, right] of a double[].
+	 * 
+	 * @param arr The array to select from
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @param k The index the selected value must end up at
+	 * @param budget The number of median-of-three steps left
+	 */
+	private void select(double[] arr, int left, int right, int k, int budget) {
+		while (left < right) {
+			if ((right - left) < INSERTION_THRESHOLD) {
+				insertionsort(arr, left, right);
+				return;
+			}
+			
+			double pivot;
+			if (budget > 0) {
+				budget--;
+				pivot = medianOfThree(arr[left], arr[(left + right) >>> 1], arr[right]);
+			} else {
+				pivot = medianOfMedians(arr, left, right);
+			}
+			
+			int lessIndex = left;
+			int greaterIndex = right;
+			int i = left;
+			while (i <= greaterIndex) {
+				double current = arr[i];
+				if (Double.compare(current, pivot) < 0) {
+					arr[i++] = arr[lessIndex];
+					arr[lessIndex++] = current;
+				} else if (Double.compare(pivot, current) < 0) {
+					arr[i] = arr[greaterIndex];
+					arr[greaterIndex--] = current;
+				} else {
+					i++;
+				}
+			}
+			
+			if (k < lessIndex) {
+				right = (lessIndex - 1);
+			} else if (k > greaterIndex) {
+				left = (greaterIndex + 1);
+			} else {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the median of three double values.
+	 * 
+	 * @param a The first value
+	 * @param b The second value
+	 * @param c The third value
+	 * @return The median
+	 */
+	private double medianOfThree(double a, double b, double c) {
+		if (Double.compare(b, a) < 0) {
+			double temp = a;
+			a = b;
+			b = temp;
+		}
+		
+		if (Double.compare(c, b) >= 0) {
+			return b;
+		}
+		
+		return (Double.compare(c, a) < 0) ? a : c;
+	}
+	
+	/**
+	 * Returns the median of medians of the range [left, right] of a double[].
+	 * 
+	 * @see #medianOfMedians(Comparable[], int, int)
+	 * @param arr The array holding the range
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @return The median of medians
+	 */
+	private double medianOfMedians(double[] arr, int left, int right) {
+		int medians = left;
+		for (int i = left; i <= right; i += 5) {
+			int end = Math.min((i + 4), right);
+			insertionsort(arr, i, end);
+			int mid = (i + end) >>> 1;
+			double temp = arr[medians];
+			arr[medians++] = arr[mid];
+			arr[mid] = temp;
+		}
+		
+		int mid = (left + medians - 1) >>> 1;
+		select(arr, left, (medians - 1), mid, 0);
+		return arr[mid];
+	}
+	
+	/**
+	 * Sorts the k smallest values of a double[] into its first k positions.
+	 * 
+	 * @see #partialSort(Comparable[], int)
+	 * @param arr The array to partially sort
+	 * @param k The number of leading positions to sort
+	 */
+	public void partialSort(double[] arr, int k) {
+		if (k < 0 || k > arr.length) {
+			throw new IllegalArgumentException("k is out of bounds!");
+		}
+		
+		SortStats call = begin("partialSort(double[])", arr.length, UNCOUNTED);
+		for (int i = (k / 2) - 1; i >= 0; i--) {
+			siftDown(arr, i, k);
+		}
+		
+		for (int i = k; i < arr.length; i++) {
+			if (Double.compare(arr[i], arr[0]) < 0) {
+				double temp = arr[0];
+				arr[0] = arr[i];
+				arr[i] = temp;
+				siftDown(arr, 0, k);
+			}
+		}
+		
+		for (int end = (k - 1); end > 0; end--) {
+			double temp = arr[0];
+			arr[0] = arr[end];
+			arr[end] = temp;
+			siftDown(arr, 0, end);
+		}
+		end(call);
+	}
+	
+	/**
+	 * Restores the max-heap property below a node of a heap stored at the
+	 * front of a double[].
+	 * 
+	 * @param arr The array holding the heap
+	 * @param node The index of the node to sift down
+	 * @param size The number of values in the heap
+	 */
+	private void siftDown(double[] arr, int node, int size) {
+		double current = arr[node];
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size && Double.compare(arr[child], arr[child + 1]) < 0) {
+				child++;
+			}
+			
+			if (Double.compare(current, arr[child]) >= 0) {
+				break;
+			}
+			
+			arr[node] = arr[child];
+			node = child;
+		}
+		
+		arr[node] = current;
+	}
+	
+	/**
+	 * Selects the k-th smallest value of a float[] in place.
+	 * 
+	 * @see #select(Comparable[], int)
+	 * @param arr The array to select from
+	 * @param k The zero-based rank of the value to select
+	 * @return The k-th smallest value
+	 */
+	public float select(float[] arr, int k) {
+		if (k < 0 || k >= arr.length) {
+			throw new IllegalArgumentException("k is out of bounds!");
+		}
+		
+		SortStats call = begin("select(float[])", arr.length, UNCOUNTED);
+		select(arr, 0, (arr.length - 1), k, (2 * log2(arr.length)));
+		end(call);
+		return arr[k];
+	}
+	
+	/**
+	 * Selects rank k within the range [left, right] of a float[].
+	 * 
+	 * @param arr The array to select from
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @param k The index the selected value must end up at
+	 * @param budget The number of median-of-three steps left
+	 */
+	private void select(float[] arr, int left, int right, int k, int budget) {
+		while (left < right) {
+			if ((right - left) < INSERTION_THRESHOLD) {
+				insertionsort(arr, left, right);
+				return;
+			}
+			
+			float pivot;
+			if (budget > 0) {
+				budget--;
+				pivot = medianOfThree(arr[left], arr[(left + right) >>> 1], arr[right]);
+			} else {
+				pivot = medianOfMedians(arr, left, right);
+			}
+			
+			int lessIndex = left;
+			int greaterIndex = right;
+			int i = left;
+			while (i <= greaterIndex) {
+				float current = arr[i];
+				if (Float.compare(current, pivot) < 0) {
+					arr[i++] = arr[lessIndex];
+					arr[lessIndex++] = current;
+				} else if (Float.compare(pivot, current) < 0) {
+					arr[i] = arr[greaterIndex];
+					arr[greaterIndex--] = current;
+				} else {
+					i++;
+				}
+			}
+			
+			if (k < lessIndex) {
+				right = (lessIndex - 1);
+			} else if (k > greaterIndex) {
+				left = (greaterIndex + 1);
+			} else {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the median of three float values.
+	 * 
+	 * @param a The first value
+	 * @param b The second value
+	 * @param c The third value
+	 * @return The median
+	 */
+	private float medianOfThree(float a, float b, float c) {
+		if (Float.compare(b, a) < 0) {
+			float temp = a;
+			a = b;
+			b = temp;
+		}
+		
+		if (Float.compare(c, b) >= 0) {
+			return b;
+		}
+		
+		return (Float.compare(c, a) < 0) ? a : c;
+	}
+	
+	/**
+	 * Returns the median of medians of the range [left, right] of a float[].
+	 * 
+	 * @see #medianOfMedians(Comparable[], int, int)
+	 * @param arr The array holding the range
+	 * @param left The first index of the range (inclusive)
+	 * @param right The last index of the range (inclusive)
+	 * @return The median of medians
+	 */
+	private float medianOfMedians(float[] arr, int left, int right) {
+		int medians = left;
+		for (int i = left; i <= right; i += 5) {
+			int end = Math.min((i + 4), right);
+			insertionsort(arr, i, end);
+			int mid = (i + end) >>> 1;
+			float temp = arr[medians];
+			arr[medians++] = arr[mid];
+			arr[mid] = temp;
+		}
+		
+		int mid = (left + medians - 1) >>> 1;
+		select(arr, left, (medians - 1), mid, 0);
+		return arr[mid];
+	}
+	
+	/**
+	 * Sorts the k smallest values of a float[] into its first k positions.
+	 * 
+	 * @see #partialSort(Comparable[], int)
+	 * @param arr The array to partially sort
+	 * @param k The number of leading positions to sort
+	 */
+	public void partialSort(float[] arr, int k) {
+		if (k < 0 || k > arr.length) {
+			throw new IllegalArgumentException("k is out of bounds!");
+		}
+		
+		SortStats call = begin("partialSort(float[])", arr.length, UNCOUNTED);
+		for (int i = (k / 2) - 1; i >= 0; i--) {
+			siftDown(arr, i, k);
+		}
+		
+		for (int i = k; i < arr.length; i++) {
+			if (Float.compare(arr[i], arr[0]) < 0) {
+				float temp = arr[0];
+				arr[0] = arr[i];
+				arr[i] = temp;
+				siftDown(arr, 0, k);
+			}
+		}
+		
+		for (int end = (k - 1); end > 0; end--) {
+			float temp = arr[0];
+			arr[0] = arr[end];
+			arr[end] = temp;
+			siftDown(arr, 0, end);
+		}
+		end(call);
+	}
+	
+	/**
+	 * Restores the max-heap property below a node of a heap stored at the
+	 * front of a float[].
+	 * 
+	 * @param arr The array holding the heap
+	 * @param node The index of the node to sift down
+	 * @param size The number of values in the heap
+	 */
+	private void siftDown(float[] arr, int node, int size) {
+		float current = arr[node];
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size && Float.compare(arr[child], arr[child + 1]) < 0) {
+				child++;
+			}
+			
+			if (Float.compare(current, arr[child]) >= 0) {
+				break;
+			}
+			
+			arr[node] = arr[child];
+			node = child;
+		}
+		
+		arr[node] = current;
+	}
+
+}
\ No newline at end of file
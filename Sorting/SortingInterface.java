@@ -111,4 +111,149 @@ public interface SortingInterface {
 	 * @return
 	 */
 	public int[] radixsort(int[] arr);
+
+	/**
+	 * Implement quick sort over a primitive int[].
+	 * 
+	 * Use the provided random object to select your pivots, exactly as
+	 * in the Comparable version. No wrapper objects may be created.
+	 * 
+	 * It should be:
+	 *  inplace
+	 *  
+	 * Have a worst case running time of:
+	 *  O(n^2)
+	 *  
+	 * And a best case running time of:
+	 *  O(n log n)
+	 * 
+	 * @param arr
+	 * @param r
+	 */
+	public void quicksort(int[] arr, Random r);
+	
+	/**
+	 * Implement quick sort over a primitive long[].
+	 * 
+	 * @see #quicksort(int[], Random)
+	 * @param arr
+	 * @param r
+	 */
+	public void quicksort(long[] arr, Random r);
+	
+	/**
+	 * Implement quick sort over a primitive double[].
+	 * 
+	 * Values are ordered the same way as Double.compare: -0.0 sorts
+	 * before 0.0, and every NaN sorts after positive infinity.
+	 * 
+	 * @see #quicksort(int[], Random)
+	 * @param arr
+	 * @param r
+	 */
+	public void quicksort(double[] arr, Random r);
+	
+	/**
+	 * Implement quick sort over a primitive float[].
+	 * 
+	 * Values are ordered the same way as Float.compare: -0.0f sorts
+	 * before 0.0f, and every NaN sorts after positive infinity.
+	 * 
+	 * @see #quicksort(int[], Random)
+	 * @param arr
+	 * @param r
+	 */
+	public void quicksort(float[] arr, Random r);
+	
+	/**
+	 * Implement merge sort over a primitive int[].
+	 * 
+	 * The array is sorted in place using a single scratch buffer of the
+	 * same length; no per-element allocation may occur.
+	 * 
+	 * It should be:
+	 *  stable
+	 *  
+	 * Have a worst case running time of:
+	 *  O(n log n)
+	 *  
+	 * And a best case running time of:
+	 *  O(n)
+	 *  
+	 * @param arr
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public int[] mergesort(int[] arr);
+	
+	/**
+	 * Implement merge sort over a primitive long[].
+	 * 
+	 * @see #mergesort(int[])
+	 * @param arr
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public long[] mergesort(long[] arr);
+	
+	/**
+	 * Implement merge sort over a primitive double[], ordered as by
+	 * Double.compare.
+	 * 
+	 * @see #mergesort(int[])
+	 * @param arr
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public double[] mergesort(double[] arr);
+	
+	/**
+	 * Implement merge sort over a primitive float[], ordered as by
+	 * Float.compare.
+	 * 
+	 * @see #mergesort(int[])
+	 * @param arr
+	 * @return the sorted array (the same instance that was passed in)
+	 */
+	public float[] mergesort(float[] arr);
+	
+	/**
+	 * Implement insertion sort over a primitive int[].
+	 * 
+	 * It should be:
+	 *  inplace
+	 *  stable
+	 *  
+	 * Have a worst case running time of:
+	 *  O(n^2)
+	 *  
+	 * And a best case running time of:
+	 *  O(n)
+	 * 
+	 * @param arr
+	 */
+	public void insertionsort(int[] arr);
+	
+	/**
+	 * Implement insertion sort over a primitive long[].
+	 * 
+	 * @see #insertionsort(int[])
+	 * @param arr
+	 */
+	public void insertionsort(long[] arr);
+	
+	/**
+	 * Implement insertion sort over a primitive double[], ordered as by
+	 * Double.compare.
+	 * 
+	 * @see #insertionsort(int[])
+	 * @param arr
+	 */
+	public void insertionsort(double[] arr);
+	
+	/**
+	 * Implement insertion sort over a primitive float[], ordered as by
+	 * Float.compare.
+	 * 
+	 * @see #insertionsort(int[])
+	 * @param arr
+	 */
+	public void insertionsort(float[] arr);
 }
\ No newline at end of file
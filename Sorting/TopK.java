@@ -0,0 +1,443 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+/**
+ * The TopK class collects the k greatest elements of a stream without ever
+ * holding more than k of them, or more room than the elements seen so far
+ * need. The elements kept so far sit in a bounded min-heap whose root is
+ * the smallest of them, so each new element costs one comparison when it
+ * does not qualify and O(log k) when it does, for O(n log k) overall.
+ *
+ * To collect the k smallest elements instead, construct a TopK with
+ * Comparator.reverseOrder(). Streams can be fed in through their iterator:
+ *
+ *		TopK.largest(scores.iterator(), 100)
+ *
+ * @param <T> The type of element being collected
+ */
+public class TopK<T> {
+	private final int k;
+	private final Comparator<? super T> order;
+	private final List<T> heap;
+
+	/**
+	 * Constructs a new TopK which keeps the k greatest elements by their
+	 * natural order.
+	 *
+	 * @param k The number of elements to keep
+	 * @return The new collector
+	 */
+	public static <T extends Comparable<? super T>> TopK<T> naturalOrder(int k) {
+		return new TopK<T>(k, Comparator.<T>naturalOrder());
+	}
+
+	/**
+	 * Constructs a new TopK which keeps the k greatest elements by an order.
+	 *
+	 * @param k The number of elements to keep
+	 * @param order The order elements are ranked by
+	 */
+	public TopK(int k, Comparator<? super T> order) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k cannot be negative!");
+		} else if (order == null) {
+			throw new IllegalArgumentException("Order cannot be null!");
+		}
+
+		this.k = k;
+		this.order = order;
+		this.heap = new ArrayList<T>(Math.min(k, 1 << 10));
+	}
+
+	/**
+	 * Offers an element to the collector.
+	 *
+	 * @param element The element to offer
+	 * @return true if the element is currently among the k greatest
+	 */
+	public boolean offer(T element) {
+		if (heap.size() < k) {
+			heap.add(element);
+			siftUp(heap.size() - 1);
+			return true;
+		} else if (k > 0 && order.compare(element, heap.get(0)) > 0) {
+			heap.set(0, element);
+			siftDown(0);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Offers every remaining element of an iterator to the collector.
+	 *
+	 * @param elements The elements to offer
+	 * @return This collector
+	 */
+	public TopK<T> offerAll(Iterator<? extends T> elements) {
+		while (elements.hasNext()) {
+			offer(elements.next());
+		}
+
+		return this;
+	}
+
+	/**
+	 * Returns the number of elements currently kept.
+	 *
+	 * @return The number of elements kept, at most k
+	 */
+	public int size() {
+		return heap.size();
+	}
+
+	/**
+	 * Returns the elements kept so far, greatest first.
+	 *
+	 * @return A new list of the kept elements
+	 */
+	public List<T> toList() {
+		List<T> result = new ArrayList<T>(heap);
+		Collections.sort(result, Collections.reverseOrder(order));
+		return result;
+	}
+
+	/**
+	 * Returns the k greatest elements of an iterator, greatest first.
+	 *
+	 * @param elements The elements to rank
+	 * @param k The number of elements to return
+	 * @return The k greatest elements
+	 */
+	public static <T extends Comparable<? super T>> List<T> largest(Iterator<? extends T> elements, int k) {
+		return TopK.<T>naturalOrder(k).offerAll(elements).toList();
+	}
+
+	/**
+	 * Returns the k greatest values of an int iterator, greatest first,
+	 * without boxing any of them.
+	 *
+	 * @param values The values to rank
+	 * @param k The number of values to return
+	 * @return The k greatest values, or all of them if there are fewer
+	 */
+	public static int[] largest(PrimitiveIterator.OfInt values, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k cannot be negative!");
+		}
+
+		int[] heap = new int[Math.min(k, 1 << 10)];
+		int size = 0;
+		while (values.hasNext()) {
+			int value = values.nextInt();
+			if (size < k) {
+				if (size == heap.length) {
+					heap = Arrays.copyOf(heap, grow(heap.length, k));
+				}
+				siftUp(heap, size++, value);
+			} else if (k > 0 && value > heap[0]) {
+				siftDown(heap, size, value);
+			}
+		}
+
+		return drain(heap, size);
+	}
+
+	/**
+	 * Returns the k greatest values of a long iterator, greatest first,
+	 * without boxing any of them.
+	 *
+	 * @param values The values to rank
+	 * @param k The number of values to return
+	 * @return The k greatest values, or all of them if there are fewer
+	 */
+	public static long[] largest(PrimitiveIterator.OfLong values, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k cannot be negative!");
+		}
+
+		long[] heap = new long[Math.min(k, 1 << 10)];
+		int size = 0;
+		while (values.hasNext()) {
+			long value = values.nextLong();
+			if (size < k) {
+				if (size == heap.length) {
+					heap = Arrays.copyOf(heap, grow(heap.length, k));
+				}
+				siftUp(heap, size++, value);
+			} else if (k > 0 && value > heap[0]) {
+				siftDown(heap, size, value);
+			}
+		}
+
+		return drain(heap, size);
+	}
+
+	/**
+	 * Returns the k greatest values of a double iterator, greatest first,
+	 * without boxing any of them. Values are ranked by Double.compare, so NaN
+	 * is greater than every other value and 0.0 is greater than -0.0.
+	 *
+	 * @param values The values to rank
+	 * @param k The number of values to return
+	 * @return The k greatest values, or all of them if there are fewer
+	 */
+	public static double[] largest(PrimitiveIterator.OfDouble values, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k cannot be negative!");
+		}
+
+		double[] heap = new double[Math.min(k, 1 << 10)];
+		int size = 0;
+		while (values.hasNext()) {
+			double value = values.nextDouble();
+			if (size < k) {
+				if (size == heap.length) {
+					heap = Arrays.copyOf(heap, grow(heap.length, k));
+				}
+				siftUp(heap, size++, value);
+			} else if (k > 0 && Double.compare(value, heap[0]) > 0) {
+				siftDown(heap, size, value);
+			}
+		}
+
+		return drain(heap, size);
+	}
+
+	/**
+	 * Returns the capacity to grow a primitive heap to once it is full,
+	 * doubling it but never past k.
+	 *
+	 * @param capacity The current capacity
+	 * @param k The number of values to keep
+	 * @return The new capacity
+	 */
+	private static int grow(int capacity, int k) {
+		return (int) Math.min(k, (2L * capacity));
+	}
+
+	/**
+	 * Moves a value added at the end of an int min-heap up into place.
+	 *
+	 * @param heap The heap
+	 * @param node The index the value was added at
+	 * @param value The value
+	 */
+	private static void siftUp(int[] heap, int node, int value) {
+		while (node > 0 && value < heap[(node - 1) >>> 1]) {
+			heap[node] = heap[(node - 1) >>> 1];
+			node = (node - 1) >>> 1;
+		}
+
+		heap[node] = value;
+	}
+
+	/**
+	 * Replaces the root of an int min-heap with a value and moves it
+	 * down into place.
+	 *
+	 * @param heap The heap
+	 * @param size The number of values in the heap
+	 * @param value The new value
+	 */
+	private static void siftDown(int[] heap, int size, int value) {
+		int node = 0;
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if (value <= heap[child]) {
+				break;
+			}
+			heap[node] = heap[child];
+			node = child;
+		}
+
+		heap[node] = value;
+	}
+
+	/**
+	 * Empties an int min-heap from the root, moving each smallest value to
+	 * the end of what remains, which leaves the values greatest first.
+	 *
+	 * @param heap The heap
+	 * @param size The number of values in the heap
+	 * @return The values, greatest first
+	 */
+	private static int[] drain(int[] heap, int size) {
+		for (int end = (size - 1); end > 0; end--) {
+			int value = heap[end];
+			heap[end] = heap[0];
+			siftDown(heap, end, value);
+		}
+
+		return Arrays.copyOf(heap, size);
+	}
+
+	/**
+	 * Moves a value added at the end of a long min-heap up into place.
+	 *
+	 * @param heap The heap
+	 * @param node The index the value was added at
+	 * @param value The value
+	 */
+	private static void siftUp(long[] heap, int node, long value) {
+		while (node > 0 && value < heap[(node - 1) >>> 1]) {
+			heap[node] = heap[(node - 1) >>> 1];
+			node = (node - 1) >>> 1;
+		}
+
+		heap[node] = value;
+	}
+
+	/**
+	 * Replaces the root of a long min-heap with a value and moves it
+	 * down into place.
+	 *
+	 * @param heap The heap
+	 * @param size The number of values in the heap
+	 * @param value The new value
+	 */
+	private static void siftDown(long[] heap, int size, long value) {
+		int node = 0;
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if (value <= heap[child]) {
+				break;
+			}
+			heap[node] = heap[child];
+			node = child;
+		}
+
+		heap[node] = value;
+	}
+
+	/**
+	 * Empties a long min-heap from the root, moving each smallest value to
+	 * the end of what remains, which leaves the values greatest first.
+	 *
+	 * @param heap The heap
+	 * @param size The number of values in the heap
+	 * @return The values, greatest first
+	 */
+	private static long[] drain(long[] heap, int size) {
+		for (int end = (size - 1); end > 0; end--) {
+			long value = heap[end];
+			heap[end] = heap[0];
+			siftDown(heap, end, value);
+		}
+
+		return Arrays.copyOf(heap, size);
+	}
+
+	/**
+	 * Moves a value added at the end of a double min-heap up into place.
+	 *
+	 * @param heap The heap
+	 * @param node The index the value was added at
+	 * @param value The value
+	 */
+	private static void siftUp(double[] heap, int node, double value) {
+		while (node > 0 && Double.compare(value, heap[(node - 1) >>> 1]) < 0) {
+			heap[node] = heap[(node - 1) >>> 1];
+			node = (node - 1) >>> 1;
+		}
+
+		heap[node] = value;
+	}
+
+	/**
+	 * Replaces the root of a double min-heap with a value and moves it
+	 * down into place.
+	 *
+	 * @param heap The heap
+	 * @param size The number of values in the heap
+	 * @param value The new value
+	 */
+	private static void siftDown(double[] heap, int size, double value) {
+		int node = 0;
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size && Double.compare(heap[child + 1], heap[child]) < 0) {
+				child++;
+			}
+			if (Double.compare(value, heap[child]) <= 0) {
+				break;
+			}
+			heap[node] = heap[child];
+			node = child;
+		}
+
+		heap[node] = value;
+	}
+
+	/**
+	 * Empties a double min-heap from the root, moving each smallest value to
+	 * the end of what remains, which leaves the values greatest first.
+	 *
+	 * @param heap The heap
+	 * @param size The number of values in the heap
+	 * @return The values, greatest first
+	 */
+	private static double[] drain(double[] heap, int size) {
+		for (int end = (size - 1); end > 0; end--) {
+			double value = heap[end];
+			heap[end] = heap[0];
+			siftDown(heap, end, value);
+		}
+
+		return Arrays.copyOf(heap, size);
+	}
+
+	/**
+	 * Moves a newly added element up the min-heap.
+	 *
+	 * @param node The index of the element
+	 */
+	private void siftUp(int node) {
+		T current = heap.get(node);
+		while (node > 0) {
+			int parent = (node - 1) >>> 1;
+			if (order.compare(current, heap.get(parent)) >= 0) {
+				break;
+			}
+			heap.set(node, heap.get(parent));
+			node = parent;
+		}
+
+		heap.set(node, current);
+	}
+
+	/**
+	 * Moves a replaced root down the min-heap.
+	 *
+	 * @param node The index of the element
+	 */
+	private void siftDown(int node) {
+		T current = heap.get(node);
+		int size = heap.size();
+		int child;
+		while ((child = (2 * node) + 1) < size) {
+			if ((child + 1) < size && order.compare(heap.get(child + 1), heap.get(child)) < 0) {
+				child++;
+			}
+			if (order.compare(current, heap.get(child)) <= 0) {
+				break;
+			}
+			heap.set(node, heap.get(child));
+			node = child;
+		}
+
+		heap.set(node, current);
+	}
+}
@@ -0,0 +1,373 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * The AhoCorasick class searches a haystack for every pattern of a fixed
+ * dictionary at once. The dictionary is compiled once into a trie with
+ * failure links, after which a search reads every character of the
+ * haystack exactly once however many patterns there are, and runs in
+ * O(n + matches) time.
+ *
+ * The automaton lives in flat arrays rather than a graph of node objects.
+ * The edges of all states are stored back to back, sorted by character,
+ * with edgeStart[s] marking where those of state s begin, so a state with
+ * few children costs a short scan. The root, which is visited far more
+ * often than any other state, also has a dense row for Latin-1 characters.
+ *
+ *		AhoCorasick blocklist = new AhoCorasick(terms);
+ *		for (Match match : blocklist.findAll(document)) {
+ *			...
+ *		}
+ *
+ * Offsets follow StringSearchInterface: a match is reported at the index
+ * of its first character. A compiled AhoCorasick is immutable and may be
+ * shared between threads.
+ */
+public class AhoCorasick {
+
+	private static final int ROOT = 0;
+	private static final int NONE = -1;
+	private static final int LATIN_1 = 256;
+
+	/**
+	 * States with more edges than this are searched with a binary search.
+	 */
+	private static final int LINEAR_EDGES = 8;
+
+	private final String[] patterns;
+
+	private final int[] edgeStart;
+	private final char[] edgeChars;
+	private final int[] edgeTargets;
+	private final int[] rootRow;
+
+	/**
+	 * The longest proper suffix of each state which is also a state.
+	 */
+	private final int[] failure;
+
+	/**
+	 * The nearest state on each state's failure chain which ends a pattern,
+	 * or NONE.
+	 */
+	private final int[] outputLink;
+
+	/**
+	 * The first pattern ending at each state, or NONE.
+	 */
+	private final int[] terminal;
+
+	/**
+	 * The next pattern equal to each pattern, or NONE.
+	 */
+	private final int[] duplicate;
+
+	private final int[] depth;
+
+	/**
+	 * Compiles a dictionary of patterns. Each pattern is identified by its
+	 * index in the list, and a pattern which appears several times is
+	 * reported under every one of its indexes.
+	 *
+	 * @param patterns The patterns to search for
+	 */
+	public AhoCorasick(List<String> patterns) {
+		if (patterns == null) {
+			throw new IllegalArgumentException("Patterns cannot be null!");
+		}
+
+		this.patterns = patterns.toArray(new String[0]);
+		this.duplicate = new int[this.patterns.length];
+		Arrays.fill(duplicate, NONE);
+
+		// Build the trie, keeping its edges in a map keyed by (state, char)
+		Map<Long, Integer> edges = new HashMap<Long, Integer>();
+		List<Integer> depths = new ArrayList<Integer>();
+		List<Integer> terminals = new ArrayList<Integer>();
+		depths.add(0);
+		terminals.add(NONE);
+		for (int id = 0; id < this.patterns.length; id++) {
+			String pattern = this.patterns[id];
+			if (pattern == null || pattern.length() == 0) {
+				throw new IllegalArgumentException("Pattern cannot be null or empty!");
+			}
+
+			int state = ROOT;
+			for (int i = 0; i < pattern.length(); i++) {
+				Long key = edgeKey(state, pattern.charAt(i));
+				Integer next = edges.get(key);
+				if (next == null) {
+					next = depths.size();
+					edges.put(key, next);
+					depths.add(i + 1);
+					terminals.add(NONE);
+				}
+				state = next;
+			}
+
+			if (terminals.get(state) == NONE) {
+				terminals.set(state, id);
+			} else {
+				// Chain duplicates after the first pattern with this text
+				int last = terminals.get(state);
+				while (duplicate[last] != NONE) {
+					last = duplicate[last];
+				}
+				duplicate[last] = id;
+			}
+		}
+
+		int states = depths.size();
+		depth = new int[states];
+		terminal = new int[states];
+		for (int state = 0; state < states; state++) {
+			depth[state] = depths.get(state);
+			terminal[state] = terminals.get(state);
+		}
+
+		// Lay the edges out state by state, sorted by character
+		long[] keys = new long[edges.size()];
+		int k = 0;
+		for (Long key : edges.keySet()) {
+			keys[k++] = key;
+		}
+		Arrays.sort(keys);
+
+		edgeStart = new int[states + 1];
+		edgeChars = new char[keys.length];
+		edgeTargets = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			edgeStart[(int) (keys[i] >>> Character.SIZE) + 1]++;
+			edgeChars[i] = (char) keys[i];
+			edgeTargets[i] = edges.get(keys[i]);
+		}
+		for (int state = 0; state < states; state++) {
+			edgeStart[state + 1] += edgeStart[state];
+		}
+
+		rootRow = new int[LATIN_1];
+		Arrays.fill(rootRow, ROOT);
+		for (int i = edgeStart[ROOT]; i < edgeStart[ROOT + 1] && edgeChars[i] < LATIN_1; i++) {
+			rootRow[edgeChars[i]] = edgeTargets[i];
+		}
+
+		// Fill in the failure links breadth first, so the link of every
+		// shallower state is known before it is needed
+		failure = new int[states];
+		outputLink = new int[states];
+		outputLink[ROOT] = NONE;
+		Queue<Integer> queue = new ArrayDeque<Integer>();
+		queue.add(ROOT);
+		while (!queue.isEmpty()) {
+			int state = queue.remove();
+			for (int i = edgeStart[state]; i < edgeStart[state + 1]; i++) {
+				int child = edgeTargets[i];
+				if (state == ROOT) {
+					failure[child] = ROOT;
+				} else {
+					failure[child] = next(failure[state], edgeChars[i]);
+				}
+
+				int fallback = failure[child];
+				outputLink[child] = (terminal[fallback] != NONE) ? fallback : outputLink[fallback];
+				queue.add(child);
+			}
+		}
+	}
+
+	/**
+	 * Packs a trie edge into a map key.
+	 *
+	 * @param state The state the edge leaves
+	 * @param c The character on the edge
+	 * @return The key
+	 */
+	private static long edgeKey(int state, char c) {
+		return ((long) state << Character.SIZE) | c;
+	}
+
+	/**
+	 * @return The number of patterns in the dictionary
+	 */
+	public int getPatternCount() {
+		return patterns.length;
+	}
+
+	/**
+	 * Returns a pattern of the dictionary.
+	 *
+	 * @param patternId The index of the pattern
+	 * @return The pattern
+	 */
+	public String getPattern(int patternId) {
+		return patterns[patternId];
+	}
+
+	/**
+	 * Returns the state a trie edge leads to.
+	 *
+	 * @param state The state the edge leaves
+	 * @param c The character on the edge
+	 * @return The state the edge leads to, or NONE if there is no such edge
+	 */
+	private int edge(int state, char c) {
+		if (state == ROOT && c < LATIN_1) {
+			int next = rootRow[c];
+			return (next != ROOT) ? next : NONE;
+		}
+
+		int low = edgeStart[state];
+		int high = edgeStart[state + 1];
+		if ((high - low) <= LINEAR_EDGES) {
+			for (int i = low; i < high; i++) {
+				if (edgeChars[i] == c) {
+					return edgeTargets[i];
+				}
+			}
+
+			return NONE;
+		}
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (edgeChars[mid] < c) {
+				low = (mid + 1);
+			} else {
+				high = mid;
+			}
+		}
+
+		return (low < edgeStart[state + 1] && edgeChars[low] == c) ? edgeTargets[low] : NONE;
+	}
+
+	/**
+	 * Returns the state reached by reading a character, following failure
+	 * links until some state has an edge for it.
+	 *
+	 * @param state The current state
+	 * @param c The character read
+	 * @return The next state
+	 */
+	private int next(int state, char c) {
+		while (true) {
+			int next = edge(state, c);
+			if (next != NONE) {
+				return next;
+			} else if (state == ROOT) {
+				return ROOT;
+			}
+			state = failure[state];
+		}
+	}
+
+	/**
+	 * Reports every occurrence of every pattern in a haystack, overlapping
+	 * ones included.
+	 *
+	 * @param haystack The text to search
+	 * @param listener Receives the matches
+	 */
+	public void search(String haystack, MatchListener listener) {
+		if (haystack == null || listener == null) {
+			throw new IllegalArgumentException("Haystack or listener cannot be null!");
+		}
+
+		int state = ROOT;
+		for (int i = 0; i < haystack.length(); i++) {
+			state = next(state, haystack.charAt(i));
+			int output = (terminal[state] != NONE) ? state : outputLink[state];
+			while (output != NONE) {
+				int offset = (i - depth[output] + 1);
+				for (int id = terminal[output]; id != NONE; id = duplicate[id]) {
+					listener.match(id, offset);
+				}
+				output = outputLink[output];
+			}
+		}
+	}
+
+	/**
+	 * Returns every occurrence of every pattern in a haystack, overlapping
+	 * ones included, in order of the match's last character.
+	 *
+	 * @param haystack The text to search
+	 * @return The matches
+	 */
+	public List<Match> findAll(String haystack) {
+		List<Match> matches = new ArrayList<Match>();
+		search(haystack, (patternId, offset) -> matches.add(new Match(patternId, offset)));
+
+		return matches;
+	}
+
+	/**
+	 * Reports the non-overlapping matches a scan from left to right would
+	 * pick by always taking the match which starts first, and the longest of
+	 * those which start together. Where several patterns are equal, the one
+	 * with the lowest index is reported.
+	 *
+	 * A candidate is only reported once no match starting at or before it
+	 * can still turn up, and the scan then restarts at the root just past
+	 * it, so characters after a match may be read twice.
+	 *
+	 * @param haystack The text to search
+	 * @param listener Receives the matches, in order of offset
+	 */
+	public void searchLeftmostLongest(String haystack, MatchListener listener) {
+		if (haystack == null || listener == null) {
+			throw new IllegalArgumentException("Haystack or listener cannot be null!");
+		}
+
+		int state = ROOT;
+		int bestId = NONE;
+		int bestOffset = 0;
+		int bestLength = 0;
+		int i = 0;
+		while (i < haystack.length() || bestId != NONE) {
+			if (i < haystack.length()) {
+				state = next(state, haystack.charAt(i));
+
+				// The first output on the chain is the longest pattern ending
+				// here, so it starts furthest to the left
+				int output = (terminal[state] != NONE) ? state : outputLink[state];
+				if (output != NONE) {
+					int offset = (i - depth[output] + 1);
+					if (bestId == NONE || offset < bestOffset
+							|| (offset == bestOffset && depth[output] > bestLength)) {
+						bestId = terminal[output];
+						bestOffset = offset;
+						bestLength = depth[output];
+					}
+				}
+			}
+
+			if (bestId != NONE && (i == haystack.length() || (i - depth[state] + 1) > bestOffset)) {
+				listener.match(bestId, bestOffset);
+				i = (bestOffset + bestLength);
+				state = ROOT;
+				bestId = NONE;
+			} else {
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Returns the leftmost-longest matches of the patterns in a haystack.
+	 *
+	 * @see #searchLeftmostLongest(String, MatchListener)
+	 * @param haystack The text to search
+	 * @return The matches, in order of offset
+	 */
+	public List<Match> findLeftmostLongest(String haystack) {
+		List<Match> matches = new ArrayList<Match>();
+		searchLeftmostLongest(haystack, (patternId, offset) -> matches.add(new Match(patternId, offset)));
+
+		return matches;
+	}
+}
@@ -0,0 +1,361 @@
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * The CompiledNeedle class holds a needle together with the Boyer-Moore
+ * tables for it, so the tables are built once and reused for every
+ * haystack the needle is searched for in.
+ *
+ * Two rules decide how far the needle moves after a mismatch, and the
+ * larger shift is taken:
+ *
+ *		bad character  line the mismatched haystack character up with its
+ *		               last occurrence in the needle
+ *		good suffix    line the matched suffix up with its next occurrence
+ *		               in the needle, or with the longest prefix of the
+ *		               needle which is also a suffix of it
+ *
+ * The bad character table keeps the last occurrence of every Latin-1
+ * character in a dense 256-entry array. Other characters, which are rare in
+ * most needles, go in a small open-addressing hash table sized to the
+ * needle, so compiling costs O(m) time and space rather than a table over
+ * all 65,536 chars.
+ *
+ * A CompiledNeedle is immutable and may be shared between threads.
+ */
+public class CompiledNeedle {
+
+	private static final int LATIN_1 = 256;
+	private static final int NONE = -1;
+
+	private final String needle;
+
+	/**
+	 * The last index of each Latin-1 character in the needle, or NONE.
+	 */
+	private final int[] lastLatin1;
+
+	/**
+	 * Open-addressing table of the needle's other characters and their last
+	 * indexes, or null if every character is Latin-1.
+	 */
+	private final char[] otherChars;
+	private final int[] otherLasts;
+
+	/**
+	 * How far the needle may move after a mismatch at each index, given
+	 * that everything to its right matched.
+	 */
+	private final int[] goodSuffix;
+
+	/**
+	 * Compiles a needle.
+	 *
+	 * @param needle The string to search for
+	 */
+	public CompiledNeedle(String needle) {
+		if (needle == null || needle.length() == 0) {
+			throw new IllegalArgumentException("Needle cannot be null or empty!");
+		}
+
+		this.needle = needle;
+		int m = needle.length();
+
+		lastLatin1 = new int[LATIN_1];
+		Arrays.fill(lastLatin1, NONE);
+		int others = 0;
+		for (int i = 0; i < m; i++) {
+			if (needle.charAt(i) >= LATIN_1) {
+				others++;
+			}
+		}
+
+		if (others == 0) {
+			otherChars = null;
+			otherLasts = null;
+		} else {
+			// At most half full, so probes stay short
+			otherChars = new char[Integer.highestOneBit(others) << 2];
+			otherLasts = new int[otherChars.length];
+			Arrays.fill(otherLasts, NONE);
+		}
+
+		for (int i = 0; i < m; i++) {
+			char c = needle.charAt(i);
+			if (c < LATIN_1) {
+				lastLatin1[c] = i;
+			} else {
+				int slot = slot(c);
+				otherChars[slot] = c;
+				otherLasts[slot] = i;
+			}
+		}
+
+		goodSuffix = goodSuffixTable(needle);
+	}
+
+	/**
+	 * Returns the slot of a non-Latin-1 character in the hash table: the
+	 * slot holding it, or the empty slot where it would go.
+	 *
+	 * @param c The character
+	 * @return The slot
+	 */
+	private int slot(char c) {
+		int mask = otherChars.length - 1;
+		int slot = (c * 0x9E37) & mask;
+		while (otherLasts[slot] != NONE && otherChars[slot] != c) {
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Returns the last index of a character in the needle.
+	 *
+	 * @param c The character
+	 * @return The last index, or -1 if the needle does not contain it
+	 */
+	public int lastIndexOf(char c) {
+		if (c < LATIN_1) {
+			return lastLatin1[c];
+		}
+
+		return (otherChars == null) ? NONE : otherLasts[slot(c)];
+	}
+
+	/**
+	 * Builds the good suffix table of a needle. suffix[i] is first set to
+	 * the length of the longest substring ending at i which is also a suffix
+	 * of the needle, from which both cases of the rule can be read off.
+	 *
+	 * @param needle The needle
+	 * @return The shift for a mismatch at each index
+	 */
+	private static int[] goodSuffixTable(String needle) {
+		int m = needle.length();
+		int[] suffix = new int[m];
+		suffix[m - 1] = m;
+		int start = m - 1;
+		int end = m - 1;
+		for (int i = (m - 2); i >= 0; i--) {
+			if (i > start && suffix[i + m - 1 - end] < (i - start)) {
+				suffix[i] = suffix[i + m - 1 - end];
+			} else {
+				start = Math.min(start, i);
+				end = i;
+				while (start >= 0 && needle.charAt(start) == needle.charAt(start + m - 1 - end)) {
+					start--;
+				}
+				suffix[i] = (end - start);
+			}
+		}
+
+		int[] table = new int[m];
+		Arrays.fill(table, m);
+
+		// The matched suffix does not occur again, so line a prefix of the
+		// needle which is also a suffix up with its end
+		int j = 0;
+		for (int i = (m - 1); i >= 0; i--) {
+			if (suffix[i] == (i + 1)) {
+				for (; j < (m - 1 - i); j++) {
+					if (table[j] == m) {
+						table[j] = (m - 1 - i);
+					}
+				}
+			}
+		}
+
+		// The matched suffix occurs again, preceded by a different character
+		for (int i = 0; i <= (m - 2); i++) {
+			table[m - 1 - suffix[i]] = (m - 1 - i);
+		}
+
+		return table;
+	}
+
+	/**
+	 * @return The needle
+	 */
+	public String getNeedle() {
+		return needle;
+	}
+
+	/**
+	 * @return The number of characters in the needle
+	 */
+	public int length() {
+		return needle.length();
+	}
+
+	/**
+	 * Returns the smallest period of the needle, the shortest shift after
+	 * which it matches itself where the two overlap. It is the good suffix
+	 * shift for a mismatch at index 0, so it costs nothing to look up.
+	 *
+	 * @return The smallest period of the needle
+	 */
+	public int getPeriod() {
+		return goodSuffix[0];
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the needle in a range of
+	 * a haystack.
+	 *
+	 * @param haystack The text to search
+	 * @param from The first index the needle may start at
+	 * @param to The index the needle must end at or before
+	 * @return The index of the first match, or -1 if there is none
+	 */
+	public int indexOf(String haystack, int from, int to) {
+		if (haystack == null) {
+			throw new IllegalArgumentException("Haystack cannot be null!");
+		}
+
+		return scan(haystack, from, to, null);
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the needle in a range of
+	 * a buffer.
+	 *
+	 * @param text The buffer to search
+	 * @param from The first index the needle may start at
+	 * @param to The index the needle must end at or before
+	 * @return The index of the first match, or -1 if there is none
+	 */
+	public int indexOf(char[] text, int from, int to) {
+		if (text == null) {
+			throw new IllegalArgumentException("Text cannot be null!");
+		}
+
+		return scan(CharBuffer.wrap(text), from, to, null);
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the needle in a range of
+	 * a byte buffer, each byte standing for the Latin-1 char of the same
+	 * value. A needle compiled from the bytes of an encoded string, one char
+	 * per byte, finds that encoding. Indexes are absolute, so the buffer's
+	 * position is ignored and left as it is.
+	 *
+	 * @param bytes The buffer to search
+	 * @param from The first index the needle may start at
+	 * @param to The index the needle must end at or before
+	 * @return The index of the first match, or -1 if there is none
+	 */
+	public int indexOf(ByteBuffer bytes, int from, int to) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("Bytes cannot be null!");
+		}
+
+		return scan(new Latin1Chars(bytes), from, to, null);
+	}
+
+	/**
+	 * Returns every index at which the needle occurs in a haystack,
+	 * overlapping occurrences included.
+	 *
+	 * @param haystack The text to search
+	 * @return list of integers representing the first index a match occurs
+	 */
+	public List<Integer> search(String haystack) {
+		if (haystack == null) {
+			throw new IllegalArgumentException("Haystack cannot be null!");
+		}
+
+		List<Integer> matches = new ArrayList<Integer>();
+		scan(haystack, 0, haystack.length(), matches::add);
+
+		return matches;
+	}
+
+	/**
+	 * Reports every index at which the needle occurs in a range of a
+	 * buffer, overlapping occurrences included.
+	 *
+	 * @param text The buffer to search
+	 * @param from The first index the needle may start at
+	 * @param to The index the needle must end at or before
+	 * @param matches Receives the index of each match, in order
+	 */
+	public void search(char[] text, int from, int to, IntConsumer matches) {
+		if (text == null || matches == null) {
+			throw new IllegalArgumentException("Text or matches cannot be null!");
+		}
+
+		scan(CharBuffer.wrap(text), from, to, matches);
+	}
+
+	/**
+	 * Reports every index at which the needle occurs in a range of a byte
+	 * buffer, each byte standing for the Latin-1 char of the same value.
+	 * Indexes are absolute, so the buffer's position is ignored and left as
+	 * it is.
+	 *
+	 * @param bytes The buffer to search
+	 * @param from The first index the needle may start at
+	 * @param to The index the needle must end at or before
+	 * @param matches Receives the index of each match, in order
+	 */
+	public void search(ByteBuffer bytes, int from, int to, IntConsumer matches) {
+		if (bytes == null || matches == null) {
+			throw new IllegalArgumentException("Bytes or matches cannot be null!");
+		}
+
+		scan(new Latin1Chars(bytes), from, to, matches);
+	}
+
+	/**
+	 * The Boyer-Moore loop behind every search: compares the needle right to
+	 * left at each alignment and moves it by the larger of the two shifts,
+	 * either stopping at the first match or reporting all of them.
+	 *
+	 * After a match the needle moves by its period, which leaves its first
+	 * m - period characters lined up with text they are known to match. Only
+	 * the rest is compared at the next alignment, the rule of Galil, so a
+	 * periodic needle over a repetitive text costs O(n) rather than O(nm).
+	 *
+	 * @param text The text to search
+	 * @param from The first index the needle may start at
+	 * @param to The index the needle must end at or before
+	 * @param matches Receives every match, or null to stop at the first
+	 * @return The first match if matches is null, otherwise -1
+	 */
+	private int scan(CharSequence text, int from, int to, IntConsumer matches) {
+		int m = needle.length();
+		int period = getPeriod();
+		int start = Math.max(from, 0);
+		int end = Math.min(to, text.length());
+
+		// The length of the prefix known to match at this alignment
+		int memory = 0;
+		while (start <= (end - m)) {
+			int i = (m - 1);
+			while (i >= memory && text.charAt(start + i) == needle.charAt(i)) {
+				i--;
+			}
+
+			if (i < memory) {
+				if (matches == null) {
+					return start;
+				}
+				matches.accept(start);
+				start += period;
+				memory = (m - period);
+			} else {
+				start += Math.max(goodSuffix[i], (i - lastIndexOf(text.charAt(start + i))));
+				memory = 0;
+			}
+		}
+
+		return NONE;
+	}
+}
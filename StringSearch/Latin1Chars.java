@@ -0,0 +1,36 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The Latin1Chars class reads a byte buffer as a sequence of Latin-1 chars,
+ * one per byte, so the char engines can search bytes without decoding or
+ * copying them. Indexes are absolute, up to the buffer's limit, and its
+ * position is ignored and left as it is.
+ */
+class Latin1Chars implements CharSequence {
+
+	private final ByteBuffer bytes;
+
+	/**
+	 * Constructs a view of a byte buffer.
+	 *
+	 * @param bytes The buffer to read
+	 */
+	Latin1Chars(ByteBuffer bytes) {
+		this.bytes = bytes;
+	}
+
+	@Override
+	public int length() {
+		return bytes.limit();
+	}
+
+	@Override
+	public char charAt(int index) {
+		return (char) (bytes.get(index) & 0xFF);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,198 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+/**
+ * The MappedSearch class searches a file for the UTF-8 encoding of a needle
+ * without reading it into the heap or decoding it. The file is memory
+ * mapped and split into one segment per thread, and each segment is
+ * searched with the Boyer-Moore engine of StringSearch on its own thread,
+ * straight from the page cache. A needle which repeats with a period of at
+ * most half its length is searched with Two-Way instead, as
+ * StringSearch.search does, so repetitive files stay linear as well.
+ *
+ * Each segment owns the matches which start inside it, and is mapped with
+ * the m - 1 bytes after it as well, so a match straddling two segments is
+ * found whole by the first and cannot be found by the second. The offsets
+ * of the segments, taken in file order, are then already in order and
+ * without duplicates.
+ *
+ *		long[] offsets = MappedSearch.search(Paths.get("huge.log"), "ERROR");
+ *
+ * A mapping cannot exceed 2 GB, so very large files are split into more
+ * segments than there are threads.
+ */
+public class MappedSearch {
+
+	/**
+	 * The largest number of bytes a segment owns, leaving room below the
+	 * 2 GB mapping limit for the overlap.
+	 */
+	private static final long MAX_SEGMENT = 1L << 30;
+
+	private MappedSearch() {
+	}
+
+	/**
+	 * Returns the byte offset of every occurrence of a needle in a file,
+	 * searching in the common ForkJoinPool.
+	 *
+	 * @param file The file to search
+	 * @param needle The string to search for
+	 * @return The offsets of the matches, in order
+	 * @throws IOException If the file cannot be mapped
+	 */
+	public static long[] search(Path file, String needle) throws IOException {
+		return search(file, needle, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Returns the byte offset of every occurrence of a needle in a file,
+	 * overlapping occurrences included, with the segments of the file
+	 * searched in a given pool.
+	 *
+	 * @param file The file to search
+	 * @param needle The string to search for
+	 * @param pool The pool to search in, one segment per thread
+	 * @return The offsets of the matches, in order
+	 * @throws IOException If the file cannot be mapped
+	 */
+	public static long[] search(Path file, String needle, ForkJoinPool pool) throws IOException {
+		if (file == null || pool == null) {
+			throw new IllegalArgumentException("File or pool cannot be null!");
+		} else if (needle == null || needle.length() == 0) {
+			throw new IllegalArgumentException("Needle cannot be null or empty!");
+		}
+
+		// One char per byte of the encoding, so the char engine searches bytes
+		String encoded = new String(needle.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+		CompiledNeedle compiled = StringSearch.compile(encoded);
+		TwoWay twoWay = StringSearch.twoWay(encoded);
+		int m = compiled.length();
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < m) {
+				return new long[0];
+			}
+
+			// Only offsets up to size - m can start a match
+			long starts = (size - m + 1);
+			long segments = Math.max(pool.getParallelism(), ((starts + MAX_SEGMENT - 1) / MAX_SEGMENT));
+			segments = Math.min(segments, starts);
+			long segmentSize = ((starts + segments - 1) / segments);
+
+			List<ForkJoinTask<long[]>> tasks = new ArrayList<ForkJoinTask<long[]>>();
+			for (long start = 0; start < starts; start += segmentSize) {
+				long owned = Math.min(segmentSize, (starts - start));
+				MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, (owned + m - 1));
+				long offset = start;
+				tasks.add(pool.submit(() -> searchSegment(compiled, twoWay, segment, offset)));
+			}
+
+			long[][] found = new long[tasks.size()][];
+			int total = 0;
+			for (int i = 0; i < found.length; i++) {
+				found[i] = join(tasks.get(i));
+				total += found[i].length;
+			}
+
+			long[] offsets = new long[total];
+			int count = 0;
+			for (long[] segmentOffsets : found) {
+				System.arraycopy(segmentOffsets, 0, offsets, count, segmentOffsets.length);
+				count += segmentOffsets.length;
+			}
+
+			return offsets;
+		}
+	}
+
+	/**
+	 * Returns the offsets of the matches in one segment.
+	 *
+	 * @param compiled The needle, one char per byte
+	 * @param twoWay The needle prepared for Two-Way, or null to search with
+	 *        Boyer-Moore
+	 * @param segment The bytes the segment owns, followed by m - 1 more
+	 *        unless it ends the file
+	 * @param offset The offset of the segment in the file
+	 * @return The offsets in the file of the matches, in order
+	 */
+	private static long[] searchSegment(CompiledNeedle compiled, TwoWay twoWay, MappedByteBuffer segment,
+			long offset) {
+		Offsets offsets = new Offsets(offset);
+		if (twoWay != null) {
+			twoWay.search(segment, 0, segment.limit(), offsets);
+		} else {
+			compiled.search(segment, 0, segment.limit(), offsets);
+		}
+
+		return offsets.toArray();
+	}
+
+	/**
+	 * Waits for a segment to be searched, passing on any failure.
+	 *
+	 * @param task The search of the segment
+	 * @return The offsets of its matches
+	 * @throws IOException If reading the mapped file failed
+	 */
+	private static long[] join(ForkJoinTask<long[]> task) throws IOException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while searching!", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Collects the offsets in the file of the matches in a segment.
+	 */
+	private static final class Offsets implements IntConsumer {
+
+		private final long base;
+		private long[] offsets = new long[16];
+		private int count;
+
+		/**
+		 * @param base The offset of the segment in the file
+		 */
+		private Offsets(long base) {
+			this.base = base;
+		}
+
+		@Override
+		public void accept(int index) {
+			if (count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, (count * 2));
+			}
+			offsets[count++] = (base + index);
+		}
+
+		/**
+		 * @return The offsets collected, in order
+		 */
+		private long[] toArray() {
+			return Arrays.copyOf(offsets, count);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * The Match class records a pattern found at an offset in a haystack by a
+ * search for several patterns at once.
+ */
+public class Match {
+	private final int patternId;
+	private final int offset;
+
+	/**
+	 * Constructs a new Match.
+	 *
+	 * @param patternId The index of the pattern which matched
+	 * @param offset The index of the first character of the match
+	 */
+	public Match(int patternId, int offset) {
+		this.patternId = patternId;
+		this.offset = offset;
+	}
+
+	/**
+	 * @return The index of the pattern which matched
+	 */
+	public int getPatternId() {
+		return patternId;
+	}
+
+	/**
+	 * @return The index of the first character of the match
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof Match)) {
+			return false;
+		}
+
+		Match match = (Match) other;
+		return patternId == match.patternId && offset == match.offset;
+	}
+
+	@Override
+	public int hashCode() {
+		return (31 * patternId) + offset;
+	}
+
+	@Override
+	public String toString() {
+		return "(" + patternId + ", " + offset + ")";
+	}
+}
@@ -0,0 +1,14 @@
+/**
+ * The MatchListener interface receives the matches found by a search for
+ * several patterns at once.
+ */
+public interface MatchListener {
+
+	/**
+	 * Called once for every match.
+	 *
+	 * @param patternId The index of the pattern which matched
+	 * @param offset The index of the first character of the match
+	 */
+	public void match(int patternId, int offset);
+}
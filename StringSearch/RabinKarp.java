@@ -0,0 +1,329 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RabinKarp class searches a haystack for a set of needles which all
+ * have the same length, in one pass whatever the number of needles.
+ *
+ * Every window of the haystack is hashed with a polynomial rolling hash
+ * modulo the Mersenne prime 2^61 - 1, updated in O(1) as the window slides
+ * using BASE^(m - 1), which is computed once per RabinKarp. The hash of the
+ * window is looked up in an open-addressing table of the needles' hashes,
+ * and only a hit is verified character by character. The base is chosen at
+ * random for each RabinKarp, so two different windows collide with
+ * probability about m / 2^61 no matter how the input was chosen.
+ *
+ * The number of verifications, and of collisions among them, are counted
+ * and can be read back to check that hashing works as it should.
+ *
+ *		RabinKarp signatures = new RabinKarp(tenThousandSignatures);
+ *		signatures.search(text, (patternId, offset) -> ...);
+ *
+ * A RabinKarp is immutable apart from its counters and may be shared
+ * between threads.
+ */
+public class RabinKarp {
+
+	/**
+	 * The Mersenne prime 2^61 - 1 all hashes are reduced by.
+	 */
+	public static final long MODULUS = (1L << 61) - 1;
+
+	private static final long EMPTY = -1;
+	private static final int NONE = -1;
+
+	private final String[] needles;
+	private final int length;
+	private final long base;
+
+	/**
+	 * base^(length - 1), the weight of the character leaving the window.
+	 */
+	private final long leading;
+
+	/**
+	 * Open-addressing table of the distinct needle hashes, and the first
+	 * needle with each hash.
+	 */
+	private final long[] hashes;
+	private final int[] firsts;
+
+	/**
+	 * The next needle with the same hash as each needle, or NONE.
+	 */
+	private final int[] nexts;
+
+	private final LongAdder verifications = new LongAdder();
+	private final LongAdder collisions = new LongAdder();
+
+	/**
+	 * Constructs a new RabinKarp for a set of needles. Each needle is
+	 * identified by its index in the list.
+	 *
+	 * @param needles The needles to search for, all of the same length
+	 */
+	public RabinKarp(List<String> needles) {
+		if (needles == null || needles.isEmpty()) {
+			throw new IllegalArgumentException("Needles cannot be null or empty!");
+		}
+
+		this.needles = needles.toArray(new String[0]);
+		for (String needle : this.needles) {
+			if (needle == null || needle.length() == 0) {
+				throw new IllegalArgumentException("Needle cannot be null or empty!");
+			} else if (needle.length() != this.needles[0].length()) {
+				throw new IllegalArgumentException("Needles must all have the same length!");
+			}
+		}
+
+		length = this.needles[0].length();
+		base = ThreadLocalRandom.current().nextLong(Character.MAX_VALUE + 1, MODULUS);
+		leading = power(base, (length - 1));
+
+		// At most half full, so probes stay short
+		hashes = new long[Integer.highestOneBit(this.needles.length) << 2];
+		firsts = new int[hashes.length];
+		nexts = new int[this.needles.length];
+		Arrays.fill(hashes, EMPTY);
+		for (int id = (this.needles.length - 1); id >= 0; id--) {
+			long hash = hash(this.needles[id], 0);
+			int slot = slot(hash);
+			if (hashes[slot] == EMPTY) {
+				hashes[slot] = hash;
+				nexts[id] = NONE;
+			} else {
+				nexts[id] = firsts[slot];
+			}
+			firsts[slot] = id;
+		}
+	}
+
+	/**
+	 * Returns (a * b) mod MODULUS. Since 2^61 is 1 mod MODULUS, the bits of
+	 * the 122-bit product above bit 61 can simply be added to those below.
+	 *
+	 * @param a A value below MODULUS
+	 * @param b A value below MODULUS
+	 * @return The product modulo MODULUS
+	 */
+	private static long multiply(long a, long b) {
+		long high = Math.multiplyHigh(a, b);
+		long low = a * b;
+		long sum = (low & MODULUS) + (low >>> 61) + (high << 3);
+		sum = (sum & MODULUS) + (sum >>> 61);
+
+		return (sum >= MODULUS) ? (sum - MODULUS) : sum;
+	}
+
+	/**
+	 * Returns base^exp mod MODULUS by repeated squaring.
+	 *
+	 * @param base The base
+	 * @param exp The power
+	 * @return The result modulo MODULUS
+	 */
+	private static long power(long base, int exp) {
+		long result = 1;
+		while (exp > 0) {
+			if ((exp & 1) != 0) {
+				result = multiply(result, base);
+			}
+			base = multiply(base, base);
+			exp >>= 1;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Hashes the window of the needle length starting at an offset.
+	 *
+	 * @param text The text holding the window
+	 * @param offset The first index of the window
+	 * @return The hash of the window
+	 */
+	private long hash(String text, int offset) {
+		long hash = 0;
+		for (int i = offset; i < (offset + length); i++) {
+			hash = append(hash, text.charAt(i));
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Extends a hash by one character, for a window which is still filling.
+	 *
+	 * @param hash The hash of the window so far
+	 * @param c The next character
+	 * @return The hash of the longer window
+	 */
+	long append(long hash, char c) {
+		return add(multiply(hash, base), c);
+	}
+
+	/**
+	 * Slides a full window along by one character, dropping its leading
+	 * character and bringing in the next one.
+	 *
+	 * @param hash The hash of the window
+	 * @param out The leading character of the window
+	 * @param in The character after the window
+	 * @return The hash of the next window
+	 */
+	long roll(long hash, char out, char in) {
+		long dropped = multiply(out, leading);
+		return add(multiply(add(hash, (MODULUS - dropped)), base), in);
+	}
+
+	/**
+	 * Reports the needles equal to a window of a buffer, given the window's
+	 * hash.
+	 *
+	 * @param hash The hash of the window
+	 * @param text The buffer holding the window
+	 * @param from The index of the window in the buffer
+	 * @param offset The offset of the window to report
+	 * @param listener Receives the matches
+	 */
+	void check(long hash, char[] text, int from, long offset, StreamMatchListener listener) {
+		int slot = slot(hash);
+		if (hashes[slot] == EMPTY) {
+			return;
+		}
+
+		for (int id = firsts[slot]; id != NONE; id = nexts[id]) {
+			verifications.increment();
+			String needle = needles[id];
+			int i = 0;
+			while (i < length && needle.charAt(i) == text[from + i]) {
+				i++;
+			}
+
+			if (i == length) {
+				listener.match(id, offset);
+			} else {
+				collisions.increment();
+			}
+		}
+	}
+
+	/**
+	 * Returns (a + b) mod MODULUS.
+	 *
+	 * @param a A value below MODULUS
+	 * @param b A value below MODULUS
+	 * @return The sum modulo MODULUS
+	 */
+	private static long add(long a, long b) {
+		long sum = a + b;
+		return (sum >= MODULUS) ? (sum - MODULUS) : sum;
+	}
+
+	/**
+	 * Returns the slot of a hash in the table: the slot holding it, or the
+	 * empty slot where it would go.
+	 *
+	 * @param hash The hash
+	 * @return The slot
+	 */
+	private int slot(long hash) {
+		int mask = hashes.length - 1;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		while (hashes[slot] != EMPTY && hashes[slot] != hash) {
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	/**
+	 * @return The length shared by every needle
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns one of the needles.
+	 *
+	 * @param patternId The index of the needle
+	 * @return The needle
+	 */
+	public String getNeedle(int patternId) {
+		return needles[patternId];
+	}
+
+	/**
+	 * @return The number of windows compared character by character with a
+	 *         needle because their hashes were equal
+	 */
+	public long getVerifications() {
+		return verifications.sum();
+	}
+
+	/**
+	 * @return The number of those verifications which found a different
+	 *         string with the same hash
+	 */
+	public long getCollisions() {
+		return collisions.sum();
+	}
+
+	/**
+	 * Reports every occurrence of every needle in a haystack, in order of
+	 * offset. Needles which are equal are all reported.
+	 *
+	 * @param haystack The text to search
+	 * @param listener Receives the matches
+	 */
+	public void search(String haystack, MatchListener listener) {
+		if (haystack == null || listener == null) {
+			throw new IllegalArgumentException("Haystack or listener cannot be null!");
+		} else if (haystack.length() < length) {
+			return;
+		}
+
+		long hash = hash(haystack, 0);
+		long verified = 0;
+		long collided = 0;
+		for (int i = 0; ; i++) {
+			int slot = slot(hash);
+			if (hashes[slot] != EMPTY) {
+				for (int id = firsts[slot]; id != NONE; id = nexts[id]) {
+					verified++;
+					if (haystack.regionMatches(i, needles[id], 0, length)) {
+						listener.match(id, i);
+					} else {
+						collided++;
+					}
+				}
+			}
+
+			if (i == (haystack.length() - length)) {
+				break;
+			}
+
+			hash = roll(hash, haystack.charAt(i), haystack.charAt(i + length));
+		}
+
+		verifications.add(verified);
+		collisions.add(collided);
+	}
+
+	/**
+	 * Returns every occurrence of every needle in a haystack.
+	 *
+	 * @param haystack The text to search
+	 * @return The matches, in order of offset
+	 */
+	public List<Match> findAll(String haystack) {
+		List<Match> matches = new ArrayList<Match>();
+		search(haystack, (patternId, offset) -> matches.add(new Match(patternId, offset)));
+
+		return matches;
+	}
+}
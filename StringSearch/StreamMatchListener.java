@@ -0,0 +1,16 @@
+/**
+ * The StreamMatchListener interface receives the matches found by a search
+ * over a stream, as they are found.
+ */
+public interface StreamMatchListener {
+
+	/**
+	 * Called once for every match, in order of offset.
+	 *
+	 * @param patternId The index of the pattern which matched, 0 for a
+	 *        search for a single needle
+	 * @param offset The offset of the first character of the match from the
+	 *        start of the stream
+	 */
+	public void match(int patternId, long offset);
+}
@@ -0,0 +1,323 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * The StreamSearch class searches a stream too large to hold in memory,
+ * reading it through one buffer of fixed size which is reused for every
+ * refill. Matches are reported to a listener as they are found, at their
+ * offset from the start of the stream.
+ *
+ * A match may straddle two refills, so the tail of the buffer is carried
+ * over to its front before the next refill:
+ *
+ *		Boyer-Moore    the last m - 1 characters, which are too few to hold
+ *		               a match by themselves, so nothing is reported twice
+ *		Rabin-Karp     the last m characters, the window the rolling hash
+ *		               stands for, so the hash carries on across the refill
+ *
+ * Memory use is the buffer plus the compiled needles, however long the
+ * stream is.
+ *
+ * Byte channels and streams are searched for the UTF-8 encoding of the
+ * needles, and offsets are counted in bytes, so they can be used to seek
+ * back into a file. Since no UTF-8 encoding of a character appears inside
+ * another's, every byte match is also a character match. The bytes are
+ * mapped one to one onto chars as Latin-1, so both engines work on bytes
+ * unchanged.
+ *
+ *		try (FileChannel log = FileChannel.open(path)) {
+ *			new StreamSearch().boyerMoore("OutOfMemoryError", log,
+ *					(patternId, offset) -> ...);
+ *		}
+ */
+public class StreamSearch {
+
+	/**
+	 * The number of characters read per refill unless told otherwise.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	private final int bufferSize;
+
+	/**
+	 * Constructs a new StreamSearch which reads DEFAULT_BUFFER_SIZE
+	 * characters at a time.
+	 */
+	public StreamSearch() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Constructs a new StreamSearch. The buffer is grown to twice the needle
+	 * length for needles longer than half of it.
+	 *
+	 * @param bufferSize The number of characters to read at a time
+	 */
+	public StreamSearch(int bufferSize) {
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Buffer size must be positive!");
+		}
+
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Reports every occurrence of a needle in a stream of characters with
+	 * Boyer-Moore, overlapping occurrences included. A needle which repeats
+	 * with a period of at most half its length is searched with Two-Way
+	 * instead, as StringSearch.search does.
+	 *
+	 * @param needle The string to search for
+	 * @param reader The stream to search, which is read to its end but not
+	 *        closed
+	 * @param listener Receives the matches with patternId 0, in order of
+	 *        offset
+	 * @return The number of characters read
+	 * @throws IOException If reading fails
+	 */
+	public long boyerMoore(String needle, Reader reader, StreamMatchListener listener) throws IOException {
+		if (reader == null || listener == null) {
+			throw new IllegalArgumentException("Reader or listener cannot be null!");
+		}
+
+		CompiledNeedle compiled = StringSearch.compile(needle);
+		TwoWay twoWay = StringSearch.twoWay(needle);
+		int m = compiled.length();
+		char[] buffer = new char[Math.max(bufferSize, (2 * m))];
+		long position = 0;
+		int kept = 0;
+		while (true) {
+			int filled = fill(reader, buffer, kept);
+			long offset = position;
+			IntConsumer matches = (i -> listener.match(0, (offset + i)));
+			if (twoWay != null) {
+				twoWay.search(buffer, 0, filled, matches);
+			} else {
+				compiled.search(buffer, 0, filled, matches);
+			}
+
+			if (filled < buffer.length) {
+				return (position + filled);
+			}
+
+			// Every match starting before the carried tail has been reported
+			kept = (m - 1);
+			System.arraycopy(buffer, (filled - kept), buffer, 0, kept);
+			position += (filled - kept);
+		}
+	}
+
+	/**
+	 * Reports every occurrence of a needle in a byte channel with
+	 * Boyer-Moore, searching for the needle's UTF-8 encoding.
+	 *
+	 * @param needle The string to search for
+	 * @param channel The channel to search, which is read to its end but not
+	 *        closed
+	 * @param listener Receives the matches with patternId 0, at their offsets
+	 *        in bytes
+	 * @return The number of bytes read
+	 * @throws IOException If reading fails
+	 */
+	public long boyerMoore(String needle, ReadableByteChannel channel, StreamMatchListener listener) throws IOException {
+		if (needle == null || needle.length() == 0) {
+			throw new IllegalArgumentException("Needle cannot be null or empty!");
+		} else if (channel == null) {
+			throw new IllegalArgumentException("Channel cannot be null!");
+		}
+
+		return boyerMoore(toBytes(needle), latin1Reader(channel), listener);
+	}
+
+	/**
+	 * Reports every occurrence of a needle in a byte stream with
+	 * Boyer-Moore, searching for the needle's UTF-8 encoding.
+	 *
+	 * @param needle The string to search for
+	 * @param in The stream to search, which is read to its end but not
+	 *        closed
+	 * @param listener Receives the matches with patternId 0, at their offsets
+	 *        in bytes
+	 * @return The number of bytes read
+	 * @throws IOException If reading fails
+	 */
+	public long boyerMoore(String needle, InputStream in, StreamMatchListener listener) throws IOException {
+		if (in == null) {
+			throw new IllegalArgumentException("Stream cannot be null!");
+		}
+
+		return boyerMoore(needle, Channels.newChannel(in), listener);
+	}
+
+	/**
+	 * Reports every occurrence of each of a set of needles of the same
+	 * length in a stream of characters with Rabin-Karp.
+	 *
+	 * @param needles The needles to search for, all of the same length
+	 * @param reader The stream to search, which is read to its end but not
+	 *        closed
+	 * @param listener Receives the matches, with the index of the needle, in
+	 *        order of offset
+	 * @return The number of characters read
+	 * @throws IOException If reading fails
+	 */
+	public long rabinKarp(List<String> needles, Reader reader, StreamMatchListener listener) throws IOException {
+		if (reader == null || listener == null) {
+			throw new IllegalArgumentException("Reader or listener cannot be null!");
+		}
+
+		return rabinKarp(new RabinKarp(needles), reader, listener);
+	}
+
+	/**
+	 * Reports every occurrence of each of a set of needles in a stream of
+	 * characters, with needles compiled beforehand. Their counters take in
+	 * the verifications made by this search.
+	 *
+	 * @param needles The compiled needles
+	 * @param reader The stream to search, which is read to its end but not
+	 *        closed
+	 * @param listener Receives the matches, with the index of the needle, in
+	 *        order of offset
+	 * @return The number of characters read
+	 * @throws IOException If reading fails
+	 */
+	public long rabinKarp(RabinKarp needles, Reader reader, StreamMatchListener listener) throws IOException {
+		if (needles == null || reader == null || listener == null) {
+			throw new IllegalArgumentException("Needles, reader or listener cannot be null!");
+		}
+
+		int m = needles.getLength();
+		char[] buffer = new char[Math.max(bufferSize, (2 * m))];
+		long position = 0;
+		long hash = 0;
+		int kept = 0;
+		while (true) {
+			int filled = fill(reader, buffer, kept);
+			for (int i = kept; i < filled; i++) {
+				// Until the first window is full, the hash is still being built
+				if ((position + i) < m) {
+					hash = needles.append(hash, buffer[i]);
+				} else {
+					hash = needles.roll(hash, buffer[i - m], buffer[i]);
+				}
+
+				if ((position + i) >= (m - 1)) {
+					needles.check(hash, buffer, (i - m + 1), (position + i - m + 1), listener);
+				}
+			}
+
+			if (filled < buffer.length) {
+				return (position + filled);
+			}
+
+			// Carry the window the hash stands for, so its leading
+			// character can be dropped after the refill
+			kept = m;
+			System.arraycopy(buffer, (filled - kept), buffer, 0, kept);
+			position += (filled - kept);
+		}
+	}
+
+	/**
+	 * Reports every occurrence of each of a set of needles of the same
+	 * length in a byte channel with Rabin-Karp, searching for their UTF-8
+	 * encodings, which must also all have the same length.
+	 *
+	 * @param needles The needles to search for
+	 * @param channel The channel to search, which is read to its end but not
+	 *        closed
+	 * @param listener Receives the matches, with the index of the needle, at
+	 *        their offsets in bytes
+	 * @return The number of bytes read
+	 * @throws IOException If reading fails
+	 */
+	public long rabinKarp(List<String> needles, ReadableByteChannel channel, StreamMatchListener listener) throws IOException {
+		if (needles == null) {
+			throw new IllegalArgumentException("Needles cannot be null!");
+		} else if (channel == null) {
+			throw new IllegalArgumentException("Channel cannot be null!");
+		}
+
+		List<String> encoded = new ArrayList<String>(needles.size());
+		for (String needle : needles) {
+			if (needle == null) {
+				throw new IllegalArgumentException("Needle cannot be null or empty!");
+			}
+			encoded.add(toBytes(needle));
+		}
+
+		return rabinKarp(encoded, latin1Reader(channel), listener);
+	}
+
+	/**
+	 * Reports every occurrence of each of a set of needles of the same
+	 * length in a byte stream with Rabin-Karp, searching for their UTF-8
+	 * encodings.
+	 *
+	 * @param needles The needles to search for
+	 * @param in The stream to search, which is read to its end but not
+	 *        closed
+	 * @param listener Receives the matches, with the index of the needle, at
+	 *        their offsets in bytes
+	 * @return The number of bytes read
+	 * @throws IOException If reading fails
+	 */
+	public long rabinKarp(List<String> needles, InputStream in, StreamMatchListener listener) throws IOException {
+		if (in == null) {
+			throw new IllegalArgumentException("Stream cannot be null!");
+		}
+
+		return rabinKarp(needles, Channels.newChannel(in), listener);
+	}
+
+	/**
+	 * Reads into a buffer until it is full or the stream ends.
+	 *
+	 * @param reader The stream to read
+	 * @param buffer The buffer to fill
+	 * @param from The number of characters already in the buffer
+	 * @return The number of characters now in the buffer, less than its
+	 *         length only at the end of the stream
+	 * @throws IOException If reading fails
+	 */
+	private static int fill(Reader reader, char[] buffer, int from) throws IOException {
+		while (from < buffer.length) {
+			int read = reader.read(buffer, from, (buffer.length - from));
+			if (read == -1) {
+				break;
+			}
+			from += read;
+		}
+
+		return from;
+	}
+
+	/**
+	 * Returns a string with one char for each byte of the UTF-8 encoding of
+	 * a needle.
+	 *
+	 * @param needle The needle
+	 * @return The encoded needle
+	 */
+	private static String toBytes(String needle) {
+		return new String(needle.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Returns a reader with one char for each byte of a channel.
+	 *
+	 * @param channel The channel
+	 * @return The reader
+	 */
+	private static Reader latin1Reader(ReadableByteChannel channel) {
+		return Channels.newReader(channel, StandardCharsets.ISO_8859_1.newDecoder(), -1);
+	}
+}
@@ -1,5 +1,9 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 public class StringSearch implements StringSearchInterface {
@@ -9,58 +13,157 @@ public class StringSearch implements StringSearchInterface {
 	 */
 	public static final int BASE = 433;
 
+	/**
+	 * The number of compiled needles kept by boyerMoore, and of Two-Way
+	 * needles kept by search.
+	 */
+	public static final int NEEDLE_CACHE_SIZE = 256;
+	
+	/**
+	 * The needles most recently searched for by boyerMoore, least recently
+	 * used first. Access-ordered, so every lookup is a write and the map is
+	 * only touched while holding its lock.
+	 */
+	private static final Map<String, CompiledNeedle> NEEDLES = needleCache();
+	
+	/**
+	 * The periodic needles most recently searched for by search, prepared
+	 * for Two-Way, kept the same way as NEEDLES.
+	 */
+	private static final Map<String, TwoWay> TWO_WAYS = needleCache();
+	
+	/**
+	 * Creates an empty LRU cache holding up to NEEDLE_CACHE_SIZE needles.
+	 * 
+	 * @param <V> The prepared form of a needle
+	 * @return The cache
+	 */
+	private static <V> Map<String, V> needleCache() {
+		return new LinkedHashMap<String, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+				return size() > NEEDLE_CACHE_SIZE;
+			}
+		};
+	}
+
+	/**
+	 * Searches with the full Boyer-Moore algorithm, taking the larger of the
+	 * bad character and good suffix shifts. The needle is compiled once and
+	 * kept in a bounded LRU cache shared by every StringSearch, so repeated
+	 * searches for the same needle skip building its tables.
+	 * After a match only the part of the needle not already known to match
+	 * is compared, so even a periodic needle like "aaaa" takes linear time.
+	 * 
+	 * @see CompiledNeedle
+	 */
 	@Override
 	public List<Integer> boyerMoore(String needle, String haystack) {
-		if (needle.equals(null) || haystack.equals(null) 
+		if (needle == null || haystack == null 
 				|| needle.length() == 0) {
 			throw new IllegalArgumentException("Needle or haystack cannot be null!");
 		}
-		List<Integer> matches = new ArrayList<Integer>();
-		int[] map = buildLastTable(needle);
-		boolean endOfString = false;
-		boolean mismatch = false;
-		if (needle.length() <= haystack.length()) {
-			// Align needle with first char in haystack
-			int lastCharIndex = (needle.length() - 1);
-			
-			while (!endOfString) {
-				if (lastCharIndex >= haystack.length()) {
-					endOfString = true;
-				} else {
-					for (int i = (needle.length() - 1); i > -1 && !mismatch; i--) {
-						if (needle.charAt(i) != haystack.charAt((lastCharIndex - needle.length() + 1) + i)) {
-							mismatch = true;
-						}
-					}
+		
+		return compile(needle).search(haystack);
+	}
 	
-					if (!mismatch) {
-						// Found substring in string!
-						matches.add(lastCharIndex - needle.length() + 1);
-					}
-					
-					lastCharIndex += map[haystack.charAt(lastCharIndex)];
-					mismatch = false;
-				}
+	/**
+	 * Searches with whichever engine is safe for the needle. A needle which
+	 * repeats with a period of at most half its length, like "abab" or
+	 * "aaaa", can match again and again with only a short shift between,
+	 * and goes to Two-Way, which is linear in the worst case. Any other
+	 * needle, "aaaab" included, goes to boyerMoore, which skips ahead faster
+	 * on ordinary text. The period is read off the compiled needle, and both
+	 * engines are cached, so repeated searches prepare nothing.
+	 * 
+	 * @see TwoWay
+	 * @param needle a string you a searching for in a body of text
+	 * @param haystack the body of text where you search for needle
+	 * @return list of integers representing the first index a match occurs
+	 */
+	public List<Integer> search(String needle, String haystack) {
+		if (needle == null || haystack == null 
+				|| needle.length() == 0) {
+			throw new IllegalArgumentException("Needle or haystack cannot be null!");
+		}
+		
+		TwoWay twoWay = twoWay(needle);
+		if (twoWay == null) {
+			return compile(needle).search(haystack);
+		}
+		
+		return twoWay.search(haystack);
+	}
+	
+	/**
+	 * Returns the compiled form of a needle, from the cache if it has been
+	 * searched for recently. The needle is compiled outside the lock, so two
+	 * threads may occasionally both compile it.
+	 * 
+	 * @param needle The needle
+	 * @return The compiled needle
+	 */
+	public static CompiledNeedle compile(String needle) {
+		CompiledNeedle compiled;
+		synchronized (NEEDLES) {
+			compiled = NEEDLES.get(needle);
+		}
+		
+		if (compiled == null) {
+			compiled = new CompiledNeedle(needle);
+			synchronized (NEEDLES) {
+				NEEDLES.put(needle, compiled);
 			}
 		}
 		
-		return matches;
+		return compiled;
+	}
+	
+	/**
+	 * Returns the Two-Way form of a needle which repeats with a period of at
+	 * most half its length, from the cache if it has been searched for
+	 * recently. The period is read off the compiled needle, so a needle
+	 * which is not that periodic costs nothing beyond compiling it.
+	 * 
+	 * @param needle The needle
+	 * @return The Two-Way needle, or null if its period is longer than half
+	 *         its length
+	 */
+	public static TwoWay twoWay(String needle) {
+		CompiledNeedle compiled = compile(needle);
+		if (compiled.getPeriod() > (compiled.length() / 2)) {
+			return null;
+		}
+		
+		TwoWay twoWay;
+		synchronized (TWO_WAYS) {
+			twoWay = TWO_WAYS.get(needle);
+		}
+		
+		if (twoWay == null) {
+			twoWay = new TwoWay(needle);
+			synchronized (TWO_WAYS) {
+				TWO_WAYS.put(needle, twoWay);
+			}
+		}
+		
+		return twoWay;
 	}
 
 	@Override
 	public int[] buildLastTable(String needle) {
-		if (needle.equals(null)) {
+		if (needle == null) {
 			throw new IllegalArgumentException("Provided String cannot be empty!");
 		}
 		
 		int[] table = new int[Character.MAX_VALUE + 1];
-		for (int i = 0; i != Character.MAX_VALUE + 1; i++) {
-			if (needle.indexOf(i) != -1) {
-				table[i] = Math.max((needle.length() - needle.lastIndexOf(i) - 1), 1);
-			} else {
-				// All other characters, shift full length
-				table[i] = needle.length();
-			}
+		// All other characters, shift full length
+		Arrays.fill(table, needle.length());
+		for (int i = 0; i < needle.length(); i++) {
+			// Later occurrences overwrite earlier ones, leaving the last
+			table[needle.charAt(i)] = Math.max((needle.length() - i - 1), 1);
 		}
 		
 		return table;
@@ -82,20 +185,26 @@ public class StringSearch implements StringSearchInterface {
 	}
 	
 	/**
-	 * Calculates the result of a base to the power of an exponential.
+	 * Calculates the result of a base to the power of an exponential by
+	 * repeated squaring, in O(log exp) multiplications. Like the hashes, the
+	 * result wraps around on overflow.
 	 * 
 	 * @param base The base of the exponential
 	 * @param exp The power
 	 * @return The result of the base to the power of the exponential
 	 */
 	public int power(int base, int exp) {
-		int result = base;
+		int result = 1;
 		
-		for (int i = 1; i < exp; i++) {
-			result = (base * result);
+		while (exp > 0) {
+			if ((exp & 1) != 0) {
+				result = (base * result);
+			}
+			base = (base * base);
+			exp >>= 1;
 		}
 		
-		return (exp != 0) ? result : 1;
+		return result;
 	}
 
 	@Override
@@ -107,38 +216,25 @@ public class StringSearch implements StringSearchInterface {
 		return updatedHash;
 	}
 
+	/**
+	 * Searches with a rolling 64-bit hash modulo a Mersenne prime, which is
+	 * updated in constant time as the window slides and rarely collides.
+	 * generateHash and updateHash implement the 32-bit hash described by
+	 * StringSearchInterface, which wraps around and collides far more often
+	 * on long needles, so they are not used here.
+	 * 
+	 * @see RabinKarp
+	 */
 	@Override
 	public List<Integer> rabinKarp(String needle, String haystack) {
-		if (needle.equals(null) || haystack.equals(null) 
+		if (needle == null || haystack == null 
 				|| needle.length() == 0) {
 			throw new IllegalArgumentException("Needle or haystack cannot be null!");
 		}
 		
 		List<Integer> matches = new ArrayList<Integer>();
-		if (needle.length() <= haystack.length()) {
-			int needleHash = generateHash(needle);
-			int haystackHash = generateHash(haystack.substring(0, needle.length()));
-			for (int i = 0; i <= haystack.length() - needle.length(); i++) {
-				if (needleHash == haystackHash) {
-					boolean match = true;
-					// Possible match, check char-by-char
-					for (int j = 0; j < needle.length() && match; j++) {
-						if (needle.charAt(j) != haystack.charAt(i + j)) {
-							match = false;
-						}
-					}
-					
-					if (match) {
-						matches.add(i);
-					}
-				} 
-				
-				if (i < (haystack.length() - needle.length())) {
-					haystackHash = updateHash(haystackHash, needle.length(), 
-							haystack.charAt(i), haystack.charAt(i + needle.length()));
-				}
-			}
-		}
+		new RabinKarp(Collections.singletonList(needle)).search(haystack, 
+				(patternId, offset) -> matches.add(offset));
 		
 		return matches;
 	}
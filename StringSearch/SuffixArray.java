@@ -0,0 +1,547 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The SuffixArray class indexes a fixed text once, so that any number of
+ * needles can then be counted and located in it without scanning the text
+ * again.
+ *
+ *		sa[i]    the start of the i-th smallest suffix of the text
+ *		lcp[i]   the length of the longest common prefix of the suffixes at
+ *		         sa[i - 1] and sa[i], and 0 for i = 0
+ *
+ * The suffix array is built with SA-IS in O(n) time, and the LCP array from
+ * it with Kasai's algorithm, also in O(n). The occurrences of a needle are
+ * the suffixes it prefixes, which lie next to each other in sa and are
+ * found with two binary searches. Each search remembers how much of the
+ * needle is known to match at both ends of its range and skips that much,
+ * so it costs O(m log n) at worst and close to O(m + log n) in practice.
+ *
+ * An index can be saved to a file and loaded back by memory mapping it, so
+ * it is ready at once without being rebuilt or even read into the heap:
+ *
+ *		new SuffixArray(corpus).save(indexFile);
+ *		...
+ *		SuffixArray index = SuffixArray.load(indexFile);
+ *		int[] offsets = index.locate("needle");
+ *
+ * A mapping cannot exceed 2 GB, and each of the int arrays is mapped whole,
+ * so only texts of at most MAX_SAVED_LENGTH chars can be saved and loaded.
+ * Longer texts can still be indexed in memory.
+ *
+ * A SuffixArray is immutable and may be shared between threads.
+ */
+public class SuffixArray {
+
+	/**
+	 * "SAX1", marking an index file.
+	 */
+	private static final int MAGIC = 0x53415831;
+	private static final int HEADER_BYTES = 2 * Integer.BYTES;
+	private static final int WRITE_BUFFER = 1 << 16;
+
+	/**
+	 * The length of the longest text whose index can be saved, the most
+	 * ints a single mapping can hold.
+	 */
+	public static final int MAX_SAVED_LENGTH = Integer.MAX_VALUE / Integer.BYTES;
+
+	private final CharBuffer text;
+	private final IntBuffer sa;
+	private final IntBuffer lcp;
+
+	/**
+	 * Builds the index of a text.
+	 *
+	 * @param text The text to index
+	 */
+	public SuffixArray(String text) {
+		if (text == null) {
+			throw new IllegalArgumentException("Text cannot be null!");
+		}
+
+		char[] chars = text.toCharArray();
+		int[] suffixes = suffixArray(chars);
+		this.text = CharBuffer.wrap(chars);
+		this.sa = IntBuffer.wrap(suffixes);
+		this.lcp = IntBuffer.wrap(lcpArray(chars, suffixes));
+	}
+
+	/**
+	 * Constructs an index over arrays which have already been built.
+	 *
+	 * @param text The text
+	 * @param sa The suffix array of the text
+	 * @param lcp The LCP array of the text
+	 */
+	private SuffixArray(CharBuffer text, IntBuffer sa, IntBuffer lcp) {
+		this.text = text;
+		this.sa = sa;
+		this.lcp = lcp;
+	}
+
+	/**
+	 * Builds the suffix array of a text. The chars are first renumbered by
+	 * rank, so SA-IS works on an alphabet no larger than the text.
+	 *
+	 * @param text The text
+	 * @return The start of each suffix, in order of the suffixes
+	 */
+	private static int[] suffixArray(char[] text) {
+		int[] ranks = new int[Character.MAX_VALUE + 1];
+		for (char c : text) {
+			ranks[c] = 1;
+		}
+
+		int upper = -1;
+		for (int c = 0; c < ranks.length; c++) {
+			if (ranks[c] != 0) {
+				ranks[c] = ++upper;
+			}
+		}
+
+		int[] s = new int[text.length];
+		for (int i = 0; i < text.length; i++) {
+			s[i] = ranks[text[i]];
+		}
+
+		return sais(s, Math.max(upper, 0));
+	}
+
+	/**
+	 * Sorts the suffixes of a string by induced sorting.
+	 *
+	 * Each suffix is S-type if it is smaller than the one after it and
+	 * L-type otherwise, and an S-type suffix just after an L-type one is
+	 * leftmost S, or LMS. Once the LMS suffixes are in order, one pass from
+	 * the left puts every L-type suffix in place behind them and one pass
+	 * from the right every S-type suffix. The LMS suffixes are put in order
+	 * by first inducing from the LMS substrings alone, naming the distinct
+	 * ones, and sorting the string of names recursively, which is at most
+	 * half as long.
+	 *
+	 * @param s The string, of values from 0 to upper
+	 * @param upper The largest value in the string
+	 * @return The start of each suffix, in order of the suffixes
+	 */
+	private static int[] sais(int[] s, int upper) {
+		int n = s.length;
+		if (n == 0) {
+			return new int[0];
+		} else if (n == 1) {
+			return new int[] { 0 };
+		} else if (n == 2) {
+			return (s[0] < s[1]) ? new int[] { 0, 1 } : new int[] { 1, 0 };
+		}
+
+		boolean[] sType = new boolean[n];
+		for (int i = (n - 2); i >= 0; i--) {
+			sType[i] = (s[i] == s[i + 1]) ? sType[i + 1] : (s[i] < s[i + 1]);
+		}
+
+		// The start of the L-type and S-type part of each value's bucket
+		int[] lStart = new int[upper + 1];
+		int[] sStart = new int[upper + 1];
+		for (int i = 0; i < n; i++) {
+			if (!sType[i]) {
+				sStart[s[i]]++;
+			} else {
+				lStart[s[i] + 1]++;
+			}
+		}
+		for (int c = 0; c <= upper; c++) {
+			sStart[c] += lStart[c];
+			if (c < upper) {
+				lStart[c + 1] += sStart[c];
+			}
+		}
+
+		int[] lmsIndex = new int[n];
+		Arrays.fill(lmsIndex, -1);
+		int m = 0;
+		for (int i = 1; i < n; i++) {
+			if (!sType[i - 1] && sType[i]) {
+				lmsIndex[i] = m++;
+			}
+		}
+
+		int[] lms = new int[m];
+		for (int i = 1; i < n; i++) {
+			if (lmsIndex[i] != -1) {
+				lms[lmsIndex[i]] = i;
+			}
+		}
+
+		int[] sa = new int[n];
+		induce(s, sType, lStart, sStart, lms, sa);
+		if (m > 0) {
+			int[] sortedLms = new int[m];
+			int k = 0;
+			for (int suffix : sa) {
+				if (lmsIndex[suffix] != -1) {
+					sortedLms[k++] = suffix;
+				}
+			}
+
+			// Name each LMS substring by its rank among the distinct ones
+			int[] names = new int[m];
+			int name = 0;
+			names[lmsIndex[sortedLms[0]]] = 0;
+			for (int i = 1; i < m; i++) {
+				int l = sortedLms[i - 1];
+				int r = sortedLms[i];
+				int endL = (lmsIndex[l] + 1 < m) ? lms[lmsIndex[l] + 1] : n;
+				int endR = (lmsIndex[r] + 1 < m) ? lms[lmsIndex[r] + 1] : n;
+				boolean same = ((endL - l) == (endR - r));
+				if (same) {
+					while (l < endL && s[l] == s[r]) {
+						l++;
+						r++;
+					}
+					same = (l != n && s[l] == s[r]);
+				}
+
+				if (!same) {
+					name++;
+				}
+				names[lmsIndex[sortedLms[i]]] = name;
+			}
+
+			int[] namesSa = sais(names, name);
+			for (int i = 0; i < m; i++) {
+				sortedLms[i] = lms[namesSa[i]];
+			}
+			induce(s, sType, lStart, sStart, sortedLms, sa);
+		}
+
+		return sa;
+	}
+
+	/**
+	 * Induces the order of every suffix from the order of the LMS suffixes.
+	 *
+	 * @param s The string
+	 * @param sType Whether each suffix is S-type
+	 * @param lStart The start of the L-type part of each bucket
+	 * @param sStart The start of the S-type part of each bucket
+	 * @param lms The LMS suffixes, in order
+	 * @param sa Receives the suffix array
+	 */
+	private static void induce(int[] s, boolean[] sType, int[] lStart, int[] sStart, int[] lms, int[] sa) {
+		int n = s.length;
+		Arrays.fill(sa, -1);
+		int[] next = sStart.clone();
+		for (int suffix : lms) {
+			sa[next[s[suffix]]++] = suffix;
+		}
+
+		next = lStart.clone();
+		sa[next[s[n - 1]]++] = (n - 1);
+		for (int i = 0; i < n; i++) {
+			int suffix = sa[i];
+			if (suffix >= 1 && !sType[suffix - 1]) {
+				sa[next[s[suffix - 1]]++] = (suffix - 1);
+			}
+		}
+
+		// The S-type parts end where the next bucket's L-type part starts.
+		// No suffix starting with the largest value is S-type, so there is
+		// always a next bucket
+		System.arraycopy(lStart, 0, next, 0, next.length);
+		for (int i = (n - 1); i >= 0; i--) {
+			int suffix = sa[i];
+			if (suffix >= 1 && sType[suffix - 1]) {
+				sa[--next[s[suffix - 1] + 1]] = (suffix - 1);
+			}
+		}
+	}
+
+	/**
+	 * Builds the LCP array with Kasai's algorithm. Suffixes are visited in
+	 * order of their start, and the common prefix of each with the suffix
+	 * before it in sa is at least one less than that of the suffix before,
+	 * so the prefix is never compared from scratch.
+	 *
+	 * @param text The text
+	 * @param sa The suffix array of the text
+	 * @return The LCP array
+	 */
+	private static int[] lcpArray(char[] text, int[] sa) {
+		int n = text.length;
+		int[] rank = new int[n];
+		for (int i = 0; i < n; i++) {
+			rank[sa[i]] = i;
+		}
+
+		int[] lcp = new int[n];
+		int h = 0;
+		for (int i = 0; i < n; i++) {
+			if (h > 0) {
+				h--;
+			}
+
+			if (rank[i] == 0) {
+				h = 0;
+				continue;
+			}
+
+			int j = sa[rank[i] - 1];
+			while ((i + h) < n && (j + h) < n && text[i + h] == text[j + h]) {
+				h++;
+			}
+			lcp[rank[i]] = h;
+		}
+
+		return lcp;
+	}
+
+	/**
+	 * @return The number of characters in the text
+	 */
+	public int length() {
+		return text.limit();
+	}
+
+	/**
+	 * Returns the number of times a needle occurs in the text, overlapping
+	 * occurrences included.
+	 *
+	 * @param needle The string to count
+	 * @return The number of occurrences
+	 */
+	public int count(String needle) {
+		checkNeedle(needle);
+		return bound(needle, true) - bound(needle, false);
+	}
+
+	/**
+	 * Returns every index at which a needle occurs in the text, overlapping
+	 * occurrences included.
+	 *
+	 * @param needle The string to locate
+	 * @return The indexes, in ascending order
+	 */
+	public int[] locate(String needle) {
+		checkNeedle(needle);
+		int low = bound(needle, false);
+		int high = bound(needle, true);
+		int[] offsets = new int[high - low];
+		for (int i = low; i < high; i++) {
+			offsets[i - low] = sa.get(i);
+		}
+		Arrays.sort(offsets);
+
+		return offsets;
+	}
+
+	/**
+	 * Returns the longest substring which occurs at least twice in the
+	 * text, read off the largest entry of the LCP array.
+	 *
+	 * @return The longest repeated substring, or "" if there is none
+	 */
+	public String longestRepeatedSubstring() {
+		if (length() == 0) {
+			return "";
+		}
+
+		int best = 0;
+		for (int i = 1; i < lcp.limit(); i++) {
+			if (lcp.get(i) > lcp.get(best)) {
+				best = i;
+			}
+		}
+
+		int start = sa.get(best);
+		int length = lcp.get(best);
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = text.get(start + i);
+		}
+
+		return new String(chars);
+	}
+
+	/**
+	 * Checks a needle is usable.
+	 *
+	 * @param needle The needle
+	 */
+	private static void checkNeedle(String needle) {
+		if (needle == null || needle.length() == 0) {
+			throw new IllegalArgumentException("Needle cannot be null or empty!");
+		}
+	}
+
+	/**
+	 * Binary searches sa for the first suffix which is not less than the
+	 * needle or, for the upper bound, which the needle does not prefix and
+	 * is greater than it. The common prefixes of the needle with the
+	 * suffixes just outside the range are kept, and since every suffix
+	 * inside shares at least the smaller of the two, that much of the
+	 * needle is not compared again.
+	 *
+	 * @param needle The needle
+	 * @param upper Whether to find the upper bound rather than the lower
+	 * @return The index in sa of the bound
+	 */
+	private int bound(String needle, boolean upper) {
+		int n = length();
+		int m = needle.length();
+		int low = 0;
+		int high = n;
+		int lowMatched = 0;
+		int highMatched = 0;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int suffix = sa.get(mid);
+			int k = Math.min(lowMatched, highMatched);
+			while (k < m && (suffix + k) < n && text.get(suffix + k) == needle.charAt(k)) {
+				k++;
+			}
+
+			boolean before;
+			if (k == m) {
+				before = upper;
+			} else if ((suffix + k) == n) {
+				before = true;
+			} else {
+				before = (text.get(suffix + k) < needle.charAt(k));
+			}
+
+			if (before) {
+				low = (mid + 1);
+				lowMatched = k;
+			} else {
+				high = mid;
+				highMatched = k;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Writes the index to a file which load can map back. The text, the
+	 * suffix array and the LCP array are written one after the other in
+	 * little-endian order, after a header of a magic number and the length.
+	 *
+	 * @param file The file to write, replaced if it exists
+	 * @throws IOException If the file cannot be written, or the text is
+	 *         longer than MAX_SAVED_LENGTH
+	 */
+	public void save(Path file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("File cannot be null!");
+		}
+
+		int n = length();
+		if (n > MAX_SAVED_LENGTH) {
+			throw new IOException("Text of " + n + " chars is too long to save, the limit is " + MAX_SAVED_LENGTH + "!");
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(n);
+			for (int i = 0; i < n; i++) {
+				if (buffer.remaining() < Integer.BYTES) {
+					drain(channel, buffer);
+				}
+				buffer.putChar(text.get(i));
+			}
+
+			// Keep the int arrays aligned
+			if ((n & 1) != 0) {
+				buffer.putChar((char) 0);
+			}
+
+			for (IntBuffer array : new IntBuffer[] { sa, lcp }) {
+				for (int i = 0; i < n; i++) {
+					if (buffer.remaining() < Integer.BYTES) {
+						drain(channel, buffer);
+					}
+					buffer.putInt(array.get(i));
+				}
+			}
+			drain(channel, buffer);
+		}
+	}
+
+	/**
+	 * Writes out and empties a buffer.
+	 *
+	 * @param channel The channel to write to
+	 * @param buffer The buffer to write
+	 * @throws IOException If writing fails
+	 */
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Loads an index written by save by memory mapping it. Nothing is copied
+	 * into the heap, and pages of the file are only read once queries touch
+	 * them.
+	 *
+	 * @param file The index file
+	 * @return The index
+	 * @throws IOException If the file cannot be mapped, is not an index, or
+	 *         indexes a text longer than MAX_SAVED_LENGTH
+	 */
+	public static SuffixArray load(Path file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("File cannot be null!");
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header) != -1) {
+			}
+			header.flip();
+			if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+				throw new IOException("Not a suffix array index: " + file);
+			}
+
+			int n = header.getInt();
+			long textBytes = (long) Character.BYTES * (n + (n & 1));
+			long arrayBytes = (long) Integer.BYTES * n;
+			if (n < 0 || channel.size() != (HEADER_BYTES + textBytes + (2 * arrayBytes))) {
+				throw new IOException("Suffix array index is truncated: " + file);
+			} else if (n > MAX_SAVED_LENGTH) {
+				throw new IOException("Suffix array index is too long to map, the limit is " + MAX_SAVED_LENGTH + " chars: " + file);
+			}
+
+			long saStart = (HEADER_BYTES + textBytes);
+			CharBuffer text = map(channel, HEADER_BYTES, ((long) Character.BYTES * n)).asCharBuffer();
+			IntBuffer sa = map(channel, saStart, arrayBytes).asIntBuffer();
+			IntBuffer lcp = map(channel, (saStart + arrayBytes), arrayBytes).asIntBuffer();
+
+			return new SuffixArray(text, sa, lcp);
+		}
+	}
+
+	/**
+	 * Maps part of an index file.
+	 *
+	 * @param channel The index file
+	 * @param position The offset of the part
+	 * @param size The length of the part in bytes
+	 * @return The mapped part, in little-endian order
+	 * @throws IOException If the part cannot be mapped
+	 */
+	private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
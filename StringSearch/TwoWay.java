@@ -0,0 +1,259 @@
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * The TwoWay class searches with the Two-Way algorithm of Crochemore and
+ * Perrin, which runs in O(n + m) time in the worst case, whatever the
+ * needle and haystack, using O(1) space beyond the needle itself.
+ *
+ * The needle is cut at a critical position into u and v, found from the
+ * maximal suffix of the needle under the alphabet order and its reverse.
+ * At each alignment v is compared left to right, and on a mismatch the
+ * needle moves past everything compared. Only if all of v matches is u
+ * compared right to left, after which the needle moves by its period:
+ *
+ *		needle  = u v
+ *		haystack  ...[u][v]...
+ *		              <-- -->
+ *
+ * When the needle is periodic, the prefix which still matches after a
+ * shift by the period is remembered and not compared again. That is what
+ * keeps a needle like "aaa...ab" linear against a long run of a's, where
+ * Boyer-Moore compares nearly the whole needle at every offset.
+ *
+ * A TwoWay is immutable and may be shared between threads.
+ */
+public class TwoWay {
+
+	private static final int NONE = -1;
+
+	private final String needle;
+
+	/**
+	 * The last index of u, so v starts at critical + 1. May be -1, when u is
+	 * empty.
+	 */
+	private final int critical;
+
+	/**
+	 * The smallest period of the needle if it is periodic, and otherwise how
+	 * far to move it after a full match.
+	 */
+	private final int period;
+
+	/**
+	 * Whether u occurs in v a period further on, so matched prefixes can be
+	 * remembered across shifts.
+	 */
+	private final boolean periodic;
+
+	/**
+	 * Prepares a needle. This costs O(m) time and O(1) space.
+	 *
+	 * @param needle The string to search for
+	 */
+	public TwoWay(String needle) {
+		if (needle == null || needle.length() == 0) {
+			throw new IllegalArgumentException("Needle cannot be null or empty!");
+		}
+
+		this.needle = needle;
+		int m = needle.length();
+
+		// Of the maximal suffixes under each order, the shorter gives a
+		// critical factorization
+		long less = maximalSuffix(needle, false);
+		long greater = maximalSuffix(needle, true);
+		long chosen = ((int) (less >>> 32) >= (int) (greater >>> 32)) ? less : greater;
+		critical = (int) (chosen >>> 32);
+		int suffixPeriod = (int) chosen;
+
+		// The period of v is the needle's if u also repeats with it
+		periodic = needle.regionMatches(0, needle, suffixPeriod, Math.min((critical + 1), (m - suffixPeriod)));
+		if (periodic) {
+			period = suffixPeriod;
+		} else {
+			period = Math.max((critical + 1), (m - critical - 1)) + 1;
+		}
+	}
+
+	/**
+	 * Finds the maximal suffix of a string under the alphabet order or its
+	 * reverse, and the period of that suffix, in O(m) time.
+	 *
+	 * @param x The string
+	 * @param reversed Whether to reverse the order of the alphabet
+	 * @return The index just before the suffix in the high 32 bits, and its
+	 *         period in the low 32 bits
+	 */
+	private static long maximalSuffix(String x, boolean reversed) {
+		int m = x.length();
+		int start = NONE;
+		int j = 0;
+		int k = 1;
+		int p = 1;
+		while ((j + k) < m) {
+			char a = x.charAt(j + k);
+			char b = x.charAt(start + k);
+			if (a == b) {
+				if (k != p) {
+					k++;
+				} else {
+					j += p;
+					k = 1;
+				}
+			} else if ((a < b) != reversed) {
+				j += k;
+				k = 1;
+				p = (j - start);
+			} else {
+				start = j;
+				j = (start + 1);
+				k = 1;
+				p = 1;
+			}
+		}
+
+		return ((long) start << 32) | p;
+	}
+
+	/**
+	 * @return The needle
+	 */
+	public String getNeedle() {
+		return needle;
+	}
+
+	/**
+	 * Returns the smallest period of the needle when it is known exactly,
+	 * which it always is when the period is at most half the length of the
+	 * needle. Otherwise returns a lower bound on it which is more than half
+	 * the length.
+	 *
+	 * @return The period of the needle, or a lower bound on it
+	 */
+	public int getPeriod() {
+		return period;
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the needle in a haystack
+	 * at or after an index.
+	 *
+	 * @param haystack The text to search
+	 * @param from The first index the needle may start at
+	 * @return The index of the first match, or -1 if there is none
+	 */
+	public int indexOf(String haystack, int from) {
+		if (haystack == null) {
+			throw new IllegalArgumentException("Haystack cannot be null!");
+		}
+
+		return scan(haystack, from, haystack.length(), null);
+	}
+
+	/**
+	 * Returns every index at which the needle occurs in a haystack,
+	 * overlapping occurrences included.
+	 *
+	 * @param haystack The text to search
+	 * @return list of integers representing the first index a match occurs
+	 */
+	public List<Integer> search(String haystack) {
+		if (haystack == null) {
+			throw new IllegalArgumentException("Haystack cannot be null!");
+		}
+
+		List<Integer> matches = new ArrayList<Integer>();
+		scan(haystack, 0, haystack.length(), matches::add);
+
+		return matches;
+	}
+
+	/**
+	 * Reports every index at which the needle occurs in a range of a
+	 * buffer, overlapping occurrences included.
+	 *
+	 * @param text The buffer to search
+	 * @param from The first index the needle may start at
+	 * @param to The index the needle must end at or before
+	 * @param matches Receives the index of each match, in order
+	 */
+	public void search(char[] text, int from, int to, IntConsumer matches) {
+		if (text == null || matches == null) {
+			throw new IllegalArgumentException("Text or matches cannot be null!");
+		}
+
+		scan(CharBuffer.wrap(text), from, to, matches);
+	}
+
+	/**
+	 * Reports every index at which the needle occurs in a range of a byte
+	 * buffer, each byte standing for the Latin-1 char of the same value.
+	 * Indexes are absolute, so the buffer's position is ignored and left as
+	 * it is.
+	 *
+	 * @param bytes The buffer to search
+	 * @param from The first index the needle may start at
+	 * @param to The index the needle must end at or before
+	 * @param matches Receives the index of each match, in order
+	 */
+	public void search(ByteBuffer bytes, int from, int to, IntConsumer matches) {
+		if (bytes == null || matches == null) {
+			throw new IllegalArgumentException("Bytes or matches cannot be null!");
+		}
+
+		scan(new Latin1Chars(bytes), from, to, matches);
+	}
+
+	/**
+	 * Runs the search over a range, either stopping at the first match or
+	 * reporting all of them.
+	 *
+	 * @param haystack The text to search
+	 * @param from The first index the needle may start at
+	 * @param to The index the needle must end at or before
+	 * @param matches Receives every match, or null to stop at the first
+	 * @return The first match if matches is null, otherwise -1
+	 */
+	private int scan(CharSequence haystack, int from, int to, IntConsumer matches) {
+		int m = needle.length();
+		int n = Math.min(to, haystack.length());
+		int start = Math.max(from, 0);
+
+		// The length of the prefix known to match at this alignment
+		int memory = 0;
+		while (start <= (n - m)) {
+			int i = Math.max((critical + 1), memory);
+			while (i < m && needle.charAt(i) == haystack.charAt(start + i)) {
+				i++;
+			}
+
+			if (i < m) {
+				start += (i - critical);
+				memory = 0;
+				continue;
+			}
+
+			i = critical;
+			while (i >= memory && needle.charAt(i) == haystack.charAt(start + i)) {
+				i--;
+			}
+
+			if (i < memory) {
+				if (matches == null) {
+					return start;
+				}
+				matches.accept(start);
+			}
+
+			start += period;
+			memory = periodic ? (m - period) : 0;
+		}
+
+		return NONE;
+	}
+}